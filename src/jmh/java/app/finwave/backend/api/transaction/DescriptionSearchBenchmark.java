@@ -0,0 +1,139 @@
+package app.finwave.backend.api.transaction;
+
+import app.finwave.backend.api.transaction.filter.DescriptionSearchMode;
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import app.finwave.backend.database.BenchmarkDatabase;
+import app.finwave.backend.database.DatabaseWorker;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// a page of description search over one user's seeded transactions: ilike without the trigram index against the modes of V1.1.6.
+// the data is seeded once and kept, the plans of every mode are printed at setup
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DescriptionSearchBenchmark {
+    protected static final int PAGE = 50;
+    protected static final int SEED_CHUNK = 1_000_000;
+
+    // one row in RARE_EVERY mentions the bakery, the rest cycle through everyday descriptions
+    protected static final int RARE_EVERY = 10_000;
+    protected static final String[] COMMON = {
+            "coffee at the corner cafe", "grocery store weekly", "salary transfer", "rent payment", "taxi to the airport",
+            "mobile phone bill", "pharmacy", "cinema tickets", "electricity bill", "lunch with colleagues"
+    };
+
+    @Param("10000000")
+    public int rows;
+
+    protected DSLContext context;
+    protected int userId;
+
+    protected TransactionsFilter contains;
+    protected TransactionsFilter prefix;
+    protected TransactionsFilter fuzzy;
+    protected TransactionsFilter ranked;
+
+    @Setup
+    public void setup() {
+        DatabaseWorker databaseWorker = BenchmarkDatabase.connect();
+        context = databaseWorker.getDefaultContext();
+
+        BenchmarkDatabase.Owner owner = BenchmarkDatabase.owner(context, "description_search_bench_" + rows, 1);
+        userId = owner.userId();
+
+        seed(owner);
+
+        contains = filter("akery", DescriptionSearchMode.CONTAINS);
+        prefix = filter("birthday", DescriptionSearchMode.PREFIX);
+        fuzzy = filter("bakerry", DescriptionSearchMode.FUZZY);
+        ranked = filter("bakerry", DescriptionSearchMode.RANKED);
+
+        printPlan("ilike without trigram index", contains, true);
+        printPlan("contains", contains, false);
+        printPlan("prefix", prefix, false);
+        printPlan("fuzzy", fuzzy, false);
+        printPlan("ranked", ranked, false);
+    }
+
+    @Benchmark
+    public void ilikeWithoutTrigramIndex(Blackhole blackhole) {
+        blackhole.consume(BenchmarkDatabase.rolledBack(context, (dsl) -> {
+            dropTrigramIndex(dsl);
+
+            return page(dsl, contains);
+        }));
+    }
+
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        blackhole.consume(page(context, contains));
+    }
+
+    @Benchmark
+    public void prefix(Blackhole blackhole) {
+        blackhole.consume(page(context, prefix));
+    }
+
+    @Benchmark
+    public void fuzzy(Blackhole blackhole) {
+        blackhole.consume(page(context, fuzzy));
+    }
+
+    @Benchmark
+    public void ranked(Blackhole blackhole) {
+        blackhole.consume(page(context, ranked));
+    }
+
+    protected List<Record> page(DSLContext dsl, TransactionsFilter filter) {
+        return new TransactionDatabase(dsl).getTransactions(userId, 0, PAGE, filter);
+    }
+
+    // dropping the index is undone by the rollback around the call, and is cheap next to the scan it forces
+    protected static void dropTrigramIndex(DSLContext dsl) {
+        dsl.execute("drop index idx_transactions_description_trgm");
+    }
+
+    protected void printPlan(String name, TransactionsFilter filter, boolean withoutTrigramIndex) {
+        String sql = BenchmarkDatabase.render((dsl) -> page(dsl, filter)).get(0);
+
+        String plan = BenchmarkDatabase.rolledBack(context, (dsl) -> {
+            if (withoutTrigramIndex)
+                dropTrigramIndex(dsl);
+
+            return BenchmarkDatabase.explainAnalyze(dsl, sql);
+        });
+
+        System.out.println("\n" + name + ":\n" + plan);
+    }
+
+    protected void seed(BenchmarkDatabase.Owner owner) {
+        int seeded = new TransactionDatabase(context).getTransactionsCount(userId, TransactionsFilter.EMPTY);
+
+        if (seeded >= rows)
+            return;
+
+        for (int from = seeded + 1; from <= rows; from += SEED_CHUNK) {
+            context.execute("insert into transactions (owner_id, category_id, account_id, currency_id, created_at, delta, description) " +
+                            "select {0}, {1}, a.id, a.currency_id, now() - (i % 3650) * interval '1 day' - (i % 1440) * interval '1 minute', " +
+                            "(i % 20000 - 10000) / 100.0, " +
+                            "case when i % {2} = 0 then 'birthday cake from the bakery #' || i else ({3}::text[])[1 + i % {4}] || ' #' || i end " +
+                            "from generate_series({5}, {6}) i, accounts a where a.id = {7}",
+                    DSL.inline(owner.userId()), DSL.inline(owner.categoryId()), DSL.inline(RARE_EVERY),
+                    DSL.inline(COMMON), DSL.inline(COMMON.length), DSL.inline(from), DSL.inline(Math.min(from + SEED_CHUNK - 1, rows)),
+                    DSL.inline(owner.accounts()[0]));
+        }
+
+        context.execute("analyze transactions");
+    }
+
+    protected static TransactionsFilter filter(String description, DescriptionSearchMode mode) {
+        return TransactionsFilter.EMPTY.setDescription(description).setDescriptionMode(mode);
+    }
+}
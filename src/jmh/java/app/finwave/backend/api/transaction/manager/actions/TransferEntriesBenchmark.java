@@ -0,0 +1,74 @@
+package app.finwave.backend.api.transaction.manager.actions;
+
+import app.finwave.backend.api.transaction.TransactionDatabase;
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
+import app.finwave.backend.database.BenchmarkDatabase;
+import app.finwave.backend.database.DatabaseWorker;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// a page of transfer legs: the per-entry prepareEntry loop used before, a metadata and a second leg query per transfer,
+// against prepareEntries, which batches both
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TransferEntriesBenchmark {
+    protected static final int TRANSFERS = 50;
+
+    protected DSLContext context;
+    protected InternalActionsWorker worker;
+    protected List<Record> legs;
+
+    @Setup
+    public void setup() {
+        DatabaseWorker databaseWorker = BenchmarkDatabase.connect();
+        context = databaseWorker.getDefaultContext();
+        worker = new InternalActionsWorker(new DefaultActionsWorker(databaseWorker), databaseWorker);
+
+        BenchmarkDatabase.Owner owner = BenchmarkDatabase.owner(context, "transfer_entries_bench_" + UUID.randomUUID(), 2);
+        OffsetDateTime now = OffsetDateTime.now();
+
+        for (int i = 0; i < TRANSFERS; i++) {
+            TransactionNewInternalRecord transfer = new TransactionNewInternalRecord(owner.userId(), owner.categoryId(),
+                    owner.accounts()[0], owner.accounts()[1], now.minusMinutes(i),
+                    BigDecimal.valueOf(-(i + 1)), BigDecimal.valueOf(i + 1), "transfer " + i);
+
+            context.transaction((configuration) -> worker.apply(configuration.dsl(), transfer));
+        }
+
+        legs = new TransactionDatabase(context).getTransactions(owner.userId(), 0, TRANSFERS * 2, TransactionsFilter.EMPTY);
+
+        if (legs.size() != TRANSFERS * 2)
+            throw new IllegalStateException("expected " + TRANSFERS * 2 + " legs, got " + legs.size());
+    }
+
+    @Benchmark
+    public void perEntry(Blackhole blackhole) {
+        HashMap<Long, TransactionEntry<?>> added = new HashMap<>();
+
+        for (Record record : legs) {
+            TransactionEntry<?> entry = worker.prepareEntry(context, record, added);
+
+            if (entry != null)
+                added.put(entry.transactionId, entry);
+
+            blackhole.consume(entry);
+        }
+    }
+
+    @Benchmark
+    public void batched(Blackhole blackhole) {
+        blackhole.consume(worker.prepareEntries(context, legs));
+    }
+}
@@ -0,0 +1,154 @@
+package app.finwave.backend.database;
+
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.GroupedConfig;
+import app.finwave.backend.config.general.DatabaseConfig;
+import app.finwave.backend.migration.Migrator;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.conf.StatementType;
+import org.jooq.impl.DSL;
+import org.jooq.postgres.extensions.types.Ltree;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static app.finwave.backend.jooq.Tables.*;
+
+// database benchmarks run against a disposable database given by FINWAVE_BENCH_DATABASE_URL
+public class BenchmarkDatabase {
+    public static DatabaseWorker connect() {
+        String url = System.getenv("FINWAVE_BENCH_DATABASE_URL");
+
+        if (url == null || url.isBlank())
+            throw new IllegalStateException("FINWAVE_BENCH_DATABASE_URL is not set");
+
+        Configs configs = new Configs() {
+            @Override
+            public <T extends GroupedConfig> T getState(T defaultState) {
+                if (defaultState instanceof DatabaseConfig config) {
+                    config.url = url;
+                    config.user = Optional.ofNullable(System.getenv("FINWAVE_BENCH_DATABASE_USER")).orElse(config.user);
+                }
+
+                return defaultState;
+            }
+        };
+
+        return new DatabaseWorker(configs, new Migrator(configs));
+    }
+
+    // the user with the given name, created with a currency, a category and the accounts on the first call
+    public static Owner owner(DSLContext context, String username, int accountsCount) {
+        Optional<Integer> existing = context.select(USERS.ID)
+                .from(USERS)
+                .where(USERS.USERNAME.eq(username))
+                .fetchOptional(USERS.ID);
+
+        if (existing.isPresent()) {
+            int userId = existing.get();
+
+            return new Owner(userId,
+                    context.select(CATEGORIES.ID).from(CATEGORIES).where(CATEGORIES.OWNER_ID.eq(userId)).fetchOne(CATEGORIES.ID),
+                    context.select(ACCOUNTS.ID).from(ACCOUNTS).where(ACCOUNTS.OWNER_ID.eq(userId)).orderBy(ACCOUNTS.ID).fetch(ACCOUNTS.ID)
+                            .stream().mapToLong(Long::longValue).toArray());
+        }
+
+        int userId = context.insertInto(USERS)
+                .set(USERS.USERNAME, username)
+                .set(USERS.PASSWORD, "-")
+                .returningResult(USERS.ID)
+                .fetchOne()
+                .value1();
+
+        long currencyId = context.insertInto(CURRENCIES)
+                .set(CURRENCIES.OWNER_ID, userId)
+                .set(CURRENCIES.CODE, "BCH")
+                .set(CURRENCIES.SYMBOL, "B")
+                .set(CURRENCIES.DECIMALS, (short) 2)
+                .set(CURRENCIES.DESCRIPTION, "benchmark")
+                .returningResult(CURRENCIES.ID)
+                .fetchOne()
+                .value1();
+
+        long folderId = context.insertInto(ACCOUNTS_FOLDERS)
+                .set(ACCOUNTS_FOLDERS.OWNER_ID, userId)
+                .set(ACCOUNTS_FOLDERS.NAME, "benchmark")
+                .returningResult(ACCOUNTS_FOLDERS.ID)
+                .fetchOne()
+                .value1();
+
+        long categoryId = context.insertInto(CATEGORIES)
+                .set(CATEGORIES.OWNER_ID, userId)
+                .set(CATEGORIES.TYPE, (short) 0)
+                .set(CATEGORIES.PARENTS_TREE, Ltree.valueOf(""))
+                .set(CATEGORIES.NAME, "benchmark")
+                .returningResult(CATEGORIES.ID)
+                .fetchOne()
+                .value1();
+
+        long[] accounts = new long[accountsCount];
+
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = context.insertInto(ACCOUNTS)
+                    .set(ACCOUNTS.OWNER_ID, userId)
+                    .set(ACCOUNTS.FOLDER_ID, folderId)
+                    .set(ACCOUNTS.CURRENCY_ID, currencyId)
+                    .set(ACCOUNTS.AMOUNT, BigDecimal.ZERO)
+                    .set(ACCOUNTS.HIDDEN, false)
+                    .set(ACCOUNTS.NAME, "benchmark " + i)
+                    .returningResult(ACCOUNTS.ID)
+                    .fetchOne()
+                    .value1();
+        }
+
+        return new Owner(userId, categoryId, accounts);
+    }
+
+    // runs the action in a transaction that is always rolled back, ddl included
+    public static <T> T rolledBack(DSLContext context, Function<DSLContext, T> action) {
+        return context.connectionResult((connection) -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try {
+                return action.apply(DSL.using(connection, SQLDialect.POSTGRES));
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    // the sql a dao call sends, with values inlined; the mock answers nothing, so the dao may fail after rendering
+    public static List<String> render(Consumer<DSLContext> query) {
+        ArrayList<String> statements = new ArrayList<>();
+
+        Connection connection = new MockConnection((executeContext) -> {
+            statements.add(executeContext.sql());
+
+            return new MockResult[] { new MockResult(0, null) };
+        });
+
+        try {
+            query.accept(DSL.using(connection, SQLDialect.POSTGRES, new Settings().withStatementType(StatementType.STATIC_STATEMENT)));
+        } catch (RuntimeException ignored) {
+        }
+
+        return statements;
+    }
+
+    public static String explainAnalyze(DSLContext context, String sql) {
+        return String.join("\n", context.resultQuery("explain (analyze, buffers) " + sql).fetch(0, String.class));
+    }
+
+    public record Owner(int userId, long categoryId, long[] accounts) {}
+}
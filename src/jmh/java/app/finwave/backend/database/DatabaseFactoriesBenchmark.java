@@ -0,0 +1,36 @@
+package app.finwave.backend.database;
+
+import app.finwave.backend.api.transaction.TransactionDatabase;
+import app.finwave.backend.api.transaction.metadata.MetadataDatabase;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// dao views a transaction creates: the reflective lookup get() used before against the compiled factories
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DatabaseFactoriesBenchmark {
+    protected DSLContext context;
+
+    @Setup
+    public void setup() {
+        context = DSL.using(SQLDialect.POSTGRES);
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) throws ReflectiveOperationException {
+        blackhole.consume(TransactionDatabase.class.getConstructor(DSLContext.class).newInstance(context));
+        blackhole.consume(MetadataDatabase.class.getConstructor(DSLContext.class).newInstance(context));
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        blackhole.consume(DatabaseFactories.create(TransactionDatabase.class, context));
+        blackhole.consume(DatabaseFactories.create(MetadataDatabase.class, context));
+    }
+}
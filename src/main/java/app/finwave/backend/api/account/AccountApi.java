@@ -4,6 +4,7 @@ import app.finwave.backend.api.accumulation.AccumulationApi;
 import app.finwave.backend.api.accumulation.AccumulationDatabase;
 import app.finwave.backend.api.event.WebSocketWorker;
 import app.finwave.backend.api.event.messages.response.NotifyUpdate;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.api.recurring.RecurringTransactionDatabase;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.api.transaction.manager.TransactionsManager;
@@ -13,7 +14,6 @@ import spark.Request;
 import spark.Response;
 import app.finwave.backend.api.ApiResponse;
 import app.finwave.backend.api.account.folder.AccountFolderDatabase;
-import app.finwave.backend.api.currency.CurrencyDatabase;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.app.AccountsConfig;
 import app.finwave.backend.database.DatabaseWorker;
@@ -32,7 +32,7 @@ import static spark.Spark.halt;
 public class AccountApi {
     protected AccountDatabase database;
     protected AccountFolderDatabase folderDatabase;
-    protected CurrencyDatabase currencyDatabase;
+    protected OwnershipManager ownership;
 
     protected AccountsConfig config;
 
@@ -44,10 +44,10 @@ public class AccountApi {
     protected AccumulationDatabase accumulationDatabase;
 
     @Inject
-    public AccountApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker, TransactionsManager manager) {
+    public AccountApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker, TransactionsManager manager, OwnershipManager ownership) {
         this.database = databaseWorker.get(AccountDatabase.class);
         this.folderDatabase = databaseWorker.get(AccountFolderDatabase.class);
-        this.currencyDatabase = databaseWorker.get(CurrencyDatabase.class);
+        this.ownership = ownership;
 
         this.config = configs.getState(new AccountsConfig());
 
@@ -67,7 +67,7 @@ public class AccountApi {
 
         long currencyId = ParamsValidator
                 .longV(request, "currencyId")
-                .matches((id) -> currencyDatabase.userCanReadCurrency(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userCanReadCurrency(sessionsRecord.getUserId(), id))
                 .require();
 
         String name = ParamsValidator
@@ -86,6 +86,8 @@ public class AccountApi {
         Optional<Long> accountId = database
                 .newAccount(sessionsRecord.getUserId(), folderId, currencyId, name, description.orElse(null));
 
+        ownership.invalidate(sessionsRecord.getUserId());
+
         if (accountId.isEmpty())
             halt(500);
 
@@ -111,7 +113,7 @@ public class AccountApi {
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> database.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         database.hideAccount(accountId);
@@ -128,7 +130,7 @@ public class AccountApi {
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> database.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         database.showAccount(accountId);
@@ -145,7 +147,7 @@ public class AccountApi {
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> database.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         String name = ParamsValidator
@@ -167,7 +169,7 @@ public class AccountApi {
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> database.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         Optional<String> description = ParamsValidator
@@ -189,7 +191,7 @@ public class AccountApi {
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> database.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         long folderId = ParamsValidator
@@ -211,7 +213,7 @@ public class AccountApi {
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> database.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         if (recurringTransactionDatabase.accountAffected(accountId)) {
@@ -233,6 +235,7 @@ public class AccountApi {
         }
 
         database.deleteAccount(accountId);
+        ownership.invalidate(sessionsRecord.getUserId());
         socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("accounts"));
 
         response.status(200);
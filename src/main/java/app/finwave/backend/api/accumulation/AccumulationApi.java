@@ -2,13 +2,12 @@ package app.finwave.backend.api.accumulation;
 
 import app.finwave.backend.api.event.WebSocketWorker;
 import app.finwave.backend.api.event.messages.response.NotifyUpdate;
-import app.finwave.backend.api.category.CategoryDatabase;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import spark.Request;
 import spark.Response;
 import app.finwave.backend.api.ApiResponse;
-import app.finwave.backend.api.account.AccountDatabase;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.api.accumulation.data.AccumulationData;
 import app.finwave.backend.api.accumulation.data.AccumulationStep;
 import app.finwave.backend.config.Configs;
@@ -25,16 +24,14 @@ import java.util.List;
 public class AccumulationApi {
     protected AccumulationConfig config;
     protected AccumulationDatabase database;
-    protected AccountDatabase accountDatabase;
-    protected CategoryDatabase categoryDatabase;
+    protected OwnershipManager ownership;
 
     protected WebSocketWorker socketWorker;
 
     @Inject
-    public AccumulationApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker) {
+    public AccumulationApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker, OwnershipManager ownership) {
         this.database = databaseWorker.get(AccumulationDatabase.class);
-        this.accountDatabase = databaseWorker.get(AccountDatabase.class);
-        this.categoryDatabase = databaseWorker.get(CategoryDatabase.class);
+        this.ownership = ownership;
 
         this.config = configs.getState(new AccumulationConfig());
         this.socketWorker = socketWorker;
@@ -44,10 +41,10 @@ public class AccumulationApi {
         UsersSessionsRecord sessionsRecord = request.attribute("session");
 
         SetAccumulationArgs args = ParamsValidator.bodyObject(request, SetAccumulationArgs.class)
-                .matches((r) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), r.sourceAccountId), "sourceAccountId")
-                .matches((r) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), r.targetAccountId), "targetAccountId")
-                .matches((r) -> accountDatabase.sameCurrencies(r.sourceAccountId, r.targetAccountId), "sourceAccountId / targetAccountId")
-                .matches((r) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), r.categoryId), "categoryId")
+                .matches((r) -> ownership.userOwnAccount(sessionsRecord.getUserId(), r.sourceAccountId), "sourceAccountId")
+                .matches((r) -> ownership.userOwnAccount(sessionsRecord.getUserId(), r.targetAccountId), "targetAccountId")
+                .matches((r) -> ownership.sameCurrencies(sessionsRecord.getUserId(), r.sourceAccountId, r.targetAccountId), "sourceAccountId / targetAccountId")
+                .matches((r) -> ownership.userOwnCategory(sessionsRecord.getUserId(), r.categoryId), "categoryId")
                 .matches((r) -> r.validateSteps(config.maxStepsPerAccount), "steps")
                 .require();
 
@@ -71,7 +68,7 @@ public class AccumulationApi {
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         database.removeAccumulation(accountId);
@@ -6,7 +6,9 @@ import app.finwave.backend.api.accumulation.data.AccumulationData;
 import app.finwave.backend.database.AbstractDatabase;
 import org.jooq.Record1;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static app.finwave.backend.api.ApiResponse.GSON;
@@ -54,6 +56,12 @@ public class AccumulationDatabase extends AbstractDatabase {
                 .map(AccumulationData::fromRecord);
     }
 
+    public Map<Long, AccumulationData> getAccumulationSettings(Collection<Long> sourceAccountsIds) {
+        return context.selectFrom(ACCUMULATION_SETTINGS)
+                .where(ACCUMULATION_SETTINGS.SOURCE_ACCOUNT_ID.in(sourceAccountsIds))
+                .fetchMap(ACCUMULATION_SETTINGS.SOURCE_ACCOUNT_ID, AccumulationData::fromRecord);
+    }
+
     public boolean accountAffected(long accountId) {
         return context.selectCount()
                 .from(ACCUMULATION_SETTINGS)
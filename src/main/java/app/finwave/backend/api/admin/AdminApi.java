@@ -8,6 +8,7 @@ import spark.Response;
 import app.finwave.backend.api.ApiResponse;
 import app.finwave.backend.api.user.UserDatabase;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.PoolMetrics;
 import app.finwave.backend.http.ApiMessage;
 import app.finwave.backend.jooq.tables.records.UsersRecord;
 import app.finwave.backend.utils.params.ParamsValidator;
@@ -22,12 +23,14 @@ public class AdminApi {
     protected AdminDatabase database;
     protected UserDatabase userDatabase;
     protected SessionManager sessionManager;
+    protected DatabaseWorker databaseWorker;
 
     @Inject
     public AdminApi(DatabaseWorker databaseWorker, SessionManager sessionManager) {
         this.database = databaseWorker.get(AdminDatabase.class);
         this.userDatabase = databaseWorker.get(UserDatabase.class);
         this.sessionManager = sessionManager;
+        this.databaseWorker = databaseWorker;
     }
 
     public Object getUsers(Request request, Response response) {
@@ -68,6 +71,12 @@ public class AdminApi {
         return new GetCountResponse(database.getTransactionsCount());
     }
 
+    public Object getDatabaseStats(Request request, Response response) {
+        response.status(200);
+
+        return new GetDatabaseStatsResponse(databaseWorker.getPoolMetrics());
+    }
+
     public Object changeUserPassword(Request request, Response response) {
         int userId = ParamsValidator
                 .integer(request, "userId")
@@ -112,6 +121,14 @@ public class AdminApi {
         }
     }
 
+    static final class GetDatabaseStatsResponse extends ApiResponse {
+        public final PoolMetrics.Snapshot pool;
+
+        public GetDatabaseStatsResponse(PoolMetrics.Snapshot pool) {
+            this.pool = pool;
+        }
+    }
+
     static final class GetUserListResponse extends ApiResponse {
         public final List<Entry> users;
 
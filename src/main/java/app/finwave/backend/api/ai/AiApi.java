@@ -21,6 +21,7 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static spark.Spark.halt;
 
@@ -87,9 +88,16 @@ public class AiApi {
 
         FilesRecord record = filesManager.getFileRecord(fileId).orElseThrow();
 
-        boolean result = aiFileWorker.attachFiles(contextId, List.of(record));
+        CompletableFuture<Boolean> result = aiFileWorker.attachFiles(contextId, List.of(record));
 
-        if (!result)
+        // long conversions finish in background and report progress over websocket
+        if (!result.isDone()) {
+            response.status(202);
+
+            return ApiMessage.of("Attaching in progress");
+        }
+
+        if (!result.join())
             throw new InvalidParameterException("fileId");
 
         response.status(200);
@@ -119,6 +127,8 @@ public class AiApi {
         ArrayList<ContentPart> parts = new ArrayList<>();
         message.ifPresent(s -> parts.add(new ContentPart.TextContentPart(s)));
 
+        aiFileWorker.awaitAttachments(contextId);
+
         String answer = worker.ask(contextId, sessionRecord, parts);
 
         if (answer == null || answer.isBlank())
@@ -129,6 +139,49 @@ public class AiApi {
         return new AnswerResponse(answer);
     }
 
+    public Object askStream(Request request, Response response) {
+        if (!config.enabled) {
+            response.status(400);
+
+            return ApiMessage.of("AI disabled");
+        }
+
+        UsersSessionsRecord sessionRecord = request.attribute("session");
+
+        long contextId = ParamsValidator
+                .longV(request, "contextId")
+                .matches((id) -> manager.userOwnContext(sessionRecord.getUserId(), id))
+                .require();
+
+        Optional<String> message = ParamsValidator
+                .string(request, "message")
+                .length(1, config.maxNewMessageSize)
+                .optional();
+
+        ArrayList<ContentPart> parts = new ArrayList<>();
+        message.ifPresent(s -> parts.add(new ContentPart.TextContentPart(s)));
+
+        Optional<String> requestId = worker.askStreaming(contextId, sessionRecord, parts, aiFileWorker.getPendingAttachments(contextId));
+
+        if (requestId.isEmpty()) {
+            response.status(503);
+
+            return ApiMessage.of("AI is busy, try again later");
+        }
+
+        response.status(200);
+
+        return new StreamResponse(requestId.get());
+    }
+
+    static class StreamResponse extends ApiResponse {
+        public final String requestId;
+
+        public StreamResponse(String requestId) {
+            this.requestId = requestId;
+        }
+    }
+
     static class AnswerResponse extends ApiResponse {
         public final String answer;
 
@@ -1,11 +1,16 @@
 package app.finwave.backend.api.ai;
 
+import app.finwave.backend.api.event.WebSocketWorker;
+import app.finwave.backend.api.event.messages.response.AiAttachmentProgress;
 import app.finwave.backend.api.files.FilesManager;
 import app.finwave.backend.api.files.LimitedWithCallbackOutputStream;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.AiConfig;
+import app.finwave.backend.config.general.CachingConfig;
 import app.finwave.backend.jooq.tables.records.FilesRecord;
+import app.finwave.backend.utils.CacheHandyBuilder;
 import app.finwave.backend.utils.VersionCatcher;
+import com.google.common.cache.Cache;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.github.stefanbratanov.jvm.openai.ContentPart;
@@ -18,11 +23,15 @@ import org.apache.pdfbox.text.PDFTextStripper;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Singleton
 public class AiFileWorker {
@@ -31,44 +40,81 @@ public class AiFileWorker {
     protected String filesApiRoute = System.getenv("API_URL") + "files/download";
     protected AiConfig config;
     protected AiWorker aiWorker;
+    protected WebSocketWorker socketWorker;
+
+    // shared by all users, a full queue refuses new PDFs instead of piling up work
+    protected ThreadPoolExecutor renderPool;
+    // a PDF holds slots for its text task and as many page chunks as it can have until it's attached,
+    // so it's refused as a whole instead of failing halfway with its files already saved
+    protected Semaphore renderSlots;
+    protected int slotsPerPdf;
+    protected Cache<PdfRenderKey, PdfRender> rendersCache;
+
+    // last attachment of each context, new attachments chain after it to keep messages ordered
+    protected ConcurrentHashMap<Long, CompletableFuture<Boolean>> pendingAttachments = new ConcurrentHashMap<>();
 
     @Inject
-    public AiFileWorker(FilesManager filesManager, AiWorker aiWorker, Configs configs) {
+    public AiFileWorker(FilesManager filesManager, AiWorker aiWorker, WebSocketWorker socketWorker, Configs configs) {
         this.filesManager = filesManager;
         this.config = configs.getState(new AiConfig());
         this.aiWorker = aiWorker;
+        this.socketWorker = socketWorker;
+
+        this.slotsPerPdf = 1 + config.pdf.threads;
+        this.renderSlots = new Semaphore(Math.max(slotsPerPdf, config.pdf.maxQueuedTasks));
+
+        this.renderPool = new ThreadPoolExecutor(
+                config.pdf.threads, config.pdf.threads,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(slotsPerPdf, config.pdf.maxQueuedTasks))
+        );
+
+        this.rendersCache = CacheHandyBuilder.cache(
+                7, TimeUnit.DAYS,
+                configs.getState(new CachingConfig()).ai.maxPdfRenders
+        );
     }
 
-    public boolean attachFiles(long contextId, List<FilesRecord> files) {
-        boolean result = false;
+    public CompletableFuture<Boolean> attachFiles(long contextId, List<FilesRecord> files) {
+        CompletableFuture<Boolean> future = pendingAttachments.compute(contextId, (k, previous) -> {
+            CompletableFuture<Boolean> result = previous == null ?
+                    CompletableFuture.completedFuture(true) :
+                    previous.handle((r, e) -> true);
 
-        for (FilesRecord record : files) {
-            String mime = record.getMimeType();
+            for (FilesRecord record : files)
+                result = result.thenCompose((ok) -> ok ? attachFile(record, contextId) : CompletableFuture.completedFuture(false));
 
-            boolean notExactly = false;
+            return result;
+        });
 
-            result = switch (mime) {
-                case "image/jpeg", "image/png", "image/gif", "image/webp" -> attachImages(List.of(record), contextId);
-                case "application/pdf" -> attachPDFs(List.of(record), contextId);
-                default -> {
-                    notExactly = true;
+        future.whenComplete((r, e) -> pendingAttachments.remove(contextId, future));
 
-                    yield false;
-                }
-            };
+        return future;
+    }
 
-            if (notExactly) {
-                String geneticType = mime.split("/")[0];
+    public CompletableFuture<Boolean> getPendingAttachments(long contextId) {
+        return pendingAttachments.getOrDefault(contextId, CompletableFuture.completedFuture(true));
+    }
 
-                if (geneticType.equals("text"))
-                    result = attachTexts(List.of(record), contextId);
-            }
+    // blocks until attachments queued for the context are pushed, false if any of them failed
+    public boolean awaitAttachments(long contextId) {
+        try {
+            return getPendingAttachments(contextId).get();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
 
-            if (!result)
-                return false;
+            return false;
         }
+    }
 
-        return result;
+    protected CompletableFuture<Boolean> attachFile(FilesRecord record, long contextId) {
+        String mime = record.getMimeType();
+
+        return switch (mime) {
+            case "image/jpeg", "image/png", "image/gif", "image/webp" -> CompletableFuture.completedFuture(attachImages(List.of(record), contextId));
+            case "application/pdf" -> attachPDF(record, contextId);
+            default -> CompletableFuture.completedFuture(mime.split("/")[0].equals("text") && attachTexts(List.of(record), contextId));
+        };
     }
 
     protected boolean sizeValid(List<FilesRecord> files) {
@@ -84,87 +130,175 @@ public class AiFileWorker {
         return true;
     }
 
-    protected boolean attachPDFs(List<FilesRecord> files, long contextId) {
-        ArrayList<FilesRecord> images = new ArrayList<>();
-        ArrayList<FilesRecord> texts = new ArrayList<>();
+    protected CompletableFuture<Boolean> attachPDF(FilesRecord record, long contextId) {
+        PdfRenderKey key = new PdfRenderKey(record.getOwnerId(), record.getChecksum(), config.pdf.dpi, config.pdf.maxPages);
+        PdfRender cached = rendersCache.getIfPresent(key);
 
-        for (FilesRecord record : files) {
-            Optional<File> optionalFile = filesManager.getFile(record);
+        if (cached != null) {
+            Optional<List<FilesRecord>> pages = getRecords(cached.pages());
+            Optional<List<FilesRecord>> text = getRecords(cached.text());
 
-            if (optionalFile.isEmpty())
-                return false;
+            if (pages.isPresent() && text.isPresent())
+                return CompletableFuture.completedFuture(attachTexts(text.get(), contextId) && (pages.get().isEmpty() || attachImages(pages.get(), contextId)));
 
-            try (PDDocument document = Loader.loadPDF(optionalFile.get())) {
-                PDFTextStripper pdfStripper = new PDFTextStripper();
-                PDFRenderer renderer = new PDFRenderer(document);
+            rendersCache.invalidate(key);
+        }
 
-                for (int page = 0; page < document.getNumberOfPages(); ++page) {
-                    BufferedImage image = renderer.renderImageWithDPI(page, 300, ImageType.RGB);
+        Optional<byte[]> optionalBytes = filesManager.readAllBytes(record);
 
-                    Optional<LimitedWithCallbackOutputStream> streamOptional = filesManager.registerAndOpenStream(record.getOwnerId(),
-                            record.getCreatedAt(), record.getExpiresAt(), record.getIsPublic(),
-                            "aiFileConverter", "image/png", record.getName() + " #" + (page + 1), record.getDescription()
-                    );
+        if (optionalBytes.isEmpty())
+            return CompletableFuture.completedFuture(false);
 
-                    if (streamOptional.isEmpty())
-                        return false;
+        byte[] bytes = optionalBytes.get();
+        CompletableFuture<Boolean> result;
 
-                    LimitedWithCallbackOutputStream stream = streamOptional.get();
-                    ImageIO.write(image, "PNG", stream);
+        // files saved for a render that didn't make it to the cache are deleted when the attachment fails
+        ConcurrentLinkedQueue<FilesRecord> saved = new ConcurrentLinkedQueue<>();
+        AtomicBoolean kept = new AtomicBoolean();
 
-                    Optional<String> fileId = filesManager.getRecordFromStream(stream).map(FilesRecord::getId); // get only fileId, because after close stream record change
-                    stream.close();
+        if (!renderSlots.tryAcquire(slotsPerPdf)) {
+            socketWorker.sendToUser(record.getOwnerId(), new AiAttachmentProgress(contextId, record.getId(), 0, 0, "failed"));
 
-                    if (fileId.isEmpty())
-                        return false;
+            return CompletableFuture.completedFuture(false);
+        }
 
-                    images.add(filesManager.getFileRecord(fileId.get()).orElseThrow());
-                }
+        try {
+            // text is cheap to extract, so it goes to the context before any page is rendered
+            result = CompletableFuture.supplyAsync(() -> extractText(record, bytes, saved), renderPool).thenCompose((extracted) -> {
+                if (!attachTexts(extracted.text(), contextId))
+                    return CompletableFuture.completedFuture(false);
+
+                return renderPages(record, bytes, extracted.pages(), contextId, saved).thenApply((pages) -> {
+                    rendersCache.put(key, new PdfRender(
+                            pages.stream().map(FilesRecord::getId).toList(),
+                            extracted.text().stream().map(FilesRecord::getId).toList()
+                    ));
+                    kept.set(true);
+
+                    return pages.isEmpty() || attachImages(pages, contextId);
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            result = CompletableFuture.completedFuture(false);
+        }
+
+        return result.exceptionally((e) -> {
+            e.printStackTrace();
 
-                String text = pdfStripper.getText(document);
+            return false;
+        }).whenComplete((ok, e) -> {
+            renderSlots.release(slotsPerPdf);
 
-                if (text != null && !text.isBlank()) {
-                    Optional<LimitedWithCallbackOutputStream> streamOptional = filesManager.registerAndOpenStream(record.getOwnerId(),
-                            record.getCreatedAt(), record.getExpiresAt(), record.getIsPublic(),
-                            "aiFileConverter", "text/plain", record.getName() + " [plain text]", record.getDescription()
-                    );
+            if (!ok && !kept.get())
+                saved.forEach((r) -> filesManager.delete(r.getId()));
 
-                    if (streamOptional.isEmpty())
-                        return false;
+            socketWorker.sendToUser(record.getOwnerId(),
+                    new AiAttachmentProgress(contextId, record.getId(), 0, 0, ok ? "attached" : "failed"));
+        });
+    }
 
-                    LimitedWithCallbackOutputStream stream = streamOptional.get();
+    protected ExtractedText extractText(FilesRecord record, byte[] bytes, Collection<FilesRecord> saved) {
+        try (PDDocument document = Loader.loadPDF(bytes)) {
+            int pages = Math.min(document.getNumberOfPages(), config.pdf.maxPages);
+
+            PDFTextStripper pdfStripper = new PDFTextStripper();
+            pdfStripper.setEndPage(pages);
+
+            String text = pdfStripper.getText(document);
+
+            if (text == null || text.isBlank())
+                return new ExtractedText(pages, List.of());
+
+            FilesRecord textRecord = saveFile(record, "text/plain", record.getName() + " [plain text]",
+                    (stream) -> stream.write(text.getBytes(StandardCharsets.UTF_8)));
+            saved.add(textRecord);
+
+            return new ExtractedText(pages, List.of(textRecord));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-                    Writer writer = new OutputStreamWriter(stream);
-                    BufferedWriter bufferedWriter = new BufferedWriter(writer);
+    // PDDocument is not thread safe, so every chunk of pages is rendered from its own copy
+    protected CompletableFuture<List<FilesRecord>> renderPages(FilesRecord record, byte[] bytes, int pages, long contextId, Collection<FilesRecord> saved) {
+        int chunkSize = Math.max(1, (pages + config.pdf.threads - 1) / config.pdf.threads);
+        AtomicInteger rendered = new AtomicInteger();
+        ArrayList<CompletableFuture<List<FilesRecord>>> chunks = new ArrayList<>();
 
-                    bufferedWriter.write(text);
+        for (int from = 0; from < pages; from += chunkSize) {
+            int start = from;
+            int end = Math.min(pages, from + chunkSize);
 
-                    Optional<String> fileId = filesManager.getRecordFromStream(stream).map(FilesRecord::getId);  // get only fileId, because after close stream record change
+            chunks.add(CompletableFuture.supplyAsync(() -> {
+                ArrayList<FilesRecord> result = new ArrayList<>();
 
-                    bufferedWriter.flush();
-                    bufferedWriter.close();
+                try (PDDocument document = Loader.loadPDF(bytes)) {
+                    PDFRenderer renderer = new PDFRenderer(document);
 
-                    if (fileId.isEmpty())
-                        return false;
+                    for (int page = start; page < end; page++) {
+                        BufferedImage image = renderer.renderImageWithDPI(page, config.pdf.dpi, ImageType.RGB);
 
-                    texts.add(filesManager.getFileRecord(fileId.get()).orElseThrow());
+                        // encode before opening the file stream, it holds the user's write lock until closed
+                        ByteArrayOutputStream png = new ByteArrayOutputStream();
+                        ImageIO.write(image, "PNG", png);
+
+                        FilesRecord pageRecord = saveFile(record, "image/png", record.getName() + " #" + (page + 1), png::writeTo);
+                        result.add(pageRecord);
+                        saved.add(pageRecord);
+
+                        socketWorker.sendToUser(record.getOwnerId(),
+                                new AiAttachmentProgress(contextId, record.getId(), rendered.incrementAndGet(), pages, "processing"));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
 
-            } catch (IOException e) {
-                e.printStackTrace();
+                return result;
+            }, renderPool));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+                .thenApply((v) -> chunks.stream()
+                        .flatMap((c) -> c.join().stream())
+                        .toList()
+                );
+    }
 
-                return false;
-            }
+    protected FilesRecord saveFile(FilesRecord source, String mimeType, String name, StreamWriter writer) throws IOException {
+        Optional<LimitedWithCallbackOutputStream> streamOptional = filesManager.registerAndOpenStream(source.getOwnerId(),
+                source.getCreatedAt(), source.getExpiresAt(), source.getIsPublic(),
+                "aiFileConverter", mimeType, name, source.getDescription()
+        );
+
+        if (streamOptional.isEmpty())
+            throw new IOException("Failed to open file stream");
+
+        LimitedWithCallbackOutputStream stream = streamOptional.get();
+        Optional<String> fileId = filesManager.getRecordFromStream(stream).map(FilesRecord::getId); // get only fileId, because after close stream record change
+
+        try (stream) {
+            writer.write(stream);
         }
 
-        boolean result = attachImages(images, contextId);
+        if (fileId.isEmpty())
+            throw new IOException("Failed to save file");
 
-        if (!result)
-            return false;
+        return filesManager.getFileRecord(fileId.get()).orElseThrow();
+    }
+
+    protected Optional<List<FilesRecord>> getRecords(List<String> ids) {
+        ArrayList<FilesRecord> records = new ArrayList<>();
+
+        for (String id : ids) {
+            Optional<FilesRecord> record = filesManager.getFileRecord(id);
 
-        result = attachTexts(texts, contextId);
+            if (record.isEmpty() || record.get().getChecksum() == null)
+                return Optional.empty();
 
-        return result;
+            records.add(record.get());
+        }
+
+        return Optional.of(records);
     }
 
     protected boolean attachTexts(List<FilesRecord> files, long contextId) {
@@ -172,18 +306,12 @@ public class AiFileWorker {
             return false;
 
         for (FilesRecord record : files) {
-            Optional<File> fileOptional = filesManager.getFile(record);
+            Optional<byte[]> bytesOptional = filesManager.readAllBytes(record);
 
-            if (fileOptional.isEmpty())
+            if (bytesOptional.isEmpty())
                 return false;
 
-            String data;
-
-            try {
-                data = config.fileAttachmentTip.replace("{_CONTENT_}", Files.readString(fileOptional.get().toPath()));
-            } catch (IOException e) {
-                return false;
-            }
+            String data = config.fileAttachmentTip.replace("{_CONTENT_}", new String(bytesOptional.get(), StandardCharsets.UTF_8));
 
             boolean result = aiWorker.pushMessage(contextId, "system", List.of(
                     ContentPart.textContentPart(data)
@@ -213,20 +341,12 @@ public class AiFileWorker {
             parts = new ArrayList<>();
 
             for (FilesRecord record : files) {
-                Optional<File> fileOptional = filesManager.getFile(record);
+                Optional<byte[]> bytesOptional = filesManager.readAllBytes(record);
 
-                if (fileOptional.isEmpty())
+                if (bytesOptional.isEmpty())
                     continue;
 
-                String baseString;
-
-                try {
-                    baseString = Base64.getEncoder().encodeToString(Files.readAllBytes(fileOptional.get().toPath()));
-                } catch (IOException e) {
-                    e.printStackTrace();
-
-                    continue;
-                }
+                String baseString = Base64.getEncoder().encodeToString(bytesOptional.get());
 
                 parts.add(ContentPart.imageUrlContentPart("data:" + record.getMimeType() + ";base64," + baseString));
             }
@@ -234,4 +354,14 @@ public class AiFileWorker {
 
         return aiWorker.pushMessage(contextId, "user", parts);
     }
+
+    protected interface StreamWriter {
+        void write(OutputStream stream) throws IOException;
+    }
+
+    protected record ExtractedText(int pages, List<FilesRecord> text) {}
+
+    protected record PdfRenderKey(int ownerId, String checksum, int dpi, int maxPages) {}
+
+    protected record PdfRender(List<String> pages, List<String> text) {}
 }
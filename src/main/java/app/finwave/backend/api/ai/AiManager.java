@@ -1,6 +1,8 @@
 package app.finwave.backend.api.ai;
 
+import app.finwave.backend.api.ai.context.ContextWindow;
 import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.AiConfig;
 import app.finwave.backend.config.general.CachingConfig;
 import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.AiMessagesRecord;
@@ -12,7 +14,6 @@ import io.github.stefanbratanov.jvm.openai.Usage;
 import org.flywaydb.core.internal.util.Pair;
 import org.jooq.JSON;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
@@ -23,18 +24,21 @@ public class AiManager {
     protected AiDatabase database;
     protected CachingConfig.Ai cachingConfig;
 
-    protected LoadingCache<Long, ArrayList<AiMessagesRecord>> contextMessagesCache;
+    protected AiConfig.Context contextConfig;
+
+    protected LoadingCache<Long, ContextWindow> contextMessagesCache;
     protected LoadingCache<Pair<Integer, Long>, Boolean> userOwnContextCache;
 
     @Inject
     public AiManager(DatabaseWorker worker, Configs configs) {
         this.database = worker.get(AiDatabase.class);
         this.cachingConfig = configs.getState(new CachingConfig()).ai;
+        this.contextConfig = configs.getState(new AiConfig()).context;
 
         this.contextMessagesCache = CacheHandyBuilder.loading(
                 1, TimeUnit.DAYS,
                 cachingConfig.maxContexts,
-                (contextId) -> new ArrayList<>(database.getMessages(contextId))
+                (contextId) -> new ContextWindow(contextConfig, database.getMessages(contextId))
         );
 
         this.userOwnContextCache = CacheHandyBuilder.loading(
@@ -69,24 +73,28 @@ public class AiManager {
         if (pushed.isEmpty())
             return false;
 
-        if (usage != null)
-            database.addUsedTokens(contextId, usage.completionTokens(), usage.promptTokens());
+        addUsedTokens(contextId, usage);
 
-        ArrayList<AiMessagesRecord> cacheRecords = contextMessagesCache.getIfPresent(contextId);
+        ContextWindow window = contextMessagesCache.getIfPresent(contextId);
 
-        if (cacheRecords != null)
-            cacheRecords.add(pushed.get());
+        if (window != null)
+            window.add(pushed.get());
 
         return true;
     }
 
-    public List<AiMessagesRecord> getMessages(long contextId) {
+    public void addUsedTokens(long contextId, Usage usage) {
+        if (usage != null)
+            database.addUsedTokens(contextId, usage.completionTokens(), usage.promptTokens());
+    }
+
+    public Optional<ContextWindow> getContext(long contextId) {
         try {
-            return contextMessagesCache.get(contextId);
+            return Optional.of(contextMessagesCache.get(contextId));
         } catch (ExecutionException e) {
             e.printStackTrace();
         }
 
-        return List.of();
+        return Optional.empty();
     }
 }
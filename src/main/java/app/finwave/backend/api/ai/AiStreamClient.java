@@ -0,0 +1,173 @@
+package app.finwave.backend.api.ai;
+
+import app.finwave.backend.config.general.AiConfig;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.stefanbratanov.jvm.openai.CreateChatCompletionRequest;
+import io.github.stefanbratanov.jvm.openai.ToolCall;
+import io.github.stefanbratanov.jvm.openai.Usage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// the client library fails on tool call chunks without a type, so streamed completions are read as plain json here
+public class AiStreamClient {
+    // same settings the client library serializes its request types with
+    protected static final ObjectMapper MAPPER = JsonMapper.builder()
+            .addModule(new Jdk8Module())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .serializationInclusion(JsonInclude.Include.NON_ABSENT)
+            .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .build();
+
+    protected HttpClient client = HttpClient.newHttpClient();
+    protected URI endpoint;
+    protected ArrayList<String> headers = new ArrayList<>();
+
+    public AiStreamClient(AiConfig config) {
+        String baseUrl = config.customUrl.isBlank() ? "https://api.openai.com/v1/" : config.customUrl;
+
+        if (!baseUrl.endsWith("/"))
+            baseUrl += "/";
+
+        this.endpoint = URI.create(baseUrl).resolve("chat/completions");
+
+        headers.addAll(List.of("Authorization", "Bearer " + config.token, "Content-Type", "application/json"));
+
+        if (!config.organization.isBlank())
+            headers.addAll(List.of("OpenAI-Organization", config.organization));
+
+        if (!config.project.isBlank())
+            headers.addAll(List.of("OpenAI-Project", config.project));
+    }
+
+    public StreamedCompletion stream(CreateChatCompletionRequest request, Consumer<String> onDelta) throws IOException {
+        HttpRequest httpRequest = HttpRequest.newBuilder(endpoint)
+                .headers(headers.toArray(String[]::new))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(request)))
+                .build();
+
+        HttpResponse<Stream<String>> response;
+
+        try {
+            response = client.send(httpRequest, HttpResponse.BodyHandlers.ofLines());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException(e);
+        }
+
+        StringBuilder content = new StringBuilder();
+        TreeMap<Integer, ToolCallBuilder> toolCalls = new TreeMap<>();
+        Usage usage = null;
+
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() != 200)
+                throw new IOException("Chat completion failed: " + response.statusCode() + " " + lines.collect(Collectors.joining("\n")));
+
+            Iterator<String> iterator = lines.iterator();
+
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+
+                if (!line.startsWith("data:"))
+                    continue;
+
+                String data = line.substring(5).trim();
+
+                if (data.equals("[DONE]"))
+                    break;
+
+                JsonObject chunk = JsonParser.parseString(data).getAsJsonObject();
+
+                if (present(chunk, "usage")) {
+                    JsonObject raw = chunk.getAsJsonObject("usage");
+
+                    usage = new Usage(
+                            raw.get("completion_tokens").getAsInt(),
+                            raw.get("prompt_tokens").getAsInt(),
+                            raw.get("total_tokens").getAsInt()
+                    );
+                }
+
+                JsonArray choices = present(chunk, "choices") ? chunk.getAsJsonArray("choices") : null;
+
+                if (choices == null || choices.isEmpty() || !present(choices.get(0).getAsJsonObject(), "delta"))
+                    continue;
+
+                JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+
+                if (present(delta, "content")) {
+                    String text = delta.get("content").getAsString();
+
+                    if (!text.isEmpty()) {
+                        content.append(text);
+                        onDelta.accept(text);
+                    }
+                }
+
+                if (!present(delta, "tool_calls"))
+                    continue;
+
+                // the first chunk of a call carries its id and name, the following ones only append arguments
+                for (JsonElement element : delta.getAsJsonArray("tool_calls")) {
+                    JsonObject call = element.getAsJsonObject();
+                    int index = present(call, "index") ? call.get("index").getAsInt() : Math.max(0, toolCalls.size() - 1);
+
+                    ToolCallBuilder builder = toolCalls.computeIfAbsent(index, (i) -> new ToolCallBuilder());
+
+                    if (present(call, "id"))
+                        builder.id = call.get("id").getAsString();
+
+                    if (!present(call, "function"))
+                        continue;
+
+                    JsonObject function = call.getAsJsonObject("function");
+
+                    if (present(function, "name"))
+                        builder.name.append(function.get("name").getAsString());
+
+                    if (present(function, "arguments"))
+                        builder.arguments.append(function.get("arguments").getAsString());
+                }
+            }
+        }
+
+        return new StreamedCompletion(
+                content.isEmpty() ? null : content.toString(),
+                toolCalls.values().stream().map(ToolCallBuilder::build).toList(),
+                usage
+        );
+    }
+
+    protected static boolean present(JsonObject object, String name) {
+        return object.has(name) && !object.get(name).isJsonNull();
+    }
+
+    protected static class ToolCallBuilder {
+        protected String id;
+        protected StringBuilder name = new StringBuilder();
+        protected StringBuilder arguments = new StringBuilder();
+
+        protected ToolCall build() {
+            return ToolCall.functionToolCall(id, new ToolCall.FunctionToolCall.Function(name.toString(), arguments.toString(), null));
+        }
+    }
+
+    public record StreamedCompletion(String content, List<ToolCall> toolCalls, Usage usage) {}
+}
@@ -1,11 +1,12 @@
 package app.finwave.backend.api.ai;
 
 import app.finwave.backend.api.ai.content.ContentMeta;
+import app.finwave.backend.api.ai.context.ContextWindow;
 import app.finwave.backend.api.ai.tools.AiTools;
 import app.finwave.backend.api.ai.tools.ArrayDeserializer;
 import app.finwave.backend.api.ApiResponse;
-import app.finwave.backend.api.ai.tools.ChatMessagesBuilder;
 import app.finwave.backend.api.event.WebSocketWorker;
+import app.finwave.backend.api.event.messages.response.AiAnswerDelta;
 import app.finwave.backend.api.event.messages.response.AiInternalContextUpdate;
 import app.finwave.backend.api.files.FilesManager;
 import app.finwave.backend.api.files.LimitedWithCallbackOutputStream;
@@ -39,7 +40,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import static app.finwave.backend.api.ai.tools.ContentPartParser.contentToJson;
 import static app.finwave.backend.api.ai.tools.ContentPartParser.jsonToContent;
@@ -57,6 +59,13 @@ public class AiWorker {
 
     protected WebSocketWorker webSocketWorker;
 
+    protected AiStreamClient streamClient;
+    // shared by all users, like the PDF render pool it refuses asks instead of queueing them without limit
+    protected ThreadPoolExecutor asksPool;
+    // asks accepted and not answered yet, running or queued; the pool's queue has room for all that aren't running
+    protected Semaphore asksSlots;
+    protected ExecutorService toolsPool;
+
     @Inject
     public AiWorker(Configs configs, AiManager manager, AiTools aiTools, WebSocketWorker webSocketWorker) {
         this.config = configs.getState(new AiConfig());
@@ -81,6 +90,15 @@ public class AiWorker {
         this.ai = builder.build();
         this.toolsList = aiTools.getTools();
         this.manager = manager;
+
+        this.streamClient = new AiStreamClient(config);
+        this.asksSlots = new Semaphore(config.streaming.threads + config.streaming.maxQueuedAsks);
+        this.asksPool = new ThreadPoolExecutor(
+                config.streaming.threads, config.streaming.threads,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.streaming.maxQueuedAsks))
+        );
+        this.toolsPool = Executors.newFixedThreadPool(config.streaming.toolsThreads);
     }
 
     public Optional<Long> initContext(UsersSessionsRecord session, String additionalSystemMessage) {
@@ -106,10 +124,8 @@ public class AiWorker {
         return result;
     }
 
-    protected List<ToolCall> checkUndoneRequests(List<AiMessagesRecord> messages) {
-        AiMessagesRecord lastMessage = messages.get(messages.size() - 1);
-
-        if (!lastMessage.getRole().equals("assistant"))
+    protected List<ToolCall> checkUndoneRequests(AiMessagesRecord lastMessage) {
+        if (lastMessage == null || !lastMessage.getRole().equals("assistant"))
             return List.of();
 
         ContentMeta meta = jsonToContent(lastMessage.getContent())
@@ -131,69 +147,146 @@ public class AiWorker {
     }
 
     protected boolean runTools(List<ToolCall> toolCalls, long contextId, UsersSessionsRecord session) {
-        boolean result = false;
-
         Gson g = ApiResponse.GSON
                 .newBuilder()
                 .registerTypeAdapter(new TypeToken<Map<String, String>>(){}.getType(), new ArrayDeserializer())
                 .create();
 
-        for (ToolCall toolCall : toolCalls) {
-            if (toolCall instanceof ToolCall.FunctionToolCall functionCall) {
-                String name = functionCall.function().name();
-
-                Map<String, String> args = g.fromJson(functionCall.function().arguments(), new TypeToken<Map<String, String>>(){}.getType());
+        List<ToolCall.FunctionToolCall> functionCalls = toolCalls.stream()
+                .filter((c) -> c instanceof ToolCall.FunctionToolCall)
+                .map((c) -> (ToolCall.FunctionToolCall) c)
+                .toList();
+
+        if (functionCalls.isEmpty())
+            return false;
+
+        // calls from one assistant message can't depend on each other's results, so they run concurrently
+        List<CompletableFuture<Object>> results = functionCalls.size() == 1 ?
+                List.of(CompletableFuture.completedFuture(runTool(g, functionCalls.get(0), session))) :
+                functionCalls.stream()
+                        .map((c) -> CompletableFuture.supplyAsync(() -> runTool(g, c, session), toolsPool))
+                        .toList();
+
+        for (int i = 0; i < functionCalls.size(); i++) {
+            manager.pushMessage(contextId, "tool", contentToJson(List.of(
+                    new ContentPart.TextContentPart(ApiResponse.GSON.toJson(results.get(i).join())),
+                    new ContentMeta(null, functionCalls.get(i).id())
+            )), null);
+        }
 
-                Object toolResult = aiTools.run(name, session, args);
+        return true;
+    }
 
-                manager.pushMessage(contextId, "tool", contentToJson(List.of(
-                        new ContentPart.TextContentPart(ApiResponse.GSON.toJson(toolResult)),
-                        new ContentMeta(null, toolCall.id())
-                )), null);
+    protected Object runTool(Gson g, ToolCall.FunctionToolCall functionCall, UsersSessionsRecord session) {
+        String name = functionCall.function().name();
 
-                result = true;
-            }
-        }
+        Map<String, String> args = g.fromJson(functionCall.function().arguments(), new TypeToken<Map<String, String>>(){}.getType());
 
-        return result;
+        return aiTools.run(name, session, args);
     }
 
-    protected String ask(long contextId, int userId, UsersSessionsRecord session) {
-        List<AiMessagesRecord> messages = manager.getMessages(contextId);
-        List<ToolCall> undoneRequests = checkUndoneRequests(messages);
+    // onDelta is null for a blocking completion, otherwise the answer is streamed into it
+    protected String ask(long contextId, int userId, UsersSessionsRecord session, Consumer<String> onDelta) {
+        Optional<ContextWindow> window = manager.getContext(contextId);
+
+        if (window.isEmpty())
+            return null;
+
+        List<ToolCall> undoneRequests = checkUndoneRequests(window.get().last());
 
         if (!undoneRequests.isEmpty())
             runTools(undoneRequests, contextId, session);
 
-        ChatCompletion chatCompletion = ai.chatClient().createChatCompletion(createChatCompletionRequest(config.includeTools, messages));
-        Usage usage = chatCompletion.usage();
-        ChatCompletion.Choice.Message message = chatCompletion.choices().get(0).message();
+        summarize(contextId, window.get());
+
+        List<ChatMessage> messages = window.get().build();
+
+        String content;
+        List<ToolCall> toolCalls;
+        Usage usage;
+
+        if (onDelta == null) {
+            ChatCompletion chatCompletion = ai.chatClient().createChatCompletion(createChatCompletionRequest(config.includeTools, messages, false));
+            ChatCompletion.Choice.Message message = chatCompletion.choices().get(0).message();
+
+            content = message.content();
+            toolCalls = message.toolCalls();
+            usage = chatCompletion.usage();
+        }else {
+            AiStreamClient.StreamedCompletion completion;
+
+            try {
+                completion = streamClient.stream(createChatCompletionRequest(config.includeTools, messages, true), onDelta);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            content = completion.content();
+            toolCalls = completion.toolCalls();
+            usage = completion.usage();
+        }
 
         ArrayList<Object> contents = new ArrayList<>();
 
-        if (message.content() != null)
-            contents.add(ContentPart.textContentPart(message.content()));
+        if (content != null)
+            contents.add(ContentPart.textContentPart(content));
 
-        if (message.toolCalls() != null && !message.toolCalls().isEmpty())
-            contents.add(new ContentMeta(message.toolCalls().stream().map(G.GSON::toJsonTree).toList(), null));
+        if (toolCalls != null && !toolCalls.isEmpty())
+            contents.add(new ContentMeta(toolCalls.stream().map(G.GSON::toJsonTree).toList(), null));
 
         boolean result = manager.pushMessage(contextId, "assistant", contentToJson(contents), usage);
 
         if (!result)
             return null;
 
-        if (message.toolCalls() != null && runTools(message.toolCalls(), contextId, session)) {
-            if (message.content() != null)
+        if (toolCalls != null && runTools(toolCalls, contextId, session)) {
+            // streamed text already reached the client as deltas
+            if (content != null && onDelta == null)
                 try {
-                    webSocketWorker.sendToUser(userId, new AiInternalContextUpdate(contextId, message.content(), "assistant")).get();
+                    webSocketWorker.sendToUser(userId, new AiInternalContextUpdate(contextId, content, "assistant")).get();
                 } catch (InterruptedException | ExecutionException e) {
                     e.printStackTrace();
                 }
 
-            return ask(contextId, userId, session);
+            return ask(contextId, userId, session, onDelta);
         }
 
-        return message.content();
+        return content;
+    }
+
+    // folds turns that no longer fit the token budget into the context summary
+    protected void summarize(long contextId, ContextWindow window) {
+        ContextWindow.PendingSummary pending = window.pendingSummary();
+
+        if (pending == null)
+            return;
+
+        String transcript = pending.previousSummary() != null ?
+                "Previous summary: " + pending.previousSummary() + "\n\n" + pending.transcript() :
+                pending.transcript();
+
+        try {
+            ChatCompletion completion = ai.chatClient().createChatCompletion(CreateChatCompletionRequest.newBuilder()
+                    .messages(List.of(
+                            ChatMessage.systemMessage(config.context.summaryPrompt),
+                            ChatMessage.userMessage(transcript)
+                    ))
+                    .model(config.model)
+                    .maxTokens(config.context.maxSummaryTokens)
+                    .build()
+            );
+
+            String summary = completion.choices().get(0).message().content();
+
+            if (summary == null || summary.isBlank())
+                return;
+
+            manager.addUsedTokens(contextId, completion.usage());
+            window.setSummary(summary, pending.until());
+        } catch (Exception e) {
+            // the turns are still dropped, the answer just misses their summary
+            log.warn("AI context #{} summarization failed", contextId, e);
+        }
     }
 
     public String ask(long contextId, UsersSessionsRecord session, List<ContentPart> contentParts) {
@@ -202,7 +295,47 @@ public class AiWorker {
         if (contentParts != null && !contentParts.isEmpty())
             pushMessage(contextId, "user", contentParts);
 
-        return ask(contextId, session.getUserId(), session);
+        return ask(contextId, session.getUserId(), session, null);
+    }
+
+    // answers in background once ready completes, the answer reaches the user as deltas over websocket.
+    // empty if too many asks are in flight
+    public Optional<String> askStreaming(long contextId, UsersSessionsRecord session, List<ContentPart> contentParts, CompletableFuture<?> ready) {
+        log.debug("AI streaming in #{} context for user #{}", contextId, session.getUserId());
+
+        if (!asksSlots.tryAcquire()) {
+            log.warn("AI asks are full, refusing #{} context of user #{}", contextId, session.getUserId());
+
+            return Optional.empty();
+        }
+
+        String requestId = UUID.randomUUID().toString();
+        int userId = session.getUserId();
+
+        ready.handle((r, e) -> null).thenRunAsync(() -> {
+            DeltaSender sender = new DeltaSender(requestId, contextId, userId);
+            String answer = null;
+
+            try {
+                if (contentParts != null && !contentParts.isEmpty())
+                    pushMessage(contextId, "user", contentParts);
+
+                answer = ask(contextId, userId, session, sender);
+            } catch (Exception e) {
+                log.error("AI streaming failed in #{} context", contextId, e);
+            }
+
+            sender.flush();
+            webSocketWorker.sendToUser(userId, new AiAnswerDelta(requestId, contextId, answer, answer != null ? "done" : "failed"));
+        }, asksPool).whenComplete((r, e) -> {
+            asksSlots.release();
+
+            // the pool refused it, e.g. a slot was freed before its thread took the next ask
+            if (e != null)
+                webSocketWorker.sendToUser(userId, new AiAnswerDelta(requestId, contextId, null, "failed"));
+        });
+
+        return Optional.of(requestId);
     }
 
     public boolean pushMessage(long contextId, String role, List<ContentPart> contentParts) {
@@ -212,13 +345,16 @@ public class AiWorker {
         );
     }
 
-    protected CreateChatCompletionRequest createChatCompletionRequest(boolean includeTools, List<AiMessagesRecord> messages) {
+    protected CreateChatCompletionRequest createChatCompletionRequest(boolean includeTools, List<ChatMessage> messages, boolean stream) {
         CreateChatCompletionRequest.Builder builder = CreateChatCompletionRequest.newBuilder();
 
         if (includeTools)
             builder.tools(toolsList);
 
-        builder.messages(new ChatMessagesBuilder(messages).build())
+        if (stream)
+            builder.stream(true).streamOptions(CreateChatCompletionRequest.StreamOptions.withUsageIncluded());
+
+        builder.messages(messages)
                 .model(config.model)
                 .temperature(config.temperature)
                 .maxTokens(config.maxTokensPerRequest)
@@ -228,4 +364,37 @@ public class AiWorker {
 
         return builder.build();
     }
+
+    protected class DeltaSender implements Consumer<String> {
+        protected final String requestId;
+        protected final long contextId;
+        protected final int userId;
+
+        protected StringBuilder pending = new StringBuilder();
+        protected long lastFlush = System.currentTimeMillis();
+
+        public DeltaSender(String requestId, long contextId, int userId) {
+            this.requestId = requestId;
+            this.contextId = contextId;
+            this.userId = userId;
+        }
+
+        @Override
+        public void accept(String delta) {
+            pending.append(delta);
+
+            if (pending.length() >= config.streaming.deltaFlushChars || System.currentTimeMillis() - lastFlush >= config.streaming.deltaFlushMillis)
+                flush();
+        }
+
+        public void flush() {
+            lastFlush = System.currentTimeMillis();
+
+            if (pending.isEmpty())
+                return;
+
+            webSocketWorker.sendToUser(userId, new AiAnswerDelta(requestId, contextId, pending.toString(), "streaming"));
+            pending.setLength(0);
+        }
+    }
 }
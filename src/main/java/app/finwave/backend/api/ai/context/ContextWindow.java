@@ -0,0 +1,131 @@
+package app.finwave.backend.api.ai.context;
+
+import app.finwave.backend.api.ai.content.ContentMeta;
+import app.finwave.backend.api.ai.tools.ChatMessagesBuilder;
+import app.finwave.backend.config.general.AiConfig;
+import app.finwave.backend.jooq.tables.records.AiMessagesRecord;
+import io.github.stefanbratanov.jvm.openai.ChatMessage;
+import io.github.stefanbratanov.jvm.openai.ContentPart;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static app.finwave.backend.api.ai.tools.ContentPartParser.jsonToContent;
+
+// messages of one context, parsed once when added; the prompt is built from the newest turns that fit the token budget
+public class ContextWindow {
+    protected static final ChatMessagesBuilder builder = new ChatMessagesBuilder(List.of());
+
+    protected AiConfig.Context config;
+    protected ArrayList<Entry> entries = new ArrayList<>();
+
+    // entries from 1 until summarizedUntil are covered by the summary
+    protected String summary;
+    protected int summaryTokens;
+    protected int summarizedUntil = 1;
+
+    public ContextWindow(AiConfig.Context config, List<AiMessagesRecord> records) {
+        this.config = config;
+
+        for (AiMessagesRecord record : records)
+            add(record);
+    }
+
+    public synchronized void add(AiMessagesRecord record) {
+        StringBuilder text = new StringBuilder();
+        int images = 0;
+
+        for (Object content : jsonToContent(record.getContent())) {
+            if (content instanceof ContentPart.TextContentPart part) {
+                text.append(part.text());
+            }else if (content instanceof ContentMeta meta && meta.toolCalls() != null) {
+                meta.toolCalls().forEach((c) -> text.append(c.toString()));
+            }else if (content instanceof ContentPart) {
+                images++;
+            }
+        }
+
+        int tokens = config.tokensPerMessage +
+                (text.length() + config.charsPerToken - 1) / config.charsPerToken +
+                images * config.tokensPerImage;
+
+        entries.add(new Entry(record, builder.buildMessage(record), text.toString(), tokens));
+    }
+
+    public synchronized AiMessagesRecord last() {
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1).record();
+    }
+
+    public synchronized List<ChatMessage> build() {
+        if (entries.isEmpty())
+            return List.of();
+
+        int cut = cutIndex();
+        ArrayList<ChatMessage> messages = new ArrayList<>(entries.size() - cut + 2);
+
+        messages.add(entries.get(0).message());
+
+        if (cut > 1 && summary != null)
+            messages.add(ChatMessage.systemMessage(config.summaryTip.replace("{_SUMMARY_}", summary)));
+
+        for (int i = cut; i < entries.size(); i++)
+            messages.add(entries.get(i).message());
+
+        return messages;
+    }
+
+    // turns dropped from the prompt but not summarized yet, null if there are none or summaries are disabled
+    public synchronized PendingSummary pendingSummary() {
+        if (!config.summarize || entries.isEmpty())
+            return null;
+
+        int cut = cutIndex();
+
+        if (cut <= summarizedUntil)
+            return null;
+
+        String transcript = entries.subList(summarizedUntil, cut)
+                .stream()
+                .filter((e) -> !e.text().isBlank())
+                .map((e) -> e.record().getRole() + ": " + e.text())
+                .collect(Collectors.joining("\n"));
+
+        return new PendingSummary(summary, transcript, cut);
+    }
+
+    public synchronized void setSummary(String summary, int until) {
+        this.summary = summary;
+        this.summaryTokens = (summary.length() + config.charsPerToken - 1) / config.charsPerToken;
+        this.summarizedUntil = until;
+    }
+
+    // the first message is the base system prompt and always stays; tool results stay with the call that requested them
+    protected int cutIndex() {
+        int budget = config.maxPromptTokens - entries.get(0).tokens() - (summary != null ? summaryTokens : 0);
+        int cut = entries.size();
+        int blockTokens = 0;
+
+        for (int i = entries.size() - 1; i >= 1; i--) {
+            Entry entry = entries.get(i);
+            blockTokens += entry.tokens();
+
+            if (entry.record().getRole().equals("tool"))
+                continue;
+
+            // the newest turn is kept even when it alone exceeds the budget
+            if (budget - blockTokens < 0 && cut != entries.size())
+                break;
+
+            budget -= blockTokens;
+            blockTokens = 0;
+            cut = i;
+        }
+
+        return cut;
+    }
+
+    public record Entry(AiMessagesRecord record, ChatMessage message, String text, int tokens) {}
+
+    public record PendingSummary(String previousSummary, String transcript, int until) {}
+}
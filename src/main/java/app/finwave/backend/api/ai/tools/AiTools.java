@@ -45,6 +45,8 @@ public class AiTools {
     protected NotificationApi notificationApi;
     protected CategoryBudgetApi categoryBudgetApi;
 
+    protected ManagerTools managerTools;
+
     @Inject
     public AiTools(TransactionApi transactionApi,
                    CategoryApi categoryApi,
@@ -56,7 +58,8 @@ public class AiTools {
                    AccountFolderApi accountFolderApi,
                    AccountApi accountApi,
                    NotificationApi notificationApi,
-                   CategoryBudgetApi categoryBudgetApi
+                   CategoryBudgetApi categoryBudgetApi,
+                   ManagerTools managerTools
     ) {
         this.transactionApi = transactionApi;
         this.categoryApi = categoryApi;
@@ -70,6 +73,8 @@ public class AiTools {
         this.notificationApi = notificationApi;
         this.categoryBudgetApi = categoryBudgetApi;
 
+        this.managerTools = managerTools;
+
         buildTools();
     }
 
@@ -112,20 +117,22 @@ public class AiTools {
                 Parameter.of("expression", "string", "Expression to calculate", true)
         );
 
-        function("get_transactions", "Get user's transactions. Sorted by date, new ones first", transactionApi::getTransactions,
+        function("get_transactions", "Get user's transactions. Sorted by date, new ones first", (FunctionExecutor) managerTools::getTransactions,
                 Parameter.of("count", "integer", "Count of transaction to fetch", true),
                 Parameter.of("offset", "integer", "Offset. 0 - without it", false),
-                Parameter.of("categoryIds", "array>integer", "Filter by categories ids", false),
-                Parameter.of("accountIds", "array>integer", "Filter by accounts ids", false),
+                Parameter.of("cursor", "string", "nextCursor from the previous page, faster than offset", false),
+                Parameter.of("categoriesIds", "array>integer", "Filter by categories ids", false),
+                Parameter.of("accountsIds", "array>integer", "Filter by accounts ids", false),
                 Parameter.of("currenciesIds", "array>integer", "Filter by currencies ids", false),
                 Parameter.of("fromTime", "string", "Filter by time: from what moment (example: 2022-12-03T10:15:30+01:00)", false),
                 Parameter.of("toTime", "string", "Filter by time: until when (format like in fromTime)", false),
-                Parameter.of("description", "string", "Filter by description", false)
+                Parameter.of("description", "string", "Filter by description", false),
+                Parameter.of("descriptionMode", "string", "How to match description: contains (default), prefix, fuzzy or ranked (fuzzy, most similar first)", false)
         );
 
-        function("get_transactions_count", "Get user's transactions count", transactionApi::getTransactionsCount,
-                Parameter.of("categoryIds", "array>integer", "Filter by category ids", false),
-                Parameter.of("accountIds", "array>integer", "Filter by accounts ids", false),
+        function("get_transactions_count", "Get user's transactions count", (FunctionExecutor) managerTools::getTransactionsCount,
+                Parameter.of("categoriesIds", "array>integer", "Filter by category ids", false),
+                Parameter.of("accountsIds", "array>integer", "Filter by accounts ids", false),
                 Parameter.of("currenciesIds", "array>integer", "Filter by currencies ids", false),
                 Parameter.of("fromTime", "string", "Filter by time: from what moment (example: 2022-12-03T10:15:30+01:00)", false),
                 Parameter.of("toTime", "string", "Filter by time: until when (format like in fromTime)", false),
@@ -219,18 +226,18 @@ public class AiTools {
 
         function("get_recurring_transactions", "Get all user's recurring transactions rules", recurringTransactionApi::getList);
 
-        function("get_analytics_by_months", "Get analytics summary by months (use it if you need to summarize transactions by month)", analyticsApi::getAnalyticsByMonths,
+        function("get_analytics_by_months", "Get analytics summary by months (use it if you need to summarize transactions by month)", (FunctionExecutor) managerTools::getAnalyticsByMonths,
                 Parameter.of("categoriesIds", "array>integer", "Filter by categories ids", false),
-                Parameter.of("accountIds", "array>integer", "Filter by accounts ids", false),
+                Parameter.of("accountsIds", "array>integer", "Filter by accounts ids", false),
                 Parameter.of("currenciesIds", "array>integer", "Filter by currencies ids", false),
                 Parameter.of("fromTime", "string", "Filter by time: from what moment (example: 2022-12-03T10:15:30+01:00)", false),
                 Parameter.of("toTime", "string", "Filter by time: until when (format like in fromTime)", false),
                 Parameter.of("description", "string", "Filter by description", false)
         );
 
-        function("get_analytics_by_days", "Get analytics summary by days (use it if you need to summarize transactions by days)", analyticsApi::getAnalyticsByDays,
+        function("get_analytics_by_days", "Get analytics summary by days (use it if you need to summarize transactions by days)", (FunctionExecutor) managerTools::getAnalyticsByDays,
                 Parameter.of("categoriesIds", "array>integer", "Filter by categories ids", false),
-                Parameter.of("accountIds", "array>integer", "Filter by accounts ids", false),
+                Parameter.of("accountsIds", "array>integer", "Filter by accounts ids", false),
                 Parameter.of("currenciesIds", "array>integer", "Filter by currencies ids", false),
                 Parameter.of("fromTime", "string", "Filter by time: from what moment (example: 2022-12-03T10:15:30+01:00)", false),
                 Parameter.of("toTime", "string", "Filter by time: until when (format like in fromTime)", false),
@@ -26,7 +26,7 @@ public class ChatMessagesBuilder {
         return this;
     }
 
-    protected ChatMessage buildMessage(AiMessagesRecord r) {
+    public ChatMessage buildMessage(AiMessagesRecord r) {
         switch (r.getRole()) {
             case "system" -> {
                 ContentPart.TextContentPart textContentPart = jsonToContent(r.getContent())
@@ -0,0 +1,61 @@
+package app.finwave.backend.api.ai.tools;
+
+import app.finwave.backend.api.transaction.filter.DescriptionSearchMode;
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import app.finwave.backend.utils.params.InvalidParameterException;
+import app.finwave.backend.utils.params.ParamsValidator;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// typed view over the raw arguments of a function call, every value is parsed once
+public class FunctionArgs {
+    protected Map<String, String> raw;
+
+    public FunctionArgs(Map<String, String> raw) {
+        this.raw = raw != null ? raw : Map.of();
+    }
+
+    public Optional<String> string(String name) {
+        return Optional.ofNullable(raw.get(name)).filter((v) -> !v.isBlank());
+    }
+
+    public int integer(String name, int min, int max, int defaultValue) {
+        return ParamsValidator.integer(raw.get(name), name)
+                .range(min, max)
+                .optional()
+                .orElse(defaultValue);
+    }
+
+    public Optional<OffsetDateTime> time(String name) {
+        try {
+            return string(name).map(OffsetDateTime::parse);
+        } catch (DateTimeParseException e) {
+            throw new InvalidParameterException(name);
+        }
+    }
+
+    public List<Long> ids(String name) {
+        return string(name)
+                .map((v) -> Arrays.stream(v.split(","))
+                        .map((id) -> ParamsValidator.longV(id.trim(), name).range(1, Long.MAX_VALUE).require())
+                        .toList())
+                .orElse(null);
+    }
+
+    public TransactionsFilter filter() {
+        return new TransactionsFilter(
+                ids("categoriesIds"),
+                ids("accountsIds"),
+                ids("currenciesIds"),
+                time("fromTime").orElse(null),
+                time("toTime").orElse(null),
+                string("description").orElse(null),
+                DescriptionSearchMode.parse(string("descriptionMode").orElse(null))
+        );
+    }
+}
@@ -0,0 +1,10 @@
+package app.finwave.backend.api.ai.tools;
+
+import java.util.List;
+
+// rows share one header instead of repeating field names in every object, which keeps long lists short in the prompt
+public record FunctionTableResult(List<String> columns, List<List<Object>> rows, String nextCursor) {
+    public FunctionTableResult(List<String> columns, List<List<Object>> rows) {
+        this(columns, rows, null);
+    }
+}
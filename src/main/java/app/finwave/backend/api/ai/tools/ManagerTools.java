@@ -0,0 +1,126 @@
+package app.finwave.backend.api.ai.tools;
+
+import app.finwave.backend.api.analytics.AnalyticsManager;
+import app.finwave.backend.api.analytics.result.CategorySummary;
+import app.finwave.backend.api.transaction.filter.DescriptionSearchMode;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import app.finwave.backend.api.transaction.manager.TransactionsManager;
+import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
+import app.finwave.backend.api.transaction.manager.data.TransactionsPage;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.app.AnalyticsConfig;
+import app.finwave.backend.config.app.TransactionConfig;
+import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
+import app.finwave.backend.utils.params.InvalidParameterException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+// read tools executed against the managers directly: arguments are parsed once and results are returned as tables
+@Singleton
+public class ManagerTools {
+    protected static final List<String> TRANSACTION_COLUMNS = List.of("id", "categoryId", "accountId", "currencyId", "createdAt", "delta", "description", "metadata");
+    protected static final List<String> SUMMARY_COLUMNS = List.of("date", "currencyId", "categoryId", "delta");
+
+    protected TransactionsManager transactionsManager;
+    protected AnalyticsManager analyticsManager;
+
+    protected TransactionConfig transactionConfig;
+    protected AnalyticsConfig analyticsConfig;
+
+    @Inject
+    public ManagerTools(TransactionsManager transactionsManager, AnalyticsManager analyticsManager, Configs configs) {
+        this.transactionsManager = transactionsManager;
+        this.analyticsManager = analyticsManager;
+
+        this.transactionConfig = configs.getState(new TransactionConfig());
+        this.analyticsConfig = configs.getState(new AnalyticsConfig());
+    }
+
+    public Object getTransactions(UsersSessionsRecord session, Map<String, String> raw) {
+        FunctionArgs args = new FunctionArgs(raw);
+
+        int offset = args.integer("offset", 0, Integer.MAX_VALUE, 0);
+        int count = args.integer("count", 1, transactionConfig.maxTransactionsInListPerRequest, 10);
+        TransactionsFilter filter = args.filter();
+        Optional<TransactionsCursor> cursor = args.string("cursor").map(TransactionsCursor::parse);
+
+        boolean ranked = filter.getDescription() != null && filter.getDescriptionMode() == DescriptionSearchMode.RANKED;
+
+        if (ranked && cursor.isPresent())
+            throw new InvalidParameterException("cursor");
+
+        if (cursor.isPresent() || offset == 0 && !ranked) {
+            TransactionsPage page = transactionsManager.getTransactions(session.getUserId(), cursor.orElse(null), count, filter);
+
+            return transactionsTable(page.transactions(), page.next());
+        }
+
+        return transactionsTable(transactionsManager.getTransactions(session.getUserId(), offset, count, filter), null);
+    }
+
+    public Object getTransactionsCount(UsersSessionsRecord session, Map<String, String> raw) {
+        int count = transactionsManager.getTransactionsCount(session.getUserId(), new FunctionArgs(raw).filter());
+
+        return new FunctionGenericResult(String.valueOf(count));
+    }
+
+    public Object getAnalyticsByMonths(UsersSessionsRecord session, Map<String, String> raw) {
+        TransactionsFilter filter = withTimeRange(new FunctionArgs(raw).filter(), analyticsConfig.maxTimeRangeDaysForMonths);
+
+        return summaryTable(analyticsManager.getAnalyticsByMonths(session.getUserId(), filter).getTotal());
+    }
+
+    public Object getAnalyticsByDays(UsersSessionsRecord session, Map<String, String> raw) {
+        TransactionsFilter filter = withTimeRange(new FunctionArgs(raw).filter(), analyticsConfig.maxTimeRangeDaysForDays);
+
+        return summaryTable(analyticsManager.getAnalyticsByDays(session.getUserId(), filter).getTotal());
+    }
+
+    // same defaults as the http api: half of the allowed range until now
+    protected static TransactionsFilter withTimeRange(TransactionsFilter filter, int maxDays) {
+        if (filter.getFromTime() == null)
+            filter = filter.setFromTime(OffsetDateTime.now().minusDays(maxDays / 2));
+
+        if (filter.getToTime() == null)
+            filter = filter.setToTime(OffsetDateTime.now());
+
+        if (!filter.validateTime(maxDays))
+            throw new InvalidParameterException("fromTime");
+
+        return filter;
+    }
+
+    protected static FunctionTableResult transactionsTable(List<TransactionEntry<?>> transactions, TransactionsCursor next) {
+        List<List<Object>> rows = new ArrayList<>(transactions.size());
+
+        for (TransactionEntry<?> entry : transactions) {
+            rows.add(Arrays.asList(
+                    entry.transactionId,
+                    entry.categoryId,
+                    entry.accountId,
+                    entry.currencyId,
+                    entry.createdAt,
+                    entry.delta,
+                    entry.description,
+                    entry.metadata
+            ));
+        }
+
+        return new FunctionTableResult(TRANSACTION_COLUMNS, rows, next != null ? next.toString() : null);
+    }
+
+    protected static FunctionTableResult summaryTable(Map<LocalDate, ? extends List<CategorySummary>> total) {
+        List<List<Object>> rows = new ArrayList<>();
+
+        new TreeMap<>(total).forEach((date, summaries) -> summaries.forEach((s) ->
+                rows.add(List.of(date, s.currencyId(), s.categoryId(), s.delta()))
+        ));
+
+        return new FunctionTableResult(SUMMARY_COLUMNS, rows);
+    }
+}
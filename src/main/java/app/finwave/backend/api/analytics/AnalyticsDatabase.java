@@ -1,23 +1,60 @@
 package app.finwave.backend.api.analytics;
 
-import org.jooq.Condition;
-import org.jooq.DSLContext;
+import org.flywaydb.core.internal.util.Pair;
+import org.jooq.*;
+import org.jooq.impl.SQLDataType;
 import app.finwave.backend.api.analytics.result.AnalyticsByDays;
 import app.finwave.backend.api.analytics.result.AnalyticsByMonths;
 import app.finwave.backend.api.transaction.TransactionDatabase;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.database.AbstractDatabase;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
 import static org.jooq.impl.DSL.*;
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+import static app.finwave.backend.jooq.Tables.TRANSACTIONS_DAILY;
 
 public class AnalyticsDatabase extends AbstractDatabase {
+    // the driver sets the session time zone from the JVM one, so rollup days and cast(created_at as date) agree
+    protected static final ZoneId ROLLUP_ZONE = ZoneId.systemDefault();
 
     public AnalyticsDatabase(DSLContext context) {
         super(context);
     }
 
     public AnalyticsByMonths getAnalyticsByMonths(int userId, TransactionsFilter filter) {
+        Optional<Pair<LocalDate, LocalDate>> rollupDays = getRollupDays(filter);
+
+        if (rollupDays.isPresent()) {
+            Table<?> source = rollupSource(userId, filter, rollupDays.get());
+
+            Field<Long> currencyId = source.field(TRANSACTIONS_DAILY.CURRENCY_ID);
+            Field<Long> categoryId = source.field(TRANSACTIONS_DAILY.CATEGORY_ID);
+            Field<LocalDate> day = source.field(TRANSACTIONS_DAILY.DAY);
+            Field<BigDecimal> delta = source.field(TRANSACTIONS_DAILY.DELTA);
+
+            var result = context.select(currencyId,
+                            categoryId,
+                            month(day),
+                            year(day),
+                            sum(delta))
+                    .from(source)
+                    .groupBy(currencyId,
+                            categoryId,
+                            month(day),
+                            year(day))
+                    .fetch();
+
+            return new AnalyticsByMonths(result);
+        }
+
         Condition condition = TransactionDatabase.generateFilterCondition(userId, filter);
 
         var result = context.select(TRANSACTIONS.CURRENCY_ID,
@@ -37,6 +74,33 @@ public class AnalyticsDatabase extends AbstractDatabase {
     }
 
     public AnalyticsByDays getAnalyticsByDays(int userId, TransactionsFilter filter) {
+        Optional<Pair<LocalDate, LocalDate>> rollupDays = getRollupDays(filter);
+
+        if (rollupDays.isPresent()) {
+            Table<?> source = rollupSource(userId, filter, rollupDays.get());
+
+            Field<Long> currencyId = source.field(TRANSACTIONS_DAILY.CURRENCY_ID);
+            Field<Long> categoryId = source.field(TRANSACTIONS_DAILY.CATEGORY_ID);
+            Field<LocalDate> day = source.field(TRANSACTIONS_DAILY.DAY);
+            Field<BigDecimal> delta = source.field(TRANSACTIONS_DAILY.DELTA);
+
+            var result = context.select(currencyId,
+                            categoryId,
+                            day(day),
+                            month(day),
+                            year(day),
+                            sum(delta))
+                    .from(source)
+                    .groupBy(currencyId,
+                            categoryId,
+                            day(day),
+                            month(day),
+                            year(day))
+                    .fetch();
+
+            return new AnalyticsByDays(result);
+        }
+
         Condition condition = TransactionDatabase.generateFilterCondition(userId, filter);
 
         var result = context.select(TRANSACTIONS.CURRENCY_ID,
@@ -57,4 +121,138 @@ public class AnalyticsDatabase extends AbstractDatabase {
 
         return new AnalyticsByDays(result);
     }
+
+    public void addToRollup(Condition transactions) {
+        updateRollup(transactions, false);
+    }
+
+    public void subtractFromRollup(Condition transactions) {
+        updateRollup(transactions, true);
+    }
+
+    public void deleteEmptyRollups(int userId) {
+        context.deleteFrom(TRANSACTIONS_DAILY)
+                .where(TRANSACTIONS_DAILY.OWNER_ID.eq(userId)
+                        .and(TRANSACTIONS_DAILY.TRANSACTIONS_COUNT.le(0)))
+                .execute();
+    }
+
+    public List<Integer> getInconsistentRollupOwners() {
+        Field<LocalDate> createdDay = cast(TRANSACTIONS.CREATED_AT, SQLDataType.LOCALDATE);
+
+        Table<?> raw = context.select(TRANSACTIONS.OWNER_ID,
+                        createdDay.as(TRANSACTIONS_DAILY.DAY.getName()),
+                        TRANSACTIONS.CURRENCY_ID,
+                        TRANSACTIONS.CATEGORY_ID,
+                        sum(TRANSACTIONS.DELTA).as(TRANSACTIONS_DAILY.DELTA.getName()),
+                        count().as(TRANSACTIONS_DAILY.TRANSACTIONS_COUNT.getName()))
+                .from(TRANSACTIONS)
+                .groupBy(TRANSACTIONS.OWNER_ID, createdDay, TRANSACTIONS.CURRENCY_ID, TRANSACTIONS.CATEGORY_ID)
+                .asTable("raw");
+
+        Field<Integer> rawOwnerId = raw.field(TRANSACTIONS.OWNER_ID);
+
+        return context.selectDistinct(coalesce(rawOwnerId, TRANSACTIONS_DAILY.OWNER_ID))
+                .from(raw)
+                .fullJoin(TRANSACTIONS_DAILY)
+                .on(rawOwnerId.eq(TRANSACTIONS_DAILY.OWNER_ID)
+                        .and(raw.field(TRANSACTIONS_DAILY.DAY).eq(TRANSACTIONS_DAILY.DAY))
+                        .and(raw.field(TRANSACTIONS.CURRENCY_ID).eq(TRANSACTIONS_DAILY.CURRENCY_ID))
+                        .and(raw.field(TRANSACTIONS.CATEGORY_ID).eq(TRANSACTIONS_DAILY.CATEGORY_ID)))
+                .where(raw.field(TRANSACTIONS_DAILY.DELTA).isDistinctFrom(TRANSACTIONS_DAILY.DELTA)
+                        .or(raw.field(TRANSACTIONS_DAILY.TRANSACTIONS_COUNT).isDistinctFrom(TRANSACTIONS_DAILY.TRANSACTIONS_COUNT)))
+                .fetch(Record1::component1);
+    }
+
+    public void rebuildRollup(int userId) {
+        context.deleteFrom(TRANSACTIONS_DAILY)
+                .where(TRANSACTIONS_DAILY.OWNER_ID.eq(userId))
+                .execute();
+
+        addToRollup(TRANSACTIONS.OWNER_ID.eq(userId));
+    }
+
+    protected void updateRollup(Condition transactions, boolean subtract) {
+        Field<LocalDate> createdDay = cast(TRANSACTIONS.CREATED_AT, SQLDataType.LOCALDATE);
+        Field<BigDecimal> delta = sum(TRANSACTIONS.DELTA);
+        Field<Integer> count = count();
+
+        context.insertInto(TRANSACTIONS_DAILY,
+                        TRANSACTIONS_DAILY.OWNER_ID,
+                        TRANSACTIONS_DAILY.DAY,
+                        TRANSACTIONS_DAILY.CURRENCY_ID,
+                        TRANSACTIONS_DAILY.CATEGORY_ID,
+                        TRANSACTIONS_DAILY.DELTA,
+                        TRANSACTIONS_DAILY.TRANSACTIONS_COUNT)
+                .select(select(TRANSACTIONS.OWNER_ID,
+                        createdDay,
+                        TRANSACTIONS.CURRENCY_ID,
+                        TRANSACTIONS.CATEGORY_ID,
+                        subtract ? delta.neg() : delta,
+                        subtract ? count.neg() : count)
+                        .from(TRANSACTIONS)
+                        .where(transactions)
+                        .groupBy(TRANSACTIONS.OWNER_ID, createdDay, TRANSACTIONS.CURRENCY_ID, TRANSACTIONS.CATEGORY_ID))
+                .onConflict(TRANSACTIONS_DAILY.OWNER_ID, TRANSACTIONS_DAILY.DAY, TRANSACTIONS_DAILY.CURRENCY_ID, TRANSACTIONS_DAILY.CATEGORY_ID)
+                .doUpdate()
+                .set(TRANSACTIONS_DAILY.DELTA, TRANSACTIONS_DAILY.DELTA.plus(excluded(TRANSACTIONS_DAILY.DELTA)))
+                .set(TRANSACTIONS_DAILY.TRANSACTIONS_COUNT, TRANSACTIONS_DAILY.TRANSACTIONS_COUNT.plus(excluded(TRANSACTIONS_DAILY.TRANSACTIONS_COUNT)))
+                .execute();
+    }
+
+    // whole days inside the filter range are read from the rollup, partial days at the edges from transactions
+    protected Table<?> rollupSource(int userId, TransactionsFilter filter, Pair<LocalDate, LocalDate> days) {
+        OffsetDateTime rollupStart = days.getLeft().atStartOfDay(ROLLUP_ZONE).toOffsetDateTime();
+        OffsetDateTime rollupEnd = days.getRight().plusDays(1).atStartOfDay(ROLLUP_ZONE).toOffsetDateTime();
+
+        Condition edgesCondition = TransactionDatabase.generateFilterCondition(userId, filter)
+                .and(TRANSACTIONS.CREATED_AT.lessThan(rollupStart).or(TRANSACTIONS.CREATED_AT.greaterOrEqual(rollupEnd)));
+
+        Condition rollupCondition = TRANSACTIONS_DAILY.OWNER_ID.eq(userId)
+                .and(TRANSACTIONS_DAILY.DAY.between(days.getLeft(), days.getRight()));
+
+        if (filter.getCategoriesIds() != null)
+            rollupCondition = rollupCondition.and(TRANSACTIONS_DAILY.CATEGORY_ID.in(filter.getCategoriesIds()));
+
+        if (filter.getCurrenciesIds() != null)
+            rollupCondition = rollupCondition.and(TRANSACTIONS_DAILY.CURRENCY_ID.in(filter.getCurrenciesIds()));
+
+        return select(TRANSACTIONS.CURRENCY_ID.as(TRANSACTIONS_DAILY.CURRENCY_ID.getName()),
+                        TRANSACTIONS.CATEGORY_ID.as(TRANSACTIONS_DAILY.CATEGORY_ID.getName()),
+                        cast(TRANSACTIONS.CREATED_AT, SQLDataType.LOCALDATE).as(TRANSACTIONS_DAILY.DAY.getName()),
+                        TRANSACTIONS.DELTA.as(TRANSACTIONS_DAILY.DELTA.getName()))
+                .from(TRANSACTIONS)
+                .where(edgesCondition)
+                .unionAll(select(TRANSACTIONS_DAILY.CURRENCY_ID,
+                        TRANSACTIONS_DAILY.CATEGORY_ID,
+                        TRANSACTIONS_DAILY.DAY,
+                        TRANSACTIONS_DAILY.DELTA)
+                        .from(TRANSACTIONS_DAILY)
+                        .where(rollupCondition))
+                .asTable("rollup");
+    }
+
+    protected Optional<Pair<LocalDate, LocalDate>> getRollupDays(TransactionsFilter filter) {
+        if (filter.getDescription() != null || filter.getAccountIds() != null || filter.getFromTime() == null || filter.getToTime() == null)
+            return Optional.empty();
+
+        ZonedDateTime from = filter.getFromTime().atZoneSameInstant(ROLLUP_ZONE);
+        ZonedDateTime to = filter.getToTime().atZoneSameInstant(ROLLUP_ZONE);
+
+        LocalDate firstDay = from.toLocalDate();
+
+        if (from.isAfter(firstDay.atStartOfDay(ROLLUP_ZONE)))
+            firstDay = firstDay.plusDays(1);
+
+        LocalDate lastDay = to.toLocalDate();
+
+        // created_at keeps microseconds, so the day is whole when the range reaches its last microsecond
+        if (to.isBefore(lastDay.plusDays(1).atStartOfDay(ROLLUP_ZONE).minusNanos(1000)))
+            lastDay = lastDay.minusDays(1);
+
+        if (firstDay.isAfter(lastDay))
+            return Optional.empty();
+
+        return Optional.of(Pair.of(firstDay, lastDay));
+    }
 }
@@ -5,21 +5,28 @@ import app.finwave.backend.api.analytics.result.AnalyticsByMonths;
 import app.finwave.backend.api.analytics.result.CategorySummary;
 import app.finwave.backend.api.analytics.result.CategorySummaryWithBudget;
 import app.finwave.backend.api.category.CategoryDatabase;
+import app.finwave.backend.api.outbox.OutboxEventType;
+import app.finwave.backend.api.outbox.OutboxManager;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.api.transaction.hook.TransactionActionsHook;
 import app.finwave.backend.api.transaction.manager.TransactionsManager;
+import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
+import app.finwave.backend.api.transaction.metadata.MetadataType;
 import app.finwave.backend.api.category.BudgetTree;
 import app.finwave.backend.api.budget.CategoryBudgetManager;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.CachingConfig;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.InvalidationBus;
 import app.finwave.backend.jooq.tables.records.CategoriesBudgetsRecord;
 import app.finwave.backend.jooq.tables.records.CategoriesRecord;
+import app.finwave.backend.jooq.tables.records.OutboxRecord;
 import app.finwave.backend.utils.CacheHandyBuilder;
 import com.google.common.cache.Cache;
 import com.google.common.cache.LoadingCache;
+import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.flywaydb.core.internal.util.Pair;
@@ -32,34 +39,51 @@ import java.time.Month;
 import java.time.OffsetDateTime;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import static app.finwave.backend.api.ApiResponse.GSON;
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+import static app.finwave.backend.jooq.Tables.TRANSACTIONS_METADATA;
 
 @Singleton
 public class AnalyticsManager {
+    protected static final String TOPIC = "analytics";
+
+    // bigger change sets are sent as "everything of the user"
+    protected static final int MAX_RECORDED_CHANGES = 100;
+    protected static final TypeToken<List<ChangedTransaction>> CHANGES_TYPE = new TypeToken<List<ChangedTransaction>>(){};
+
     protected CachingConfig cachingConfig;
     protected AnalyticsDatabase database;
     protected CategoryDatabase categoryDatabase;
 
     protected CategoryBudgetManager categoryBudgetManager;
+    protected TransactionsManager transactionsManager;
+    protected DatabaseWorker databaseWorker;
+    protected InvalidationBus invalidationBus;
+    protected OutboxManager outbox;
 
     protected LoadingCache<Pair<Integer, TransactionsFilter>, AnalyticsByDays> daysCache;
     protected LoadingCache<Pair<Integer, TransactionsFilter>, AnalyticsByMonths> monthsCache;
 
     protected LoadingCache<Pair<Integer, OffsetDateTime>, List<CategorySummaryWithBudget>> categoriesSummariesCache;
-    protected Cache<Integer, HashSet<OffsetDateTime>> loadedCategoriesSummaries;
+    protected Cache<Integer, Set<OffsetDateTime>> loadedCategoriesSummaries;
 
-    protected Cache<Integer, HashSet<TransactionsFilter>> loadedDays;
-    protected Cache<Integer, HashSet<TransactionsFilter>> loadedMonths;
+    protected Cache<Integer, Set<TransactionsFilter>> loadedDays;
+    protected Cache<Integer, Set<TransactionsFilter>> loadedMonths;
 
     @Inject
-    public AnalyticsManager(DatabaseWorker databaseWorker, Configs configs, TransactionsManager transactionsManager, CategoryBudgetManager categoryBudgetManager) {
+    public AnalyticsManager(DatabaseWorker databaseWorker, Configs configs, TransactionsManager transactionsManager, CategoryBudgetManager categoryBudgetManager, InvalidationBus invalidationBus, OutboxManager outbox) {
         this.database = databaseWorker.get(AnalyticsDatabase.class);
         this.categoryDatabase = databaseWorker.get(CategoryDatabase.class);
 
         this.categoryBudgetManager = categoryBudgetManager;
+        this.transactionsManager = transactionsManager;
+        this.databaseWorker = databaseWorker;
+        this.invalidationBus = invalidationBus;
+        this.outbox = outbox;
 
         this.cachingConfig = configs.getState(new CachingConfig());
 
@@ -73,7 +97,7 @@ public class AnalyticsManager {
                 cachingConfig.analytics.maxCategoriesSummingEntries,
                 (p) -> {
                     try {
-                        loadedCategoriesSummaries.get(p.getLeft(), HashSet::new).add(p.getRight());
+                        loadedCategoriesSummaries.get(p.getLeft(), ConcurrentHashMap::newKeySet).add(p.getRight());
                     } catch (ExecutionException e) {
                         e.printStackTrace();
                     }
@@ -81,7 +105,7 @@ public class AnalyticsManager {
                     return calculateCategoriesSummary(p.getLeft(), p.getRight());
                 },
                 (entry) -> {
-                    HashSet<OffsetDateTime> loaded = loadedCategoriesSummaries.getIfPresent(entry.getKey().getLeft());
+                    Set<OffsetDateTime> loaded = loadedCategoriesSummaries.getIfPresent(entry.getKey().getLeft());
                     if (loaded == null)
                         return;
 
@@ -104,15 +128,15 @@ public class AnalyticsManager {
                 cachingConfig.analytics.maxDaysEntries,
                 (p) -> {
                     try {
-                        loadedDays.get(p.getLeft(), HashSet::new).add(p.getRight());
+                        loadedDays.get(p.getLeft(), ConcurrentHashMap::newKeySet).add(p.getRight());
                     } catch (ExecutionException e) {
                         e.printStackTrace();
                     }
 
-                    return database.getAnalyticsByDays(p.getLeft(), p.getRight());
+                    return databaseWorker.getReader(AnalyticsDatabase.class, p.getLeft()).getAnalyticsByDays(p.getLeft(), p.getRight());
                 },
                 (entry) -> {
-                    HashSet<TransactionsFilter> loaded = loadedDays.getIfPresent(entry.getKey().getLeft());
+                    Set<TransactionsFilter> loaded = loadedDays.getIfPresent(entry.getKey().getLeft());
                     if (loaded == null)
                         return;
 
@@ -125,19 +149,19 @@ public class AnalyticsManager {
                 cachingConfig.analytics.maxMonthsEntries,
                 (p) -> {
                     try {
-                        loadedMonths.get(p.getLeft(), HashSet::new).add(p.getRight());
+                        loadedMonths.get(p.getLeft(), ConcurrentHashMap::newKeySet).add(p.getRight());
                     } catch (ExecutionException e) {
                         e.printStackTrace();
                     }
 
-                    return database.getAnalyticsByMonths(p.getLeft(), p.getRight());
+                    return databaseWorker.getReader(AnalyticsDatabase.class, p.getLeft()).getAnalyticsByMonths(p.getLeft(), p.getRight());
                 },
                 (entry) -> {
                     int userId = entry.getKey().getLeft();
 
                     categoriesSummariesCache.invalidate(userId);
 
-                    HashSet<TransactionsFilter> loaded = loadedMonths.getIfPresent(userId);
+                    Set<TransactionsFilter> loaded = loadedMonths.getIfPresent(userId);
                     if (loaded == null)
                         return;
 
@@ -149,8 +173,13 @@ public class AnalyticsManager {
         transactionsManager.getRecurringActionsWorker().addHook(new Hook<>(this));
         transactionsManager.getAccumulationActionsWorker().addHook(new Hook<>(this));
 
+        transactionsManager.getDefaultActionsWorker().addHook(new AnalyticsRollupHook<>(databaseWorker));
+        transactionsManager.getInternalActionsWorker().addHook(new AnalyticsRollupHook<>(databaseWorker));
+        transactionsManager.getRecurringActionsWorker().addHook(new AnalyticsRollupHook<>(databaseWorker));
+        transactionsManager.getAccumulationActionsWorker().addHook(new AnalyticsRollupHook<>(databaseWorker));
+
         categoryBudgetManager.addInvalidationListener((userId) -> {
-            HashSet<OffsetDateTime> loaded = loadedCategoriesSummaries.getIfPresent(userId);
+            Set<OffsetDateTime> loaded = loadedCategoriesSummaries.getIfPresent(userId);
 
             if (loaded == null)
                 return;
@@ -161,6 +190,53 @@ public class AnalyticsManager {
                     .forEach(categoriesSummariesCache::invalidate);
 
         });
+
+        // other nodes send only the user, so everything of the user is dropped
+        invalidationBus.subscribe(TOPIC, (userId) -> invalidate(Integer.parseInt(userId)), () -> {
+            daysCache.invalidateAll();
+            monthsCache.invalidateAll();
+            categoriesSummariesCache.invalidateAll();
+
+            loadedDays.invalidateAll();
+            loadedMonths.invalidateAll();
+            loadedCategoriesSummaries.invalidateAll();
+        });
+
+        outbox.setHandler(OutboxEventType.ANALYTICS_INVALIDATION, this::applyInvalidations);
+    }
+
+    // the hooks record changes in the transaction, caches are touched only after it commits
+    protected void recordInvalidation(DSLContext context, int userId, List<ChangedTransaction> changes) {
+        String payload = changes.size() > MAX_RECORDED_CHANGES ? null : GSON.toJson(changes, CHANGES_TYPE.getType());
+
+        outbox.record(context, OutboxEventType.ANALYTICS_INVALIDATION, userId, payload);
+    }
+
+    protected void applyInvalidations(List<OutboxRecord> records) {
+        HashMap<Integer, List<ChangedTransaction>> changes = new HashMap<>();
+        HashSet<Integer> wholeUsers = new HashSet<>();
+
+        for (OutboxRecord record : records) {
+            if (record.getPayload() == null) {
+                wholeUsers.add(record.getUserId());
+
+                continue;
+            }
+
+            changes.computeIfAbsent(record.getUserId(), k -> new ArrayList<>())
+                    .addAll(GSON.fromJson(record.getPayload(), CHANGES_TYPE.getType()));
+        }
+
+        wholeUsers.forEach(this::invalidate);
+        changes.forEach((userId, userChanges) -> {
+            if (!wholeUsers.contains(userId))
+                invalidate(userId, userChanges);
+        });
+
+        HashSet<Integer> users = new HashSet<>(wholeUsers);
+        users.addAll(changes.keySet());
+
+        invalidationBus.publish(TOPIC, users);
     }
 
     protected Pair<OffsetDateTime, OffsetDateTime> dateTypeToRange(short type, OffsetDateTime referenceDate) {
@@ -299,48 +375,104 @@ public class AnalyticsManager {
         return AnalyticsByDays.EMPTY;
     }
 
-    protected static class Hook<T, Y> implements TransactionActionsHook<T, Y> {
-        protected AnalyticsManager manager;
+    public void invalidate(int userId) {
+        var daysLoaded = loadedDays.getIfPresent(userId);
 
-        public Hook(AnalyticsManager manager) {
-            this.manager = manager;
+        if (daysLoaded != null) {
+            daysCache.invalidateAll(
+                    daysLoaded.stream()
+                            .map((f) -> Pair.of(userId, f))
+                            .toList()
+            );
+
+            loadedDays.invalidate(userId);
         }
 
-        protected void invalidate(int userId) {
-            var daysLoaded = manager.loadedDays.getIfPresent(userId);
+        var months = loadedMonths.getIfPresent(userId);
 
-            if (daysLoaded != null) {
-                manager.daysCache.invalidateAll(
-                        daysLoaded.stream()
-                                .map((f) -> Pair.of(userId, f))
-                                .toList()
-                );
+        if (months != null) {
+            monthsCache.invalidateAll(
+                    months.stream()
+                            .map((f) -> Pair.of(userId, f))
+                            .toList()
+            );
 
-                manager.loadedDays.invalidate(userId);
-            }
+            loadedMonths.invalidate(userId);
+        }
 
-            var months = manager.loadedMonths.getIfPresent(userId);
+        var categories = loadedCategoriesSummaries.getIfPresent(userId);
 
-            if (months != null) {
-                manager.monthsCache.invalidateAll(
-                        months.stream()
-                                .map((f) -> Pair.of(userId, f))
-                                .toList()
-                );
+        if (categories != null) {
+            categoriesSummariesCache.invalidateAll(
+                    categories.stream()
+                    .map((d) -> Pair.of(userId, d))
+                    .toList());
 
-                manager.loadedMonths.invalidate(userId);
-            }
+            loadedCategoriesSummaries.invalidate(userId);
+        }
+    }
 
-           var categories = manager.loadedCategoriesSummaries.getIfPresent(userId);
+    public void invalidate(int userId, List<ChangedTransaction> changes) {
+        var daysLoaded = loadedDays.getIfPresent(userId);
 
-            if (categories != null) {
-                manager.categoriesSummariesCache.invalidateAll(
-                        categories.stream()
-                        .map((d) -> Pair.of(userId, d))
-                        .toList());
+        if (daysLoaded != null) {
+            List<TransactionsFilter> affected = daysLoaded.stream()
+                    .filter((f) -> changes.stream().anyMatch((c) -> c.affects(f)))
+                    .toList();
 
-                manager.loadedCategoriesSummaries.invalidate(userId);
-            }
+            daysCache.invalidateAll(affected.stream().map((f) -> Pair.of(userId, f)).toList());
+            affected.forEach(daysLoaded::remove);
+        }
+
+        var monthsLoaded = loadedMonths.getIfPresent(userId);
+
+        if (monthsLoaded != null) {
+            List<TransactionsFilter> affected = monthsLoaded.stream()
+                    .filter((f) -> changes.stream().anyMatch((c) -> c.affects(f)))
+                    .toList();
+
+            monthsCache.invalidateAll(affected.stream().map((f) -> Pair.of(userId, f)).toList());
+            affected.forEach(monthsLoaded::remove);
+        }
+
+        var categoriesLoaded = loadedCategoriesSummaries.getIfPresent(userId);
+
+        if (categoriesLoaded != null) {
+            // a quarter covers both budget date types, see dateTypeToRange
+            List<OffsetDateTime> affected = categoriesLoaded.stream()
+                    .filter((d) -> {
+                        Pair<OffsetDateTime, OffsetDateTime> range = dateTypeToRange((short) 1, d);
+
+                        return changes.stream().anyMatch((c) -> c.affects(range.getLeft(), range.getRight()));
+                    })
+                    .toList();
+
+            categoriesSummariesCache.invalidateAll(affected.stream().map((d) -> Pair.of(userId, d)).toList());
+            affected.forEach(categoriesLoaded::remove);
+        }
+    }
+
+    public List<Integer> rebuildInconsistentRollups() {
+        List<Integer> owners = database.getInconsistentRollupOwners();
+
+        // a transaction committed between the delete and the re-aggregation would be counted twice
+        for (int userId : owners) {
+            transactionsManager.runUserExclusive(userId, (dsl) ->
+                    databaseWorker.get(AnalyticsDatabase.class, dsl).rebuildRollup(userId));
+
+            invalidate(userId);
+        }
+
+        invalidationBus.publish(TOPIC, owners);
+
+        return owners;
+    }
+
+    protected static class Hook<T, Y> implements TransactionActionsHook<T, Y> {
+        protected AnalyticsManager manager;
+
+        public Hook(AnalyticsManager manager) {
+            this.manager = manager;
         }
 
         @Override
@@ -360,21 +492,82 @@ public class AnalyticsManager {
 
         @Override
         public void applied(DSLContext context, T newRecord, long transactionId) {
-            if (newRecord instanceof TransactionNewRecord r) {
-                invalidate(r.userId());
-            }else if (newRecord instanceof TransactionNewInternalRecord r) {
-                invalidate(r.userId());
+            appliedBatch(context, List.of(newRecord), List.of(transactionId));
+        }
+
+        @Override
+        public void appliedBatch(DSLContext context, List<T> newRecords, List<Long> transactionsIds) {
+            HashMap<Integer, List<ChangedTransaction>> changes = new HashMap<>();
+
+            for (T newRecord : newRecords) {
+                if (newRecord instanceof TransactionNewRecord r) {
+                    changes.computeIfAbsent(r.userId(), k -> new ArrayList<>())
+                            .add(new ChangedTransaction(r.created(), r.categoryId(), r.accountId(), null));
+                }else if (newRecord instanceof TransactionNewInternalRecord r) {
+                    List<ChangedTransaction> userChanges = changes.computeIfAbsent(r.userId(), k -> new ArrayList<>());
+
+                    userChanges.add(new ChangedTransaction(r.created(), r.categoryId(), r.fromAccountId(), null));
+                    userChanges.add(new ChangedTransaction(r.created(), r.categoryId(), r.toAccountId(), null));
+                }
             }
+
+            changes.forEach((userId, userChanges) -> manager.recordInvalidation(context, userId, userChanges));
         }
 
         @Override
         public void edited(DSLContext context, Record record, Y editRecord, long transactionId) {
-            invalidate(record.get(TRANSACTIONS.OWNER_ID));
+            // the second leg of a transfer has the same time and category but another account
+            boolean transfer = Objects.equals(record.get(TRANSACTIONS_METADATA.TYPE), MetadataType.INTERNAL_TRANSFER.type);
+
+            ArrayList<ChangedTransaction> changes = new ArrayList<>();
+            changes.add(ChangedTransaction.of(record, transfer));
+
+            if (editRecord instanceof TransactionEditRecord r) {
+                OffsetDateTime created = r.created() != null ? r.created() : record.get(TRANSACTIONS.CREATED_AT);
+
+                changes.add(new ChangedTransaction(created, r.categoryId(), transfer ? null : r.accountId(), null));
+            }else {
+                changes.add(new ChangedTransaction(null, null, null, null));
+            }
+
+            manager.recordInvalidation(context, record.get(TRANSACTIONS.OWNER_ID), changes);
         }
 
         @Override
         public void canceled(DSLContext context, Record record, long transactionId) {
-            invalidate(record.get(TRANSACTIONS.OWNER_ID));
+            boolean transfer = Objects.equals(record.get(TRANSACTIONS_METADATA.TYPE), MetadataType.INTERNAL_TRANSFER.type);
+
+            manager.recordInvalidation(context, record.get(TRANSACTIONS.OWNER_ID), List.of(ChangedTransaction.of(record, transfer)));
+        }
+    }
+
+    // null fields are unknown and match any filter
+    public record ChangedTransaction(OffsetDateTime created, Long categoryId, Long accountId, Long currencyId) {
+        public static ChangedTransaction of(Record record, boolean anyAccount) {
+            return new ChangedTransaction(
+                    record.get(TRANSACTIONS.CREATED_AT),
+                    record.get(TRANSACTIONS.CATEGORY_ID),
+                    anyAccount ? null : record.get(TRANSACTIONS.ACCOUNT_ID),
+                    anyAccount ? null : record.get(TRANSACTIONS.CURRENCY_ID)
+            );
+        }
+
+        public boolean affects(TransactionsFilter filter) {
+            return affects(filter.getFromTime(), filter.getToTime()) &&
+                    matchesAny(filter.getCategoriesIds(), categoryId) &&
+                    matchesAny(filter.getAccountIds(), accountId) &&
+                    matchesAny(filter.getCurrenciesIds(), currencyId);
+        }
+
+        public boolean affects(OffsetDateTime from, OffsetDateTime to) {
+            if (created == null)
+                return true;
+
+            return (from == null || !created.isBefore(from)) && (to == null || !created.isAfter(to));
+        }
+
+        protected static boolean matchesAny(List<Long> filterIds, Long id) {
+            return filterIds == null || id == null || filterIds.contains(id);
         }
     }
 }
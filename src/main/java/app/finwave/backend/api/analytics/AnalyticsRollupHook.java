@@ -0,0 +1,96 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.transaction.hook.TransactionActionsHook;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
+import app.finwave.backend.api.transaction.metadata.MetadataType;
+import app.finwave.backend.database.DatabaseWorker;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Record1;
+
+import java.util.List;
+import java.util.Objects;
+
+import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+import static app.finwave.backend.jooq.Tables.TRANSACTIONS_METADATA;
+
+public class AnalyticsRollupHook<T, Y> implements TransactionActionsHook<T, Y> {
+    protected DatabaseWorker databaseWorker;
+
+    public AnalyticsRollupHook(DatabaseWorker databaseWorker) {
+        this.databaseWorker = databaseWorker;
+    }
+
+    @Override
+    public void apply(DSLContext context, T newRecord) {
+
+    }
+
+    @Override
+    public void edit(DSLContext context, Record record, Y editRecord, long transactionId) {
+        databaseWorker.get(AnalyticsDatabase.class, context)
+                .subtractFromRollup(TRANSACTIONS.ID.eq(transactionId));
+    }
+
+    @Override
+    public void cancel(DSLContext context, Record record, long transactionId) {
+        databaseWorker.get(AnalyticsDatabase.class, context)
+                .subtractFromRollup(affectedTransactions(record, transactionId));
+    }
+
+    @Override
+    public void applied(DSLContext context, T newRecord, long transactionId) {
+        AnalyticsDatabase database = databaseWorker.get(AnalyticsDatabase.class, context);
+
+        if (!(newRecord instanceof TransactionNewInternalRecord)) {
+            database.addToRollup(TRANSACTIONS.ID.eq(transactionId));
+
+            return;
+        }
+
+        Long metadataId = context.select(TRANSACTIONS.METADATA_ID)
+                .from(TRANSACTIONS)
+                .where(TRANSACTIONS.ID.eq(transactionId))
+                .fetchOptional()
+                .map(Record1::component1)
+                .orElseThrow();
+
+        database.addToRollup(TRANSACTIONS.METADATA_ID.eq(metadataId));
+    }
+
+    @Override
+    public void appliedBatch(DSLContext context, List<T> newRecords, List<Long> transactionsIds) {
+        if (newRecords.stream().anyMatch((r) -> r instanceof TransactionNewInternalRecord)) {
+            TransactionActionsHook.super.appliedBatch(context, newRecords, transactionsIds);
+
+            return;
+        }
+
+        databaseWorker.get(AnalyticsDatabase.class, context)
+                .addToRollup(TRANSACTIONS.ID.in(transactionsIds));
+    }
+
+    @Override
+    public void edited(DSLContext context, Record record, Y editRecord, long transactionId) {
+        AnalyticsDatabase database = databaseWorker.get(AnalyticsDatabase.class, context);
+
+        database.addToRollup(TRANSACTIONS.ID.eq(transactionId));
+        database.deleteEmptyRollups(record.get(TRANSACTIONS.OWNER_ID));
+    }
+
+    @Override
+    public void canceled(DSLContext context, Record record, long transactionId) {
+        databaseWorker.get(AnalyticsDatabase.class, context)
+                .deleteEmptyRollups(record.get(TRANSACTIONS.OWNER_ID));
+    }
+
+    protected Condition affectedTransactions(Record record, long transactionId) {
+        // canceling an internal transfer removes both of its transactions
+        if (Objects.equals(record.get(TRANSACTIONS_METADATA.TYPE), MetadataType.INTERNAL_TRANSFER.type))
+            return TRANSACTIONS.METADATA_ID.eq(record.get(TRANSACTIONS.METADATA_ID));
+
+        return TRANSACTIONS.ID.eq(transactionId);
+    }
+}
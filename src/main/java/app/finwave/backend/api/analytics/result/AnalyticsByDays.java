@@ -25,4 +25,8 @@ public class AnalyticsByDays extends ApiResponse {
                     .add(new CategorySummary(r.component1(), r.component2(), r.component6()));
         });
     }
+
+    public HashMap<LocalDate, ArrayList<CategorySummary>> getTotal() {
+        return total;
+    }
 }
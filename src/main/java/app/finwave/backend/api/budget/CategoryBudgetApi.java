@@ -1,11 +1,9 @@
 package app.finwave.backend.api.budget;
 
 import app.finwave.backend.api.ApiResponse;
-import app.finwave.backend.api.category.CategoryDatabase;
-import app.finwave.backend.api.currency.CurrencyDatabase;
 import app.finwave.backend.api.event.WebSocketWorker;
 import app.finwave.backend.api.event.messages.response.NotifyUpdate;
-import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.http.ApiMessage;
 import app.finwave.backend.jooq.tables.records.CategoriesBudgetsRecord;
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
@@ -26,15 +24,13 @@ import static spark.Spark.halt;
 public class CategoryBudgetApi {
     protected CategoryBudgetManager manager;
     protected WebSocketWorker socketWorker;
-    protected CategoryDatabase categoryDatabase;
-    protected CurrencyDatabase currencyDatabase;
+    protected OwnershipManager ownership;
 
     @Inject
-    public CategoryBudgetApi(CategoryBudgetManager manager, WebSocketWorker socketWorker, DatabaseWorker databaseWorker) {
+    public CategoryBudgetApi(CategoryBudgetManager manager, WebSocketWorker socketWorker, OwnershipManager ownership) {
         this.manager = manager;
         this.socketWorker = socketWorker;
-        this.categoryDatabase = databaseWorker.get(CategoryDatabase.class);
-        this.currencyDatabase = databaseWorker.get(CurrencyDatabase.class);
+        this.ownership = ownership;
     }
 
     public Object addBudget(Request request, Response response) {
@@ -42,12 +38,12 @@ public class CategoryBudgetApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         long currencyId = ParamsValidator
                 .longV(request, "currencyId")
-                .matches((id) -> currencyDatabase.userCanReadCurrency(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userCanReadCurrency(sessionsRecord.getUserId(), id))
                 .require();
 
         if (manager.budgetExists(sessionsRecord.getUserId(), categoryId, currencyId, -1))
@@ -88,12 +84,12 @@ public class CategoryBudgetApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         long currencyId = ParamsValidator
                 .longV(request, "currencyId")
-                .matches((id) -> currencyDatabase.userCanReadCurrency(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userCanReadCurrency(sessionsRecord.getUserId(), id))
                 .require();
 
         if (manager.budgetExists(sessionsRecord.getUserId(), categoryId, currencyId, budgetId))
@@ -4,6 +4,7 @@ import app.finwave.backend.api.category.CategoryDatabase;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.CachingConfig;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.InvalidationBus;
 import app.finwave.backend.jooq.tables.records.CategoriesBudgetsRecord;
 import app.finwave.backend.utils.CacheHandyBuilder;
 import com.google.common.cache.LoadingCache;
@@ -18,19 +19,23 @@ import java.util.function.Consumer;
 
 @Singleton
 public class CategoryBudgetManager {
+    protected static final String TOPIC = "budgets";
+
     protected CategoryBudgetDatabase database;
     protected CategoryDatabase categoryDatabase;
 
     protected CachingConfig cachingConfig;
+    protected InvalidationBus invalidationBus;
 
     protected LoadingCache<Integer, List<CategoriesBudgetsRecord>> listCache;
 
     protected ArrayList<Consumer<Integer>> cacheInvalidationListeners = new ArrayList<>();
 
     @Inject
-    public CategoryBudgetManager(DatabaseWorker worker, Configs configs) {
+    public CategoryBudgetManager(DatabaseWorker worker, Configs configs, InvalidationBus invalidationBus) {
         this.database = worker.get(CategoryBudgetDatabase.class);
         this.categoryDatabase = worker.get(CategoryDatabase.class);
+        this.invalidationBus = invalidationBus;
 
         this.cachingConfig = configs.getState(new CachingConfig());
 
@@ -40,6 +45,19 @@ public class CategoryBudgetManager {
                 database::getList,
                 (notification) -> cacheInvalidationListeners.forEach((listener) -> listener.accept(notification.getKey()))
         );
+
+        // listeners are called even when the list isn't cached here, the values derived from it may still be
+        invalidationBus.subscribe(TOPIC, (key) -> {
+            int userId = Integer.parseInt(key);
+
+            listCache.invalidate(userId);
+            cacheInvalidationListeners.forEach((listener) -> listener.accept(userId));
+        }, () -> listCache.invalidateAll());
+    }
+
+    protected void invalidate(int userId) {
+        listCache.invalidate(userId);
+        invalidationBus.publish(TOPIC, userId);
     }
 
     public void addInvalidationListener(Consumer<Integer> listener) {
@@ -60,7 +78,7 @@ public class CategoryBudgetManager {
         Optional<Long> result = database.add(userId, categoryId, currencyId, dateType, amount);
 
         if (result.isPresent())
-            listCache.invalidate(userId);
+            invalidate(userId);
 
         return result;
     }
@@ -68,7 +86,7 @@ public class CategoryBudgetManager {
     public void update(int userId, long budgetId, long categoryId, long currencyId, short dateType, BigDecimal amount) {
         database.update(budgetId, categoryId, currencyId, dateType, amount);
 
-        listCache.invalidate(userId);
+        invalidate(userId);
     }
 
     public boolean budgetExists(int userId, long categoryId, long currencyId, long excludeBudget) {
@@ -105,7 +123,7 @@ public class CategoryBudgetManager {
         if (record.isEmpty())
             return false;
 
-        listCache.invalidate(record.get().getOwnerId());
+        invalidate(record.get().getOwnerId());
 
         return true;
     }
@@ -7,6 +7,7 @@ import com.google.inject.Singleton;
 import spark.Request;
 import spark.Response;
 import app.finwave.backend.api.ApiResponse;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.app.TransactionConfig;
 import app.finwave.backend.database.DatabaseWorker;
@@ -25,10 +26,12 @@ public class CategoryApi {
     protected CategoryDatabase database;
     protected TransactionConfig config;
     protected WebSocketWorker socketWorker;
+    protected OwnershipManager ownership;
 
     @Inject
-    public CategoryApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker) {
+    public CategoryApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker, OwnershipManager ownership) {
         this.database = databaseWorker.get(CategoryDatabase.class);
+        this.ownership = ownership;
         this.config = configs.getState(new TransactionConfig());
 
         this.socketWorker = socketWorker;
@@ -44,7 +47,7 @@ public class CategoryApi {
 
         Optional<Long> parentId = ParamsValidator
                 .longV(request, "parentId")
-                .matches((id) -> database.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .optional();
 
         String name = ParamsValidator
@@ -67,6 +70,8 @@ public class CategoryApi {
                 description.orElse(null)
         );
 
+        ownership.invalidate(sessionsRecord.getUserId());
+
         if (categoryId.isEmpty())
             halt(500);
 
@@ -92,7 +97,7 @@ public class CategoryApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> database.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         int type = ParamsValidator
@@ -101,6 +106,7 @@ public class CategoryApi {
                 .require();
 
         database.editCategoryType(categoryId, (short) type);
+        ownership.invalidate(sessionsRecord.getUserId());
 
         socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("categories"));
 
@@ -114,13 +120,13 @@ public class CategoryApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> database.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         Optional<Long> parentId = ParamsValidator
                 .longV(request, "parentId")
                 .matches((id) -> categoryId != id)
-                .matches((id) -> database.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .matches((id) -> database.newParentIsSafe(categoryId, id))
                 .optional();
 
@@ -156,7 +162,7 @@ public class CategoryApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> database.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         String name = ParamsValidator
@@ -178,7 +184,7 @@ public class CategoryApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> database.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         String description = ParamsValidator
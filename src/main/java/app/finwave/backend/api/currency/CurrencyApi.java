@@ -7,6 +7,7 @@ import com.google.inject.Singleton;
 import spark.Request;
 import spark.Response;
 import app.finwave.backend.api.ApiResponse;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.app.CurrencyConfig;
 import app.finwave.backend.database.DatabaseWorker;
@@ -25,11 +26,13 @@ public class CurrencyApi {
     protected CurrencyDatabase database;
     protected CurrencyConfig config;
     protected WebSocketWorker socketWorker;
+    protected OwnershipManager ownership;
 
     @Inject
-    public CurrencyApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker) {
+    public CurrencyApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker, OwnershipManager ownership) {
         this.database = databaseWorker.get(CurrencyDatabase.class);
         this.socketWorker = socketWorker;
+        this.ownership = ownership;
 
         config = configs.getState(new CurrencyConfig());
     }
@@ -61,6 +64,7 @@ public class CurrencyApi {
             halt(409);
 
         Optional<Long> currencyId = database.newCurrency(sessionsRecord.getUserId(), code, symbol, (short) decimals, description);
+        ownership.currencyCreated(sessionsRecord.getUserId());
 
         if (currencyId.isEmpty())
             halt(500);
@@ -83,7 +87,7 @@ public class CurrencyApi {
 
         long currencyId = ParamsValidator
                 .longV(request, "currencyId")
-                .matches((id) -> database.userCanEditCurrency(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userCanEditCurrency(sessionsRecord.getUserId(), id))
                 .require();
 
         String code = ParamsValidator
@@ -105,7 +109,7 @@ public class CurrencyApi {
 
         long currencyId = ParamsValidator
                 .longV(request, "currencyId")
-                .matches((id) -> database.userCanEditCurrency(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userCanEditCurrency(sessionsRecord.getUserId(), id))
                 .require();
 
         String symbol = ParamsValidator
@@ -127,7 +131,7 @@ public class CurrencyApi {
 
         long currencyId = ParamsValidator
                 .longV(request, "currencyId")
-                .matches((id) -> database.userCanEditCurrency(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userCanEditCurrency(sessionsRecord.getUserId(), id))
                 .require();
 
         int decimals = ParamsValidator
@@ -149,7 +153,7 @@ public class CurrencyApi {
 
         long currencyId = ParamsValidator
                 .longV(request, "currencyId")
-                .matches((id) -> database.userCanEditCurrency(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userCanEditCurrency(sessionsRecord.getUserId(), id))
                 .require();
 
         String description = ParamsValidator
@@ -11,18 +11,23 @@ import app.finwave.backend.api.event.messages.response.notifications.Notificatio
 import app.finwave.backend.api.event.messages.response.notifications.NotificationSubscribeResponse;
 import app.finwave.backend.api.notification.NotificationDatabase;
 import app.finwave.backend.api.notification.data.point.WebSocketPointData;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.app.NotificationsConfig;
+import app.finwave.backend.config.general.HttpConfig;
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
 import app.finwave.backend.utils.params.ParamsValidator;
 import com.google.gson.JsonSyntaxException;
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static app.finwave.backend.api.ApiResponse.GSON;
 import static app.finwave.backend.api.notification.data.point.NotificationPointType.WEB_SOCKET;
@@ -34,17 +39,25 @@ public class WebSocketClient {
     protected int userId = -1;
 
     protected NotificationDatabase notificationDatabase;
+    protected OwnershipManager ownership;
 
     protected NotificationsConfig notificationsConfig;
 
-    public WebSocketClient(Session session, NotificationDatabase notificationDatabase, WebSocketWorker worker, Configs configs) {
+    protected ArrayDeque<PendingMessage> outbound = new ArrayDeque<>();
+    protected boolean sending;
+    protected ReentrantLock outboundLock = new ReentrantLock();
+    protected int maxPendingMessages;
+
+    public WebSocketClient(Session session, NotificationDatabase notificationDatabase, OwnershipManager ownership, WebSocketWorker worker, Configs configs) {
         this.session = session;
         this.remote = session.getRemote();
 
         this.notificationDatabase = notificationDatabase;
+        this.ownership = ownership;
         this.worker = worker;
 
         this.notificationsConfig = configs.getState(new NotificationsConfig());
+        this.maxPendingMessages = configs.getState(new HttpConfig()).webSocket.maxPendingMessages;
     }
 
     public void onMessage(String rawMessage) throws IOException {
@@ -127,6 +140,8 @@ public class WebSocketClient {
                 new WebSocketPointData(newUUID), description
         );
 
+        ownership.invalidate(userId);
+
         if (pointId.isEmpty()) {
             send(new GenericResponse("Server error", 1));
 
@@ -156,11 +171,74 @@ public class WebSocketClient {
         send(new AuthStatus("Successful"));
     }
 
-    public Future<Void> send(ResponseMessage<?> message) throws IOException {
+    public CompletableFuture<Boolean> send(ResponseMessage<?> message) {
         return send(GSON.toJson(message));
     }
 
-    protected Future<Void> send(String jsonMessage) throws IOException {
-        return remote.sendStringByFuture(jsonMessage);
+    // one write in flight per client, the rest wait in a bounded queue
+    protected CompletableFuture<Boolean> send(String jsonMessage) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        outboundLock.lock();
+
+        try {
+            if (outbound.size() >= maxPendingMessages) {
+                result.complete(false);
+
+                return result;
+            }
+
+            outbound.add(new PendingMessage(jsonMessage, result));
+
+            if (sending)
+                return result;
+
+            sending = true;
+        }finally {
+            outboundLock.unlock();
+        }
+
+        sendNext();
+
+        return result;
     }
+
+    protected void sendNext() {
+        PendingMessage message;
+
+        outboundLock.lock();
+
+        try {
+            message = outbound.poll();
+
+            if (message == null) {
+                sending = false;
+
+                return;
+            }
+        }finally {
+            outboundLock.unlock();
+        }
+
+        try {
+            remote.sendString(message.text(), new WriteCallback() {
+                @Override
+                public void writeFailed(Throwable x) {
+                    message.result().complete(false);
+                    sendNext();
+                }
+
+                @Override
+                public void writeSuccess() {
+                    message.result().complete(true);
+                    sendNext();
+                }
+            });
+        }catch (Exception e) {
+            message.result().complete(false);
+            sendNext();
+        }
+    }
+
+    protected record PendingMessage(String text, CompletableFuture<Boolean> result) {}
 }
@@ -2,6 +2,7 @@ package app.finwave.backend.api.event;
 
 import app.finwave.backend.Main;
 import app.finwave.backend.api.notification.NotificationDatabase;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.database.DatabaseWorker;
 import org.eclipse.jetty.websocket.api.Session;
@@ -11,50 +12,39 @@ import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
 
 @WebSocket
 public class WebSocketHandler {
     protected WebSocketWorker worker;
     protected NotificationDatabase notificationDatabase;
+    protected OwnershipManager ownership;
     protected Configs configs;
 
-    protected HashMap<Session, WebSocketClient> clients = new HashMap<>();
-
-    protected ReentrantLock lock = new ReentrantLock();
+    protected ConcurrentHashMap<Session, WebSocketClient> clients = new ConcurrentHashMap<>();
 
     public WebSocketHandler() {
         worker = Main.INJ.getInstance(WebSocketWorker.class);
         notificationDatabase = Main.INJ.getInstance(DatabaseWorker.class).get(NotificationDatabase.class);
+        ownership = Main.INJ.getInstance(OwnershipManager.class);
         configs = Main.INJ.getInstance(Configs.class);
     }
 
     @OnWebSocketConnect
     public void onConnect(Session session) {
         session.setIdleTimeout(60000);
-        WebSocketClient client = new WebSocketClient(session, notificationDatabase, worker, configs);
-        lock.lock();
-
-        try {
-            clients.put(session, client);
-        }finally {
-            lock.unlock();
-        }
+        WebSocketClient client = new WebSocketClient(session, notificationDatabase, ownership, worker, configs);
+        clients.put(session, client);
 
         worker.registerAnonClient(client);
     }
 
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
-        WebSocketClient client;
-        lock.lock();
+        WebSocketClient client = clients.remove(session);
 
-        try {
-            client = clients.remove(session);
-        }finally {
-            lock.unlock();
-        }
+        if (client == null)
+            return;
 
         if (client.userId == -1) {
             worker.removeAnonClient(client);
@@ -1,86 +1,53 @@
 package app.finwave.backend.api.event;
 
-import app.finwave.backend.api.auth.AuthDatabase;
 import app.finwave.backend.api.event.messages.ResponseMessage;
 import app.finwave.backend.api.event.messages.response.notifications.NotificationEvent;
 import app.finwave.backend.api.notification.data.Notification;
 import app.finwave.backend.api.session.SessionManager;
-import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
 
 import static app.finwave.backend.api.ApiResponse.GSON;
 
 @Singleton
 public class WebSocketWorker {
-    protected HashSet<WebSocketClient> anonClients = new HashSet<>();
-    protected HashMap<Integer, HashSet<WebSocketClient>> authedClients = new HashMap<>();
+    protected Set<WebSocketClient> anonClients = ConcurrentHashMap.newKeySet();
+    // sends iterate a snapshot, so fan-out never waits for auth or disconnect
+    protected ConcurrentHashMap<Integer, CopyOnWriteArraySet<WebSocketClient>> authedClients = new ConcurrentHashMap<>();
 
-    protected HashMap<UUID, WebSocketClient> notificationSubscribes = new HashMap<>();
-    protected HashMap<WebSocketClient, UUID> reversedNotificationSubscribes = new HashMap<>();
-
-    protected ReentrantLock anonLock = new ReentrantLock();
-    protected ReentrantLock authedLock = new ReentrantLock();
-    protected ReentrantLock notificationLock = new ReentrantLock();
-
-    protected HashMap<Integer, ReentrantLock> authedLocks = new HashMap<>();
+    protected ConcurrentHashMap<UUID, WebSocketClient> notificationSubscribes = new ConcurrentHashMap<>();
+    protected ConcurrentHashMap<WebSocketClient, UUID> reversedNotificationSubscribes = new ConcurrentHashMap<>();
 
     protected SessionManager sessionManager;
 
-    protected ExecutorService executor = Executors.newCachedThreadPool();
-
     @Inject
     public WebSocketWorker(SessionManager sessionManager) {
         this.sessionManager = sessionManager;
     }
 
     public void registerAnonClient(WebSocketClient client) {
-        anonLock.lock();
-
-        try {
-            anonClients.add(client);
-        }finally {
-            anonLock.unlock();
-        }
+        anonClients.add(client);
     }
 
     public void removeAnonClient(WebSocketClient client) {
-        anonLock.lock();
-
-        try {
-            anonClients.remove(client);
-        }finally {
-            anonLock.unlock();
-        }
+        anonClients.remove(client);
     }
 
     public void removeAuthedClient(WebSocketClient client, int userId) {
-        ReentrantLock setLock = getAuthedLock(userId);
-
-        authedLock.lock();
-        setLock.lock();
-
-        try {
-            authedClients.computeIfAbsent(userId, k -> new HashSet<>()).remove(client);
-        }finally {
-            authedLock.unlock();
-            setLock.unlock();
-        }
-
-        notificationLock.lock();
-
-        try {
-            UUID removed = reversedNotificationSubscribes.remove(client);
-            notificationSubscribes.remove(removed);
-        }finally {
-            notificationLock.unlock();
-        }
+        authedClients.computeIfPresent(userId, (k, clients) -> {
+            clients.remove(client);
+
+            return clients.isEmpty() ? null : clients;
+        });
+
+        UUID removed = reversedNotificationSubscribes.remove(client);
+
+        if (removed != null)
+            notificationSubscribes.remove(removed, client);
     }
 
     public Optional<UsersSessionsRecord> authClient(WebSocketClient client, String token) {
@@ -91,151 +58,50 @@ public class WebSocketWorker {
 
         int userId = record.get().getUserId();
 
-        ReentrantLock setLock = getAuthedLock(userId);
+        anonClients.remove(client);
+        authedClients.compute(userId, (k, clients) -> {
+            if (clients == null)
+                clients = new CopyOnWriteArraySet<>();
 
-        anonLock.lock();
-        authedLock.lock();
-        setLock.lock();
+            clients.add(client);
 
-        try {
-            anonClients.remove(client);
-            authedClients.computeIfAbsent(userId, k -> new HashSet<>()).add(client);
-        }finally {
-            setLock.unlock();
-            authedLock.unlock();
-            anonLock.unlock();
-        }
+            return clients;
+        });
 
         return record;
     }
 
     public boolean subscribeNotification(WebSocketClient client, UUID pointUUID) {
-        notificationLock.lock();
+        if (notificationSubscribes.putIfAbsent(pointUUID, client) != null)
+            return false;
 
-        try {
-            if (notificationSubscribes.containsKey(pointUUID))
-                return false;
+        reversedNotificationSubscribes.put(client, pointUUID);
 
-            notificationSubscribes.put(pointUUID, client);
-            reversedNotificationSubscribes.put(client, pointUUID);
-
-            return true;
-        }finally {
-            notificationLock.unlock();
-        }
-    }
-
-    protected HashSet<WebSocketClient> getUserClients(int userId) {
-        authedLock.lock();
-
-        try {
-            return authedClients.computeIfAbsent(userId, k -> new HashSet<>());
-        }finally {
-            authedLock.unlock();
-        }
-    }
-
-    protected ReentrantLock getAuthedLock(int userId) {
-        authedLock.lock();
-
-        try {
-            return authedLocks.computeIfAbsent(userId, k -> new ReentrantLock());
-        }finally {
-            authedLock.unlock();
-        }
+        return true;
     }
 
     public CompletableFuture<Boolean> sendNotification(UUID uuid, Notification notification) {
-        CompletableFuture<Boolean> result = new CompletableFuture<>();
-
-        executor.submit(() -> {
-            boolean taskResult = false;
-            WebSocketClient client;
-
-            notificationLock.lock();
-            try {
-                if (!notificationSubscribes.containsKey(uuid)) {
-                    result.complete(taskResult);
-
-                    return;
-                }
+        WebSocketClient client = notificationSubscribes.get(uuid);
 
-                client = notificationSubscribes.get(uuid);
-            }finally {
-                notificationLock.unlock();
-            }
+        if (client == null)
+            return CompletableFuture.completedFuture(false);
 
-            try {
-                if (client != null) {
-                    client.send(new NotificationEvent(notification)).get();
-
-                    taskResult = true;
-                }
-            }catch (Exception ignored) {}
-
-
-            result.complete(taskResult);
-        });
-
-        return result;
+        return client.send(new NotificationEvent(notification));
     }
 
     public CompletableFuture<Boolean> sendToUser(int userId, ResponseMessage<?> message) {
-        ReentrantLock lock = getAuthedLock(userId);
-        HashSet<WebSocketClient> clients = getUserClients(userId);
-        String rawMessage = GSON.toJson(message);
-        CompletableFuture<Boolean> result = new CompletableFuture<>();
-
-        CompletableFuture<Boolean>[] tasks = new CompletableFuture[clients.size()];
-        AtomicBoolean anyoneSuccess = new AtomicBoolean(false);
-        int i = 0;
-
-        lock.lock();
-
-        try {
-            if (clients.isEmpty())
-                return CompletableFuture.completedFuture(false);
-
-            for (WebSocketClient client : clients) {
-                CompletableFuture<Boolean> future = new CompletableFuture<>();
+        Set<WebSocketClient> clients = authedClients.get(userId);
 
-                future.whenComplete((r, t) -> {
-                    if (t != null || !r)
-                        return;
+        if (clients == null || clients.isEmpty())
+            return CompletableFuture.completedFuture(false);
 
-                    anyoneSuccess.compareAndSet(false, true);
-                });
-
-                tasks[i] = future;
-
-                executor.submit(() -> {
-                    boolean taskResult = false;
-
-                    try {
-                        client.send(rawMessage).get();
-                        taskResult = true;
-                    } catch (Exception ignored) {
-
-                    }
-
-                    future.complete(taskResult);
-                });
-
-                i++;
-            }
-        }finally {
-            lock.unlock();
-        }
-
-        CompletableFuture.allOf(tasks).whenComplete((r, t) -> {
-            if (t != null) {
-                result.completeExceptionally(t);
-                return;
-            }
+        String rawMessage = GSON.toJson(message);
 
-            result.complete(anyoneSuccess.get());
-        });
+        List<CompletableFuture<Boolean>> tasks = clients.stream()
+                .map((client) -> client.send(rawMessage))
+                .toList();
 
-        return result;
+        return CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .thenApply((v) -> tasks.stream().anyMatch(CompletableFuture::join));
     }
 }
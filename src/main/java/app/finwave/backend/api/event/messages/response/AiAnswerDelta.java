@@ -0,0 +1,25 @@
+package app.finwave.backend.api.event.messages.response;
+
+import app.finwave.backend.api.event.messages.MessageBody;
+import app.finwave.backend.api.event.messages.ResponseMessage;
+
+public class AiAnswerDelta extends ResponseMessage<AiAnswerDelta.Delta> {
+    // status is "streaming" with the next piece of text, "done" with the whole answer or "failed"
+    public AiAnswerDelta(String requestId, long contextId, String text, String status) {
+        super("aiDelta", new Delta(requestId, contextId, text, status));
+    }
+
+    protected static class Delta extends MessageBody {
+        public final String requestId;
+        public final long contextId;
+        public final String text;
+        public final String status;
+
+        protected Delta(String requestId, long contextId, String text, String status) {
+            this.requestId = requestId;
+            this.contextId = contextId;
+            this.text = text;
+            this.status = status;
+        }
+    }
+}
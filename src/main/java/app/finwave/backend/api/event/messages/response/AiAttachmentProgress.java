@@ -0,0 +1,27 @@
+package app.finwave.backend.api.event.messages.response;
+
+import app.finwave.backend.api.event.messages.MessageBody;
+import app.finwave.backend.api.event.messages.ResponseMessage;
+
+public class AiAttachmentProgress extends ResponseMessage<AiAttachmentProgress.Progress> {
+    // status is "processing", "attached" or "failed"
+    public AiAttachmentProgress(long contextId, String fileId, int pagesDone, int pagesTotal, String status) {
+        super("aiAttachment", new Progress(contextId, fileId, pagesDone, pagesTotal, status));
+    }
+
+    protected static class Progress extends MessageBody {
+        public final long contextId;
+        public final String fileId;
+        public final int pagesDone;
+        public final int pagesTotal;
+        public final String status;
+
+        protected Progress(long contextId, String fileId, int pagesDone, int pagesTotal, String status) {
+            this.contextId = contextId;
+            this.fileId = fileId;
+            this.pagesDone = pagesDone;
+            this.pagesTotal = pagesTotal;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package app.finwave.backend.api.files;
+
+// outcome of taking a reference to a blob
+public enum BlobState {
+    // the content is stored, the new reference shares it
+    STORED,
+    // the reference is taken, the content has to be committed by the caller
+    MISSING,
+    // the last reference is gone and the content is being deleted, no reference is taken
+    DELETING
+}
@@ -21,11 +21,13 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystemException;
+import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -279,7 +281,7 @@ public class FilesApi {
             throw new InvalidParameterException("fileId");
         }
 
-        return verifyAndSend(record.get(), response);
+        return send(record.get(), request, response);
     }
 
     public Object downloadWithAuth(Request request, Response response) {
@@ -293,43 +295,136 @@ public class FilesApi {
         if (record.isEmpty())
             throw new InvalidParameterException("fileId");
 
-        return verifyAndSend(record.get(), response);
+        return send(record.get(), request, response);
     }
 
-    protected Object verifyAndSend(FilesRecord record, Response response) {
-        if (!manager.verify(record))
+    protected Object send(FilesRecord record, Request request, Response response) {
+        if (record.getChecksum() == null || manager.isCorrupted(record))
             throw new RuntimeException("Verification file checksum failed: does not exist or corrupted");
 
+        String etag = "\"" + record.getChecksum() + "\"";
+
+        response.header("ETag", etag);
+        response.header("Accept-Ranges", "bytes");
+
+        String ifNoneMatch = request.headers("If-None-Match");
+
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || Arrays.stream(ifNoneMatch.split(",")).map(String::trim).anyMatch(etag::equals))) {
+            response.status(304);
+
+            return "";
+        }
+
+        long length = record.getSize();
+        long start = 0;
+        long end = length - 1;
+
+        String range = request.headers("Range");
+
+        if (range != null) {
+            long[] parsed = parseRange(range, length);
+
+            if (parsed == null) {
+                response.header("Content-Range", "bytes */" + length);
+                response.status(416);
+
+                return "";
+            }
+
+            start = parsed[0];
+            end = parsed[1];
+        }
+
+        // local storage sends with zero-copy transfer, remote storage streams the ranged response through
         Optional<File> optionalFile = manager.getFile(record);
+        Optional<InputStream> optionalStream = optionalFile.isEmpty() && length > 0 ?
+                manager.openRead(record, start, end) : Optional.empty();
 
-        if (optionalFile.isEmpty())
+        if (optionalFile.isEmpty() && optionalStream.isEmpty() && length > 0)
             throw new RuntimeException("Fail getting file");
 
-        File file = optionalFile.get();
+        if (range != null) {
+            response.header("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            response.status(206);
+        }else {
+            response.status(200);
+        }
 
         response.header("Content-Type", record.getMimeType());
         response.header("Content-Disposition", "attachment;filename=" + URLEncoder.encode(record.getName(), StandardCharsets.UTF_8).replaceAll("\\+", " "));
+        response.raw().setContentLengthLong(end - start + 1);
 
         try {
-            try(BufferedOutputStream outputStream = new BufferedOutputStream(response.raw().getOutputStream());
-                BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(file)))
-            {
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = bufferedInputStream.read(buffer)) > 0)
-                    outputStream.write(buffer, 0, len);
+            OutputStream output = response.raw().getOutputStream();
+
+            if (optionalFile.isPresent()) {
+                transfer(optionalFile.get(), start, end - start + 1, Channels.newChannel(output));
+            }else if (optionalStream.isPresent()) {
+                try (InputStream stream = optionalStream.get()) {
+                    stream.transferTo(output);
+                }
             }
+
+            output.flush();
         } catch (Exception e) {
             e.printStackTrace();
 
             throw new RuntimeException("Fail sending file");
         }
 
-        response.status(200);
-
         return response.raw();
     }
 
+    protected static void transfer(File file, long position, long remaining, WritableByteChannel output) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, output);
+
+                if (sent <= 0)
+                    break;
+
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    // single "bytes=a-b", "bytes=a-" or "bytes=-n" range, null if unsatisfiable
+    protected static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.contains(","))
+            return null;
+
+        String[] parts = header.substring(6).trim().split("-", -1);
+
+        if (parts.length != 2)
+            return null;
+
+        try {
+            long start;
+            long end;
+
+            if (parts[0].isEmpty()) {
+                long suffix = Long.parseLong(parts[1]);
+
+                if (suffix <= 0)
+                    return null;
+
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            }else {
+                start = Long.parseLong(parts[0]);
+                end = parts[1].isEmpty() ? length - 1 : Math.min(Long.parseLong(parts[1]), length - 1);
+            }
+
+            if (start < 0 || start > end || start >= length)
+                return null;
+
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     static class GetListResponse extends ApiResponse {
         public final List<Entry> files;
 
@@ -1,10 +1,12 @@
 package app.finwave.backend.api.files;
 
 import app.finwave.backend.database.AbstractDatabase;
+import app.finwave.backend.jooq.tables.records.FilesBlobsRecord;
 import app.finwave.backend.jooq.tables.records.FilesRecord;
 import app.finwave.backend.utils.TokenGenerator;
 import org.jooq.DSLContext;
 import org.jooq.Record1;
+import org.jooq.impl.DSL;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
@@ -47,6 +49,8 @@ public class FilesDatabase extends AbstractDatabase {
                 .set(FILES.NAME, name)
                 .set(FILES.DESCRIPTION, description)
                 .set(FILES.CHECKSUM, checksum)
+                .set(FILES.VERIFIED_AT, (OffsetDateTime) null)
+                .set(FILES.CORRUPTED, false)
                 .where(FILES.ID.eq(token))
                 .returningResult(FILES)
                 .fetchOptional()
@@ -60,6 +64,29 @@ public class FilesDatabase extends AbstractDatabase {
                 .fetchOptional();
     }
 
+    // claims the written files verified longest ago, files claimed by another node at the same time are skipped
+    public List<FilesRecord> claimFilesToVerify(int count) {
+        return context.update(FILES)
+                .set(FILES.VERIFIED_AT, OffsetDateTime.now())
+                .where(FILES.ID.in(context.select(FILES.ID)
+                        .from(FILES)
+                        .where(FILES.CHECKSUM.isNotNull())
+                        .orderBy(FILES.VERIFIED_AT.asc().nullsFirst())
+                        .limit(count)
+                        .forUpdate()
+                        .skipLocked()))
+                .returningResult(FILES)
+                .fetch()
+                .map(Record1::component1);
+    }
+
+    public void setCorrupted(String token, boolean corrupted) {
+        context.update(FILES)
+                .set(FILES.CORRUPTED, corrupted)
+                .where(FILES.ID.eq(token))
+                .execute();
+    }
+
     public List<FilesRecord> getUserFiles(int userId) {
         return context.selectFrom(FILES)
                 .where(FILES.OWNER_ID.eq(userId))
@@ -108,4 +135,94 @@ public class FilesDatabase extends AbstractDatabase {
                 .fetchOptional()
                 .map(Record1::component1);
     }
+
+    // serializes every change of the blob across nodes until the end of the current transaction
+    public void lockBlob(String checksum) {
+        context.resultQuery("select pg_advisory_xact_lock(hashtext({0}))", DSL.val(checksum)).fetch();
+    }
+
+    // a deletion older than this is taken for abandoned by its node
+    protected static final int BLOB_DELETION_LEASE_SECONDS = 60;
+
+    public BlobState acquireBlob(String checksum, long size) {
+        Optional<FilesBlobsRecord> blob = context.selectFrom(FILES_BLOBS)
+                .where(FILES_BLOBS.CHECKSUM.eq(checksum))
+                .fetchOptional();
+
+        if (blob.isEmpty()) {
+            context.insertInto(FILES_BLOBS)
+                    .set(FILES_BLOBS.CHECKSUM, checksum)
+                    .set(FILES_BLOBS.SIZE, size)
+                    .set(FILES_BLOBS.REFERENCES_COUNT, 1)
+                    .set(FILES_BLOBS.STORED, false)
+                    .execute();
+
+            return BlobState.MISSING;
+        }
+
+        if (blob.get().getDeletingAt() != null) {
+            boolean deleting = context.select(DSL.field(DSL.condition("{0} > now() - make_interval(secs => {1})",
+                            FILES_BLOBS.DELETING_AT, DSL.val(BLOB_DELETION_LEASE_SECONDS))))
+                    .from(FILES_BLOBS)
+                    .where(FILES_BLOBS.CHECKSUM.eq(checksum))
+                    .fetchOne(Record1::component1);
+
+            if (deleting)
+                return BlobState.DELETING;
+
+            // the content may or may not be deleted, it is written again
+            context.update(FILES_BLOBS)
+                    .set(FILES_BLOBS.SIZE, size)
+                    .set(FILES_BLOBS.REFERENCES_COUNT, 1)
+                    .set(FILES_BLOBS.STORED, false)
+                    .setNull(FILES_BLOBS.DELETING_AT)
+                    .where(FILES_BLOBS.CHECKSUM.eq(checksum))
+                    .execute();
+
+            return BlobState.MISSING;
+        }
+
+        context.update(FILES_BLOBS)
+                .set(FILES_BLOBS.REFERENCES_COUNT, FILES_BLOBS.REFERENCES_COUNT.plus(1))
+                .where(FILES_BLOBS.CHECKSUM.eq(checksum))
+                .execute();
+
+        return blob.get().getStored() ? BlobState.STORED : BlobState.MISSING;
+    }
+
+    public void setBlobStored(String checksum) {
+        context.update(FILES_BLOBS)
+                .set(FILES_BLOBS.STORED, true)
+                .where(FILES_BLOBS.CHECKSUM.eq(checksum))
+                .execute();
+    }
+
+    // true if it was the last reference: the blob is marked deleting and its content can be deleted
+    public boolean releaseBlob(String checksum) {
+        int left = context.update(FILES_BLOBS)
+                .set(FILES_BLOBS.REFERENCES_COUNT, FILES_BLOBS.REFERENCES_COUNT.minus(1))
+                .where(FILES_BLOBS.CHECKSUM.eq(checksum))
+                .returningResult(FILES_BLOBS.REFERENCES_COUNT)
+                .fetchOptional()
+                .map(Record1::component1)
+                .orElse(1);
+
+        if (left > 0)
+            return false;
+
+        context.update(FILES_BLOBS)
+                .set(FILES_BLOBS.STORED, false)
+                .set(FILES_BLOBS.DELETING_AT, DSL.currentOffsetDateTime())
+                .where(FILES_BLOBS.CHECKSUM.eq(checksum))
+                .execute();
+
+        return true;
+    }
+
+    // unless the deletion was taken for abandoned and the blob written again meanwhile
+    public void deleteBlob(String checksum) {
+        context.deleteFrom(FILES_BLOBS)
+                .where(FILES_BLOBS.CHECKSUM.eq(checksum).and(FILES_BLOBS.DELETING_AT.isNotNull()))
+                .execute();
+    }
 }
@@ -2,18 +2,22 @@ package app.finwave.backend.api.files;
 
 import app.finwave.backend.api.event.WebSocketWorker;
 import app.finwave.backend.api.event.messages.response.NotifyUpdate;
+import app.finwave.backend.api.files.storage.FileStorage;
+import app.finwave.backend.api.files.storage.LocalFileStorage;
+import app.finwave.backend.api.files.storage.S3FileStorage;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.CachingConfig;
 import app.finwave.backend.config.general.FilesConfig;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.InvalidationBus;
 import app.finwave.backend.jooq.tables.records.FilesRecord;
 import app.finwave.backend.utils.CacheHandyBuilder;
 import com.google.common.cache.LoadingCache;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.jooq.DSLContext;
 
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
@@ -28,9 +32,15 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Singleton
 public class FilesManager {
+    protected static final String TOPIC = "files";
+    protected static final long BLOB_DELETION_POLL_MILLIS = 100;
+
+    protected DatabaseWorker databaseWorker;
+    protected DSLContext context;
     protected FilesDatabase database;
     protected CachingConfig cachingConfig;
     protected FilesConfig config;
@@ -42,19 +52,29 @@ public class FilesManager {
     protected ConcurrentHashMap<LimitedWithCallbackOutputStream, FileWriteData> openStreams = new ConcurrentHashMap<>();
     protected ConcurrentHashMap<Integer, ReentrantLock> userWriteLocks = new ConcurrentHashMap<>();
 
-    public static final Path filesPath = Path.of("./files/");
+    protected FileStorage storage;
 
     protected WebSocketWorker socketWorker;
+    protected InvalidationBus invalidationBus;
 
     protected ArrayList<Consumer<FilesRecord>> fileDeletionListeners = new ArrayList<>();
 
     @Inject
-    public FilesManager(DatabaseWorker worker, Configs configs, WebSocketWorker socketWorker) {
+    public FilesManager(DatabaseWorker worker, Configs configs, WebSocketWorker socketWorker, InvalidationBus invalidationBus) {
+        this.databaseWorker = worker;
+        this.context = worker.getDefaultContext();
         this.database = worker.get(FilesDatabase.class);
         this.cachingConfig = configs.getState(new CachingConfig());
         this.config = configs.getState(new FilesConfig());
 
         this.socketWorker = socketWorker;
+        this.invalidationBus = invalidationBus;
+
+        this.storage = switch (config.storage.type) {
+            case "local" -> new LocalFileStorage(Path.of(config.storage.localPath));
+            case "s3" -> new S3FileStorage(config.storage.s3);
+            default -> throw new IllegalArgumentException("Unknown file storage: " + config.storage.type);
+        };
 
         this.fileCache = CacheHandyBuilder.loading(
                 7, TimeUnit.DAYS,
@@ -74,6 +94,18 @@ public class FilesManager {
                 (userId) -> new ArrayList<>(database.getUserFiles(userId)),
                 (e) -> userUsageCache.invalidate(e.getKey())
         );
+
+        invalidationBus.subscribe(TOPIC, (key) -> {
+            int userId = Integer.parseInt(key);
+
+            userFilesCache.invalidate(userId);
+            userUsageCache.invalidate(userId);
+            fileCache.asMap().values().removeIf((r) -> r.isPresent() && r.get().getOwnerId() == userId);
+        }, () -> {
+            userFilesCache.invalidateAll();
+            userUsageCache.invalidateAll();
+            fileCache.invalidateAll();
+        });
     }
 
     public boolean userOwnFile(int userId, String fileId) {
@@ -162,9 +194,7 @@ public class FilesManager {
 
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
-            File file = getOrCreateFile(record);
-
-            OutputStream os = new FileOutputStream(file);
+            OutputStream os = storage.openStream(getTempKey(record.getId()));
             DigestOutputStream dos = new DigestOutputStream(os, md);
             limitedOutputStream = new LimitedWithCallbackOutputStream(
                     dos, bytesAvailable,
@@ -206,7 +236,74 @@ public class FilesManager {
         for (byte b : bytes)
             sb.append(String.format("%02x", b));
 
-        updateFileInfo(fileWriteData.record().getId(), stream.getBytesWritten(), mimeType, name, description, sb.toString());
+        String checksum = sb.toString();
+        FilesRecord record = fileWriteData.record();
+
+        // the checksum is taken from the written bytes, storage confirms the size on commit
+        storeBlob(getTempKey(record.getId()), checksum, stream.getBytesWritten());
+
+        String previousChecksum = getFileRecord(record.getId())
+                .map(FilesRecord::getChecksum)
+                .orElse(null);
+
+        if (previousChecksum != null)
+            releaseBlob(previousChecksum);
+
+        updateFileInfo(record.getId(), stream.getBytesWritten(), mimeType, name, description, checksum);
+    }
+
+    // only the reference count changes under the blob lock, storage is called after the change is committed
+    protected void storeBlob(String tempKey, String checksum, long size) throws IOException {
+        BlobState state;
+
+        // the content can't be written again until its deletion is over
+        while ((state = inBlobTransaction(checksum, (blobs) -> blobs.acquireBlob(checksum, size))) == BlobState.DELETING)
+            waitBlobDeletion();
+
+        if (state == BlobState.STORED) {
+            storage.discard(tempKey);
+
+            return;
+        }
+
+        // the taken reference keeps the content from deletion, nodes storing the same content at once commit identical objects
+        try {
+            storage.commit(tempKey, getBlobKey(checksum), size);
+        } catch (IOException e) {
+            releaseBlob(checksum);
+
+            throw e;
+        }
+
+        database.setBlobStored(checksum);
+    }
+
+    protected void releaseBlob(String checksum) throws IOException {
+        if (!inBlobTransaction(checksum, (blobs) -> blobs.releaseBlob(checksum)))
+            return;
+
+        storage.deleteFile(getBlobKey(checksum));
+        database.deleteBlob(checksum);
+    }
+
+    protected <T> T inBlobTransaction(String checksum, Function<FilesDatabase, T> action) {
+        return context.transactionResult((configuration) -> {
+            FilesDatabase blobs = databaseWorker.get(FilesDatabase.class, configuration.dsl());
+
+            blobs.lockBlob(checksum);
+
+            return action.apply(blobs);
+        });
+    }
+
+    protected void waitBlobDeletion() throws IOException {
+        try {
+            Thread.sleep(BLOB_DELETION_POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException(e);
+        }
     }
 
     public Optional<FilesRecord> registerNewEmptyFile(int userId, OffsetDateTime createdAt, OffsetDateTime expiresAt, boolean isPublic, String source) {
@@ -222,6 +319,7 @@ public class FilesManager {
         if (userList != null)
             userList.add(result.get());
 
+        invalidationBus.publish(TOPIC, userId);
         socketWorker.sendToUser(userId, new NotifyUpdate("files"));
 
         return result;
@@ -239,6 +337,7 @@ public class FilesManager {
         if (record != null) {
             fileCache.put(record.getId(), Optional.of(record));
             userFilesCache.invalidate(record.getOwnerId());
+            invalidationBus.publish(TOPIC, record.getOwnerId());
 
             socketWorker.sendToUser(record.getOwnerId(), new NotifyUpdate("files"));
         }
@@ -270,6 +369,7 @@ public class FilesManager {
         deletedFile.ifPresent(record -> {
             fileCache.invalidate(record.getId());
             userFilesCache.invalidate(record.getOwnerId());
+            invalidationBus.publish(TOPIC, record.getOwnerId());
 
             try {
                 deleteFile(record);
@@ -302,6 +402,7 @@ public class FilesManager {
         );
 
         userFilesCache.invalidate(userId);
+        invalidationBus.publish(TOPIC, userId);
 
         deletedFiles.forEach((r) ->
                 fileDeletionListeners.forEach((l) -> l.accept(r))
@@ -333,6 +434,7 @@ public class FilesManager {
         );
 
         userFilesCache.invalidateAll(usersAffected);
+        invalidationBus.publish(TOPIC, usersAffected);
 
         deletedFiles.forEach((r) ->
                 fileDeletionListeners.forEach((l) -> l.accept(r))
@@ -345,73 +447,143 @@ public class FilesManager {
         return deletedFiles;
     }
 
+    // local file of the content, empty for remote storages or unwritten files
     public Optional<File> getFile(FilesRecord fileRecord) {
-        File target = getFile(fileRecord.getId());
+        if (fileRecord.getChecksum() == null)
+            return Optional.empty();
 
-        return Optional.ofNullable(target.exists() && target.isFile() ? target : null);
+        return storage.getFile(getBlobKey(fileRecord.getChecksum()));
     }
 
-    private File getOrCreateFile(FilesRecord fileRecord) throws IOException {
-        File target = getFile(fileRecord.getId());
+    // end is inclusive
+    public Optional<InputStream> openRead(FilesRecord fileRecord, long start, long end) {
+        return readBlob(fileRecord, (key) -> storage.openRead(key, start, end));
+    }
 
-        if (!target.exists()) {
-            File parent = target.getParentFile();
-            if (parent != null)
-                target.getParentFile().mkdirs();
+    public Optional<byte[]> readAllBytes(FilesRecord fileRecord) {
+        if (fileRecord.getChecksum() == null)
+            return Optional.empty();
 
-            target.createNewFile();
-        }
+        if (fileRecord.getSize() == null || fileRecord.getSize() == 0)
+            return Optional.of(new byte[0]);
 
-        if (!target.isFile()) {
-            throw new FileNotFoundException();
-        }
+        return openRead(fileRecord, 0, fileRecord.getSize() - 1).flatMap((stream) -> {
+            try (stream) {
+                return Optional.of(stream.readAllBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
 
-        return target;
+                return Optional.empty();
+            }
+        });
     }
 
-    public boolean verify(FilesRecord fileRecord) {
-        Optional<File> fileOptional = getFile(fileRecord);
+    // the blob is read directly, only a missing one is looked for under the legacy key
+    protected <T> Optional<T> readBlob(FilesRecord fileRecord, BlobRead<T> read) {
+        if (fileRecord.getChecksum() == null)
+            return Optional.empty();
 
-        if (fileOptional.isEmpty())
-            return false;
+        String blobKey = getBlobKey(fileRecord.getChecksum());
 
         try {
-            return getFileChecksum(fileOptional.get()).equals(fileRecord.getChecksum());
-        } catch (NoSuchAlgorithmException | IOException e) {
+            return Optional.of(read.read(blobKey));
+        } catch (FileNotFoundException e) {
+            moveLegacyFile(fileRecord);
+        } catch (IOException e) {
             e.printStackTrace();
 
-            return false;
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(read.read(blobKey));
+        } catch (FileNotFoundException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            e.printStackTrace();
+
+            return Optional.empty();
         }
     }
 
-    private void deleteFile(FilesRecord fileRecord) throws IOException {
-        Optional<File> file = getFile(fileRecord);
+    // files written before the blob store are moved in on first access, the record's reference keeps the blob from deletion
+    protected void moveLegacyFile(FilesRecord fileRecord) {
+        String legacyKey = getLegacyKey(fileRecord.getId());
+
+        try {
+            if (!storage.exists(legacyKey))
+                return;
 
-        if (file.isPresent())
-            Files.delete(file.get().toPath());
+            storage.commit(legacyKey, getBlobKey(fileRecord.getChecksum()), fileRecord.getSize());
+            database.setBlobStored(fileRecord.getChecksum());
+        } catch (IOException e) {
+            // another node may have moved it first, the read is retried anyway
+            e.printStackTrace();
+        }
     }
 
-    private File getFile(String token) {
-        return filesPath.resolve(token.charAt(0) + "/" + token).toFile();
+    public boolean isCorrupted(FilesRecord fileRecord) {
+        return fileRecord.getCorrupted();
     }
 
-    private String getFileChecksum(File file) throws NoSuchAlgorithmException, IOException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    // verifies the count files checked longest ago, the state is shared by every node
+    public List<FilesRecord> scrub(int count) {
+        List<FilesRecord> records = database.claimFilesToVerify(count);
 
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] byteArray = new byte[1024];
-            int bytesCount;
-            while ((bytesCount = fis.read(byteArray)) != -1) {
-                digest.update(byteArray, 0, bytesCount);
-            }
+        ArrayList<FilesRecord> corrupted = new ArrayList<>();
+        HashSet<Integer> usersAffected = new HashSet<>();
+
+        for (FilesRecord record : records) {
+            if (openStreams.values().stream().anyMatch((d) -> d.record().getId().equals(record.getId())))
+                continue;
+
+            boolean valid = verify(record);
+
+            if (valid == !record.getCorrupted())
+                continue;
+
+            database.setCorrupted(record.getId(), !valid);
+            fileCache.invalidate(record.getId());
+            usersAffected.add(record.getOwnerId());
+
+            if (!valid)
+                corrupted.add(record);
         }
 
-        byte[] bytes = digest.digest();
-        StringBuilder sb = new StringBuilder();
+        userFilesCache.invalidateAll(usersAffected);
+        invalidationBus.publish(TOPIC, usersAffected);
 
-        for (byte b : bytes)
-            sb.append(String.format("%02x", b));
+        return corrupted;
+    }
+
+    public boolean verify(FilesRecord fileRecord) {
+        return readBlob(fileRecord, (key) -> storage.verify(key, fileRecord.getSize(), fileRecord.getChecksum()))
+                .orElse(false);
+    }
+
+    protected interface BlobRead<T> {
+        // a missing key throws FileNotFoundException
+        T read(String key) throws IOException;
+    }
+
+    private void deleteFile(FilesRecord fileRecord) throws IOException {
+        storage.discard(getLegacyKey(fileRecord.getId()));
+        storage.discard(getTempKey(fileRecord.getId()));
+
+        if (fileRecord.getChecksum() != null)
+            releaseBlob(fileRecord.getChecksum());
+    }
+
+    // content addressed by checksum, shared by every file record with that content
+    private String getBlobKey(String checksum) {
+        return "blobs/" + checksum.substring(0, 2) + "/" + checksum;
+    }
+
+    private String getTempKey(String token) {
+        return "tmp/" + token;
+    }
 
-        return sb.toString();
+    private String getLegacyKey(String token) {
+        return token.charAt(0) + "/" + token;
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package app.finwave.backend.api.files.storage;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+public interface FileStorage {
+    // written content stays under stagingKey until commit moves it to its final key
+    OutputStream openStream(String stagingKey) throws IOException;
+
+    void commit(String stagingKey, String key, long expectedSize) throws IOException;
+
+    void discard(String stagingKey) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    // end is inclusive, a missing key throws FileNotFoundException
+    InputStream openRead(String key, long start, long end) throws IOException;
+
+    // only for storages backed by the local filesystem, lets downloads use zero-copy transfer
+    Optional<File> getFile(String key);
+
+    void deleteFile(String key) throws IOException;
+
+    default boolean verify(String key, long size, String checksum) throws FileNotFoundException {
+        try (InputStream stream = openRead(key, 0, size - 1)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+
+            while ((read = stream.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+
+            return HexFormat.of().formatHex(digest.digest()).equals(checksum);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            e.printStackTrace();
+
+            return false;
+        }
+    }
+}
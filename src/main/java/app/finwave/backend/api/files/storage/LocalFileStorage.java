@@ -0,0 +1,84 @@
+package app.finwave.backend.api.files.storage;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+public class LocalFileStorage implements FileStorage {
+    protected Path root;
+
+    public LocalFileStorage(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public OutputStream openStream(String stagingKey) throws IOException {
+        Path target = resolve(stagingKey);
+
+        Files.createDirectories(target.getParent());
+
+        return new FileOutputStream(target.toFile());
+    }
+
+    @Override
+    public void commit(String stagingKey, String key, long expectedSize) throws IOException {
+        Path staging = resolve(stagingKey);
+
+        if (!Files.isRegularFile(staging) || Files.size(staging) != expectedSize) {
+            Files.deleteIfExists(staging);
+
+            throw new IOException("Written file size mismatch");
+        }
+
+        Path target = resolve(key);
+
+        Files.createDirectories(target.getParent());
+        Files.move(staging, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void discard(String stagingKey) throws IOException {
+        Files.deleteIfExists(resolve(stagingKey));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public InputStream openRead(String key, long start, long end) throws IOException {
+        InputStream stream;
+
+        try {
+            stream = Files.newInputStream(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(key);
+        }
+
+        stream.skipNBytes(start);
+
+        return ByteStreams.limit(stream, end - start + 1);
+    }
+
+    @Override
+    public Optional<File> getFile(String key) {
+        File file = resolve(key).toFile();
+
+        return Optional.ofNullable(file.isFile() ? file : null);
+    }
+
+    @Override
+    public void deleteFile(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    protected Path resolve(String key) {
+        return root.resolve(key);
+    }
+}
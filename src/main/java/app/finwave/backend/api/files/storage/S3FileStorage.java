@@ -0,0 +1,358 @@
+package app.finwave.backend.api.files.storage;
+
+import app.finwave.backend.config.general.FilesConfig;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// S3-compatible object storage over plain HTTP with SigV4 signing, writes are streamed as multipart uploads
+public class S3FileStorage implements FileStorage {
+    protected static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    protected FilesConfig.S3Config config;
+    protected String endpoint;
+    protected int partSize;
+
+    protected HttpClient client = HttpClient.newHttpClient();
+
+    public S3FileStorage(FilesConfig.S3Config config) {
+        this.config = config;
+        this.endpoint = config.endpoint.endsWith("/") ? config.endpoint.substring(0, config.endpoint.length() - 1) : config.endpoint;
+        this.partSize = Math.max(5, config.partSizeMiB) * 1024 * 1024;
+    }
+
+    @Override
+    public OutputStream openStream(String stagingKey) {
+        return new MultipartOutputStream(stagingKey);
+    }
+
+    @Override
+    public void commit(String stagingKey, String key, long expectedSize) throws IOException {
+        HttpResponse<Void> head = send("HEAD", stagingKey, Map.of(), Map.of(), new byte[0], HttpResponse.BodyHandlers.discarding());
+        long size = head.headers().firstValueAsLong("Content-Length").orElse(-1);
+
+        if (head.statusCode() != 200 || size != expectedSize) {
+            discard(stagingKey);
+
+            throw new IOException("Written file size mismatch");
+        }
+
+        HttpResponse<String> copy = send("PUT", key, Map.of(),
+                Map.of("x-amz-copy-source", "/" + config.bucket + "/" + encode(stagingKey, true)),
+                new byte[0], HttpResponse.BodyHandlers.ofString()
+        );
+
+        // copy errors may come with status 200
+        if (copy.statusCode() != 200 || copy.body().contains("<Error>"))
+            throw new IOException("S3 copy failed: " + copy.statusCode());
+
+        discard(stagingKey);
+    }
+
+    @Override
+    public void discard(String stagingKey) throws IOException {
+        deleteFile(stagingKey);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        int status = send("HEAD", key, Map.of(), Map.of(), new byte[0], HttpResponse.BodyHandlers.discarding()).statusCode();
+
+        if (status != 200 && status != 404)
+            throw new IOException("S3 head failed: " + status);
+
+        return status == 200;
+    }
+
+    @Override
+    public InputStream openRead(String key, long start, long end) throws IOException {
+        HttpResponse<InputStream> response = send("GET", key, Map.of(),
+                Map.of("Range", "bytes=" + start + "-" + end),
+                new byte[0], HttpResponse.BodyHandlers.ofInputStream()
+        );
+
+        if (response.statusCode() != 200 && response.statusCode() != 206) {
+            response.body().close();
+
+            if (response.statusCode() == 404)
+                throw new FileNotFoundException(key);
+
+            throw new IOException("S3 get failed: " + response.statusCode());
+        }
+
+        return response.body();
+    }
+
+    @Override
+    public Optional<File> getFile(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void deleteFile(String key) throws IOException {
+        int status = send("DELETE", key, Map.of(), Map.of(), new byte[0], HttpResponse.BodyHandlers.discarding()).statusCode();
+
+        if (status != 204 && status != 200 && status != 404)
+            throw new IOException("S3 delete failed: " + status);
+    }
+
+    protected String createMultipartUpload(String key) throws IOException {
+        HttpResponse<String> response = send("POST", key, Map.of("uploads", ""), Map.of(), new byte[0], HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() != 200)
+            throw new IOException("S3 multipart init failed: " + response.statusCode());
+
+        return xmlValue(response.body(), "UploadId");
+    }
+
+    protected String uploadPart(String key, String uploadId, int partNumber, byte[] data) throws IOException {
+        HttpResponse<Void> response = send("PUT", key,
+                Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId),
+                Map.of(), data, HttpResponse.BodyHandlers.discarding()
+        );
+
+        if (response.statusCode() != 200)
+            throw new IOException("S3 part upload failed: " + response.statusCode());
+
+        return response.headers().firstValue("ETag").orElseThrow(() -> new IOException("S3 part has no ETag"));
+    }
+
+    protected void completeMultipartUpload(String key, String uploadId, List<String> etags) throws IOException {
+        StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+
+        for (int i = 0; i < etags.size(); i++)
+            body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>").append(etags.get(i)).append("</ETag></Part>");
+
+        body.append("</CompleteMultipartUpload>");
+
+        HttpResponse<String> response = send("POST", key, Map.of("uploadId", uploadId), Map.of(),
+                body.toString().getBytes(StandardCharsets.UTF_8), HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() != 200 || response.body().contains("<Error>"))
+            throw new IOException("S3 multipart complete failed: " + response.statusCode());
+    }
+
+    protected void abortMultipartUpload(String key, String uploadId) {
+        try {
+            send("DELETE", key, Map.of("uploadId", uploadId), Map.of(), new byte[0], HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    protected void putObject(String key, byte[] data) throws IOException {
+        int status = send("PUT", key, Map.of(), Map.of(), data, HttpResponse.BodyHandlers.discarding()).statusCode();
+
+        if (status != 200)
+            throw new IOException("S3 put failed: " + status);
+    }
+
+    protected <T> HttpResponse<T> send(String method, String key, Map<String, String> query, Map<String, String> headers, byte[] body, HttpResponse.BodyHandler<T> handler) throws IOException {
+        String path = "/" + config.bucket + "/" + encode(key, true);
+        String canonicalQuery = new TreeMap<>(query).entrySet()
+                .stream()
+                .map((e) -> encode(e.getKey(), false) + "=" + encode(e.getValue(), false))
+                .collect(Collectors.joining("&"));
+
+        URI uri = URI.create(endpoint + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+        String date = amzDate.substring(0, 8);
+        String payloadHash = sha256Hex(body);
+
+        TreeMap<String, String> signedHeaders = new TreeMap<>();
+        signedHeaders.put("host", uri.getHost() + (uri.getPort() == -1 ? "" : ":" + uri.getPort()));
+        signedHeaders.put("x-amz-content-sha256", payloadHash);
+        signedHeaders.put("x-amz-date", amzDate);
+
+        headers.forEach((name, value) -> {
+            if (name.toLowerCase().startsWith("x-amz-"))
+                signedHeaders.put(name.toLowerCase(), value.trim());
+        });
+
+        String signedHeadersList = String.join(";", signedHeaders.keySet());
+        String canonicalRequest = method + "\n" +
+                path + "\n" +
+                canonicalQuery + "\n" +
+                signedHeaders.entrySet().stream().map((e) -> e.getKey() + ":" + e.getValue() + "\n").collect(Collectors.joining()) + "\n" +
+                signedHeadersList + "\n" +
+                payloadHash;
+
+        String scope = date + "/" + config.region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + sha256Hex(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+
+        String signature;
+
+        try {
+            byte[] signingKey = hmac(("AWS4" + config.secretKey).getBytes(StandardCharsets.UTF_8), date);
+            signingKey = hmac(signingKey, config.region);
+            signingKey = hmac(signingKey, "s3");
+            signingKey = hmac(signingKey, "aws4_request");
+
+            signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .method(method, body.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body))
+                .header("x-amz-content-sha256", payloadHash)
+                .header("x-amz-date", amzDate)
+                .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + config.accessKey + "/" + scope +
+                        ", SignedHeaders=" + signedHeadersList + ", Signature=" + signature);
+
+        headers.forEach(request::header);
+
+        try {
+            return client.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException(e);
+        }
+    }
+
+    protected static String encode(String value, boolean path) {
+        StringBuilder builder = new StringBuilder();
+
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+
+            if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || "-_.~".indexOf(c) >= 0 || path && c == '/') {
+                builder.append(c);
+            }else {
+                builder.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    protected static String xmlValue(String xml, String tag) throws IOException {
+        int start = xml.indexOf("<" + tag + ">");
+        int end = xml.indexOf("</" + tag + ">");
+
+        if (start == -1 || end == -1)
+            throw new IOException("S3 response has no " + tag);
+
+        return xml.substring(start + tag.length() + 2, end);
+    }
+
+    protected static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // buffers one part at a time, small files are sent with a single PUT
+    protected class MultipartOutputStream extends OutputStream {
+        protected String key;
+        protected byte[] buffer = new byte[partSize];
+        protected int position;
+
+        protected String uploadId;
+        protected ArrayList<String> etags = new ArrayList<>();
+        protected boolean closed;
+
+        public MultipartOutputStream(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[position++] = (byte) b;
+
+            if (position == buffer.length)
+                flushPart();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int count = Math.min(len, buffer.length - position);
+
+                System.arraycopy(b, off, buffer, position, count);
+                position += count;
+                off += count;
+                len -= count;
+
+                if (position == buffer.length)
+                    flushPart();
+            }
+        }
+
+        protected void flushPart() throws IOException {
+            try {
+                if (uploadId == null)
+                    uploadId = createMultipartUpload(key);
+
+                etags.add(uploadPart(key, uploadId, etags.size() + 1, Arrays.copyOf(buffer, position)));
+                position = 0;
+            } catch (IOException e) {
+                abort();
+
+                throw e;
+            }
+        }
+
+        protected void abort() {
+            closed = true;
+
+            if (uploadId != null)
+                abortMultipartUpload(key, uploadId);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+
+            if (uploadId == null) {
+                closed = true;
+                putObject(key, Arrays.copyOf(buffer, position));
+
+                return;
+            }
+
+            if (position > 0)
+                flushPart();
+
+            closed = true;
+
+            try {
+                completeMultipartUpload(key, uploadId, etags);
+            } catch (IOException e) {
+                abortMultipartUpload(key, uploadId);
+
+                throw e;
+            }
+        }
+    }
+}
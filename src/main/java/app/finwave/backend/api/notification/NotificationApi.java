@@ -12,6 +12,7 @@ import app.finwave.backend.api.notification.data.Notification;
 import app.finwave.backend.api.notification.data.NotificationOptions;
 import app.finwave.backend.api.notification.data.point.WebPushPointData;
 import app.finwave.backend.api.notification.manager.NotificationManager;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.app.NotificationsConfig;
 import app.finwave.backend.config.general.VapidKeysConfig;
@@ -35,13 +36,15 @@ public class NotificationApi {
     protected NotificationsConfig config;
 
     protected WebSocketWorker socketWorker;
+    protected OwnershipManager ownership;
 
     protected String vapidPublicKey;
 
     @Inject
-    public NotificationApi(DatabaseWorker databaseWorker, NotificationManager manager, Configs configs, WebSocketWorker socketWorker) {
+    public NotificationApi(DatabaseWorker databaseWorker, NotificationManager manager, Configs configs, WebSocketWorker socketWorker, OwnershipManager ownership) {
         this.database = databaseWorker.get(NotificationDatabase.class);
         this.manager = manager;
+        this.ownership = ownership;
         this.config = configs.getState(new NotificationsConfig());
 
         this.socketWorker = socketWorker;
@@ -87,6 +90,8 @@ public class NotificationApi {
                 new WebPushPointData(endpoint, auth, p256dh), description
         );
 
+        ownership.invalidate(sessionRecord.getUserId());
+
         if (pointId.isEmpty())
             halt(500);
 
@@ -112,7 +117,7 @@ public class NotificationApi {
 
         long pointId = ParamsValidator
                 .longV(request, "pointId")
-                .matches((id) -> database.userOwnPoint(sessionRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnPoint(sessionRecord.getUserId(), id))
                 .require();
 
         String description = ParamsValidator
@@ -134,7 +139,7 @@ public class NotificationApi {
 
         long pointId = ParamsValidator
                 .longV(request, "pointId")
-                .matches((id) -> database.userOwnPoint(sessionRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnPoint(sessionRecord.getUserId(), id))
                 .require();
 
         boolean isPrimary = ParamsValidator
@@ -156,10 +161,11 @@ public class NotificationApi {
 
         long pointId = ParamsValidator
                 .longV(request, "pointId")
-                .matches((id) -> database.userOwnPoint(sessionRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnPoint(sessionRecord.getUserId(), id))
                 .require();
 
         database.deleteNotificationPoint(pointId);
+        ownership.invalidate(sessionRecord.getUserId());
 
         socketWorker.sendToUser(sessionRecord.getUserId(), new NotifyUpdate("notificationPoints"));
 
@@ -173,7 +179,7 @@ public class NotificationApi {
 
         long pointId = ParamsValidator
                 .longV(request, "pointId")
-                .matches((id) -> database.userOwnPoint(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnPoint(sessionsRecord.getUserId(), id))
                 .optional()
                 .orElse(-1L);
 
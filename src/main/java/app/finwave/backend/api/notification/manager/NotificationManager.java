@@ -5,10 +5,13 @@ import com.google.inject.Singleton;
 import app.finwave.backend.api.notification.NotificationDatabase;
 import app.finwave.backend.api.notification.NotificationPusher;
 import app.finwave.backend.api.notification.data.Notification;
+import app.finwave.backend.api.outbox.OutboxEventType;
+import app.finwave.backend.api.outbox.OutboxManager;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.ServiceConfig;
 import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.NotificationsPointsRecord;
+import org.jooq.DSLContext;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -16,11 +19,14 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReentrantLock;
 
+import static app.finwave.backend.api.ApiResponse.GSON;
+
 @Singleton
 public class NotificationManager {
 
     protected NotificationDatabase database;
     protected NotificationPusher pusher;
+    protected OutboxManager outbox;
 
     protected ExecutorService threadPool = Executors.newFixedThreadPool(2);
 
@@ -31,10 +37,21 @@ public class NotificationManager {
     protected ServiceConfig.NotificationServiceConfig config;
 
     @Inject
-    public NotificationManager(DatabaseWorker databaseWorker, NotificationPusher pusher, Configs configs) {
+    public NotificationManager(DatabaseWorker databaseWorker, NotificationPusher pusher, Configs configs, OutboxManager outbox) {
         this.database = databaseWorker.get(NotificationDatabase.class);
         this.pusher = pusher;
+        this.outbox = outbox;
         this.config = configs.getState(new ServiceConfig()).notifications;
+
+        // pushes run on the pool and aren't retried, so a notification is delivered at most once
+        outbox.setHandler(OutboxEventType.NOTIFICATION, (records) -> records.forEach((r) ->
+                push(GSON.fromJson(r.getPayload(), Notification.class))
+        ));
+    }
+
+    // pushed only if the transaction of the context commits, at most once
+    public void pushAfterCommit(DSLContext context, Notification notification) {
+        outbox.record(context, OutboxEventType.NOTIFICATION, notification.userId(), GSON.toJson(notification));
     }
 
     public CompletableFuture<PushResult> push(Notification notification) {
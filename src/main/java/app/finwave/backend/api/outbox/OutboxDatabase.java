@@ -0,0 +1,49 @@
+package app.finwave.backend.api.outbox;
+
+import app.finwave.backend.database.AbstractDatabase;
+import app.finwave.backend.jooq.tables.records.OutboxRecord;
+import org.jooq.DSLContext;
+
+import java.util.Collection;
+import java.util.List;
+
+import static app.finwave.backend.jooq.Tables.OUTBOX;
+
+public class OutboxDatabase extends AbstractDatabase {
+    public OutboxDatabase(DSLContext context) {
+        super(context);
+    }
+
+    public long add(OutboxEventType type, int userId, String payload) {
+        return context.insertInto(OUTBOX)
+                .set(OUTBOX.TYPE, type.type)
+                .set(OUTBOX.USER_ID, userId)
+                .set(OUTBOX.PAYLOAD, payload)
+                .returningResult(OUTBOX.ID)
+                .fetchOne()
+                .value1();
+    }
+
+    // events are deleted as they are taken, rows locked by another relay are skipped instead of waited for
+    public List<OutboxRecord> take(Collection<Short> types, int count) {
+        return context.deleteFrom(OUTBOX)
+                .where(OUTBOX.ID.in(context.select(OUTBOX.ID)
+                        .from(OUTBOX)
+                        .where(OUTBOX.TYPE.in(types))
+                        .orderBy(OUTBOX.ID)
+                        .limit(count)
+                        .forUpdate()
+                        .skipLocked()))
+                .returning()
+                .fetch()
+                .sortAsc(OUTBOX.ID);
+    }
+
+    public List<OutboxRecord> take(Collection<Long> ids, Collection<Short> types) {
+        return context.deleteFrom(OUTBOX)
+                .where(OUTBOX.ID.in(ids).and(OUTBOX.TYPE.in(types)))
+                .returning()
+                .fetch()
+                .sortAsc(OUTBOX.ID);
+    }
+}
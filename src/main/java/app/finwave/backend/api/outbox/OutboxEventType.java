@@ -0,0 +1,20 @@
+package app.finwave.backend.api.outbox;
+
+public enum OutboxEventType {
+    // payload is the updated section sent to the user's websockets
+    NOTIFY_UPDATE(0),
+    // payload is the changed transactions json, null - everything of the user
+    ANALYTICS_INVALIDATION(1),
+    // payload is the notification json
+    NOTIFICATION(2);
+
+    public final short type;
+
+    OutboxEventType(int type) {
+        this.type = (short) type;
+    }
+
+    public static OutboxEventType get(short type) {
+        return OutboxEventType.values()[type];
+    }
+}
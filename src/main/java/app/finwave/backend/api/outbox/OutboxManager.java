@@ -0,0 +1,135 @@
+package app.finwave.backend.api.outbox;
+
+import app.finwave.backend.api.event.WebSocketWorker;
+import app.finwave.backend.api.event.messages.response.NotifyUpdate;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.ServiceConfig;
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.jooq.tables.records.OutboxRecord;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.flywaydb.core.internal.util.Pair;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// side effects are recorded in the transaction that causes them and dispatched only after it commits:
+// the writer dispatches its own events right after the commit, the relay service takes the rest in batches
+@Singleton
+public class OutboxManager {
+    protected static final Logger log = LoggerFactory.getLogger(OutboxManager.class);
+
+    protected DSLContext context;
+    protected DatabaseWorker databaseWorker;
+    protected ServiceConfig.OutboxServiceConfig config;
+
+    protected ConcurrentHashMap<OutboxEventType, Consumer<List<OutboxRecord>>> handlers = new ConcurrentHashMap<>();
+
+    // ids recorded by this thread that its writer hasn't dispatched yet
+    protected ThreadLocal<ArrayList<Long>> pending = ThreadLocal.withInitial(ArrayList::new);
+
+    @Inject
+    public OutboxManager(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker) {
+        this.context = databaseWorker.getDefaultContext();
+        this.databaseWorker = databaseWorker;
+        this.config = configs.getState(new ServiceConfig()).outbox;
+
+        // a batch of changes is one update per user and section
+        setHandler(OutboxEventType.NOTIFY_UPDATE, (records) -> records.stream()
+                .map((r) -> Pair.of(r.getUserId(), r.getPayload()))
+                .distinct()
+                .forEach((p) -> socketWorker.sendToUser(p.getLeft(), new NotifyUpdate(p.getRight())))
+        );
+    }
+
+    // events of a type without a handler stay in the table until one is set
+    public void setHandler(OutboxEventType type, Consumer<List<OutboxRecord>> handler) {
+        handlers.put(type, handler);
+    }
+
+    // the context must be the one of the transaction that makes the change
+    public void record(DSLContext context, OutboxEventType type, int userId, String payload) {
+        long id = databaseWorker.get(OutboxDatabase.class, context).add(type, userId, payload);
+
+        pending.get().add(id);
+    }
+
+    // called by the writer after its transaction is over, events of a rolled back transaction don't exist anymore
+    public void dispatchPending() {
+        ArrayList<Long> ids = pending.get();
+
+        if (ids.isEmpty())
+            return;
+
+        List<Long> toDispatch = List.copyOf(ids);
+        ids.clear();
+
+        List<Short> types = handledTypes();
+
+        if (types.isEmpty())
+            return;
+
+        try {
+            dispatch((database) -> database.take(toDispatch, types));
+        } catch (Exception e) {
+            log.error("Failed to dispatch outbox events, they are left for the relay", e);
+        }
+    }
+
+    public int relay() {
+        List<Short> types = handledTypes();
+
+        if (types.isEmpty())
+            return 0;
+
+        int total = 0;
+        int taken;
+
+        do {
+            taken = dispatch((database) -> database.take(types, config.batchSize));
+            total += taken;
+        } while (taken >= config.batchSize);
+
+        return total;
+    }
+
+    protected List<Short> handledTypes() {
+        return handlers.keySet().stream().map((t) -> t.type).toList();
+    }
+
+    // events are deleted and handled in one transaction, so a crash in between returns them to the table.
+    // a failed handler is logged and its events are dropped, and events a handler passes to asynchronous work are delivered at most once
+    protected int dispatch(Function<OutboxDatabase, List<OutboxRecord>> take) {
+        return context.transactionResult((configuration) -> {
+            List<OutboxRecord> records = take.apply(databaseWorker.get(OutboxDatabase.class, configuration.dsl()));
+
+            EnumMap<OutboxEventType, List<OutboxRecord>> byType = new EnumMap<>(OutboxEventType.class);
+
+            for (OutboxRecord record : records)
+                byType.computeIfAbsent(OutboxEventType.get(record.getType()), (t) -> new ArrayList<>()).add(record);
+
+            byType.forEach((type, typeRecords) -> {
+                Consumer<List<OutboxRecord>> handler = handlers.get(type);
+
+                if (handler == null) {
+                    log.warn("Outbox events of type " + type + " have no handler and are dropped: " + typeRecords.size());
+
+                    return;
+                }
+
+                try {
+                    handler.accept(typeRecords);
+                } catch (Exception e) {
+                    log.error("Failed to handle outbox events of type " + type, e);
+                }
+            });
+
+            return records.size();
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package app.finwave.backend.api.ownership;
+
+import app.finwave.backend.database.AbstractDatabase;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Record2;
+
+import java.util.List;
+import java.util.Map;
+
+import static app.finwave.backend.jooq.Tables.*;
+
+public class OwnershipDatabase extends AbstractDatabase {
+    public OwnershipDatabase(DSLContext context) {
+        super(context);
+    }
+
+    // account id -> currency id
+    public Map<Long, Long> getAccounts(int userId) {
+        return context.select(ACCOUNTS.ID, ACCOUNTS.CURRENCY_ID)
+                .from(ACCOUNTS)
+                .where(ACCOUNTS.OWNER_ID.eq(userId))
+                .fetchMap(ACCOUNTS.ID, ACCOUNTS.CURRENCY_ID);
+    }
+
+    // category id -> category type
+    public Map<Long, Short> getCategories(int userId) {
+        return context.select(CATEGORIES.ID, CATEGORIES.TYPE)
+                .from(CATEGORIES)
+                .where(CATEGORIES.OWNER_ID.eq(userId))
+                .fetchMap(CATEGORIES.ID, CATEGORIES.TYPE);
+    }
+
+    // user's own and root currencies with their owners
+    public List<Record2<Long, Integer>> getReadableCurrencies(int userId) {
+        return context.select(CURRENCIES.ID, CURRENCIES.OWNER_ID)
+                .from(CURRENCIES)
+                .where(CURRENCIES.OWNER_ID.eq(userId).or(CURRENCIES.OWNER_ID.eq(1)))
+                .fetch();
+    }
+
+    public List<Long> getNotificationPoints(int userId) {
+        return context.select(NOTIFICATIONS_POINTS.ID)
+                .from(NOTIFICATIONS_POINTS)
+                .where(NOTIFICATIONS_POINTS.USER_ID.eq(userId))
+                .fetch()
+                .map(Record1::component1);
+    }
+}
@@ -0,0 +1,144 @@
+package app.finwave.backend.api.ownership;
+
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.CachingConfig;
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.InvalidationBus;
+import app.finwave.backend.utils.CacheHandyBuilder;
+import com.google.common.cache.Cache;
+import com.google.common.util.concurrent.Striped;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jooq.Record2;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+// per-user index of owned accounts, categories, currencies and notification points, so ownership checks don't query the database
+@Singleton
+public class OwnershipManager {
+    protected static final String TOPIC = "ownership";
+
+    protected OwnershipDatabase database;
+    protected InvalidationBus invalidationBus;
+
+    protected Cache<Integer, UserOwnership> cache;
+
+    // loading and invalidation of one user are serialized, so a snapshot read before a create can't be stored after its invalidation
+    protected Striped<Lock> locks;
+
+    @Inject
+    public OwnershipManager(DatabaseWorker databaseWorker, Configs configs, InvalidationBus invalidationBus) {
+        CachingConfig.Ownership config = configs.getState(new CachingConfig()).ownership;
+
+        this.database = databaseWorker.get(OwnershipDatabase.class);
+        this.cache = CacheHandyBuilder.cache(1, TimeUnit.HOURS, config.maxUsers);
+        this.locks = Striped.lock(config.lockStripes);
+        this.invalidationBus = invalidationBus;
+
+        invalidationBus.subscribe(TOPIC, (userId) -> invalidateLocal(Integer.parseInt(userId)), () -> cache.invalidateAll());
+    }
+
+    public UserOwnership get(int userId) {
+        UserOwnership ownership = cache.getIfPresent(userId);
+
+        if (ownership != null)
+            return ownership;
+
+        Lock lock = locks.get(userId);
+        lock.lock();
+
+        try {
+            ownership = cache.getIfPresent(userId);
+
+            if (ownership == null) {
+                ownership = load(userId);
+                cache.put(userId, ownership);
+            }
+
+            return ownership;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(int userId) {
+        invalidateLocal(userId);
+        invalidationBus.publish(TOPIC, userId);
+    }
+
+    protected void invalidateLocal(int userId) {
+        Lock lock = locks.get(userId);
+        lock.lock();
+
+        try {
+            cache.invalidate(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // root currencies are readable by everyone
+    public void currencyCreated(int ownerId) {
+        if (ownerId == 1) {
+            cache.invalidateAll();
+            invalidationBus.publishAll(TOPIC);
+
+            return;
+        }
+
+        invalidate(ownerId);
+    }
+
+    public boolean userOwnAccount(int userId, long accountId) {
+        return get(userId).ownAccount(accountId);
+    }
+
+    public boolean userOwnCategory(int userId, long categoryId) {
+        return get(userId).ownCategory(categoryId);
+    }
+
+    public Optional<Short> getCategoryType(int userId, long categoryId) {
+        return get(userId).getCategoryType(categoryId);
+    }
+
+    public boolean userCanReadCurrency(int userId, long currencyId) {
+        return get(userId).canReadCurrency(currencyId);
+    }
+
+    public boolean userCanEditCurrency(int userId, long currencyId) {
+        return get(userId).canEditCurrency(currencyId);
+    }
+
+    public boolean userOwnPoint(int userId, long pointId) {
+        return get(userId).ownPoint(pointId);
+    }
+
+    public boolean sameCurrencies(int userId, long accountId, long accountId2) {
+        return get(userId).sameCurrencies(accountId, accountId2);
+    }
+
+    protected UserOwnership load(int userId) {
+        HashSet<Long> ownCurrencies = new HashSet<>();
+        HashSet<Long> readableCurrencies = new HashSet<>();
+
+        for (Record2<Long, Integer> currency : database.getReadableCurrencies(userId)) {
+            readableCurrencies.add(currency.component1());
+
+            if (currency.component2() == userId)
+                ownCurrencies.add(currency.component1());
+        }
+
+        return new UserOwnership(
+                Map.copyOf(database.getAccounts(userId)),
+                Map.copyOf(database.getCategories(userId)),
+                Set.copyOf(ownCurrencies),
+                Set.copyOf(readableCurrencies),
+                Set.copyOf(database.getNotificationPoints(userId))
+        );
+    }
+}
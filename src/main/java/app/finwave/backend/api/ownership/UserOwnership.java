@@ -0,0 +1,38 @@
+package app.finwave.backend.api.ownership;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// immutable snapshot of ids the user may reference, replaced as a whole when any of them changes
+public record UserOwnership(Map<Long, Long> accounts, Map<Long, Short> categories, Set<Long> ownCurrencies, Set<Long> readableCurrencies, Set<Long> notificationPoints) {
+    public boolean ownAccount(long accountId) {
+        return accounts.containsKey(accountId);
+    }
+
+    public boolean ownCategory(long categoryId) {
+        return categories.containsKey(categoryId);
+    }
+
+    public Optional<Short> getCategoryType(long categoryId) {
+        return Optional.ofNullable(categories.get(categoryId));
+    }
+
+    public boolean canReadCurrency(long currencyId) {
+        return readableCurrencies.contains(currencyId);
+    }
+
+    public boolean canEditCurrency(long currencyId) {
+        return ownCurrencies.contains(currencyId);
+    }
+
+    public boolean ownPoint(long pointId) {
+        return notificationPoints.contains(pointId);
+    }
+
+    public boolean sameCurrencies(long accountId, long accountId2) {
+        Long currency = accounts.get(accountId);
+
+        return currency != null && currency.equals(accounts.get(accountId2));
+    }
+}
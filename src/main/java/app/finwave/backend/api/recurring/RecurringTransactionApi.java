@@ -7,9 +7,8 @@ import com.google.inject.Singleton;
 import spark.Request;
 import spark.Response;
 import app.finwave.backend.api.ApiResponse;
-import app.finwave.backend.api.account.AccountDatabase;
+import app.finwave.backend.api.ownership.OwnershipManager;
 import app.finwave.backend.api.transaction.manager.TransactionsManager;
-import app.finwave.backend.api.category.CategoryDatabase;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.app.RecurringTransactionConfig;
 import app.finwave.backend.database.DatabaseWorker;
@@ -29,18 +28,16 @@ import java.util.Optional;
 public class RecurringTransactionApi {
 
     protected RecurringTransactionDatabase database;
-    protected CategoryDatabase categoryDatabase;
-    protected AccountDatabase accountDatabase;
+    protected OwnershipManager ownership;
     protected RecurringTransactionConfig config;
     protected TransactionsManager manager;
 
     protected WebSocketWorker socketWorker;
 
     @Inject
-    public RecurringTransactionApi(DatabaseWorker databaseWorker, TransactionsManager manager, Configs configs, WebSocketWorker socketWorker) {
+    public RecurringTransactionApi(DatabaseWorker databaseWorker, TransactionsManager manager, Configs configs, WebSocketWorker socketWorker, OwnershipManager ownership) {
         this.database = databaseWorker.get(RecurringTransactionDatabase.class);
-        this.categoryDatabase = databaseWorker.get(CategoryDatabase.class);
-        this.accountDatabase = databaseWorker.get(AccountDatabase.class);
+        this.ownership = ownership;
 
         this.manager = manager;
 
@@ -54,12 +51,12 @@ public class RecurringTransactionApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         OffsetDateTime nextRepeat = ParamsValidator
@@ -122,12 +119,12 @@ public class RecurringTransactionApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         OffsetDateTime nextRepeat = ParamsValidator
@@ -4,6 +4,7 @@ import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.CachingConfig;
 import app.finwave.backend.config.general.UserConfig;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.InvalidationBus;
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
 import app.finwave.backend.utils.CacheHandyBuilder;
 import com.google.common.cache.Cache;
@@ -15,6 +16,7 @@ import com.google.inject.Singleton;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -23,16 +25,20 @@ import static app.finwave.backend.utils.TokenGenerator.generateSessionToken;
 
 @Singleton
 public class SessionManager {
+    protected static final String TOPIC = "sessions";
+
     protected SessionDatabase database;
     protected UserConfig config;
+    protected InvalidationBus invalidationBus;
 
     protected LoadingCache<Integer, List<UsersSessionsRecord>> listCache;
     protected LoadingCache<String, Optional<UsersSessionsRecord>> tokenCache;
 
     @Inject
-    public SessionManager(DatabaseWorker databaseWorker, Configs configs) {
+    public SessionManager(DatabaseWorker databaseWorker, Configs configs, InvalidationBus invalidationBus) {
         this.database = databaseWorker.get(SessionDatabase.class);
         this.config = configs.getState(new UserConfig());
+        this.invalidationBus = invalidationBus;
 
         CachingConfig.Sessions cacheConfig = configs.getState(new CachingConfig()).sessions;
 
@@ -55,6 +61,17 @@ public class SessionManager {
                     return result;
                 }
         );
+
+        invalidationBus.subscribe(TOPIC, (userId) -> invalidateUser(Integer.parseInt(userId)), () -> {
+            listCache.invalidateAll();
+            tokenCache.invalidateAll();
+        });
+    }
+
+    // tokens are not sent to other nodes, they drop every cached session of the user instead
+    protected void invalidateUser(int userId) {
+        listCache.invalidate(userId);
+        tokenCache.asMap().values().removeIf((r) -> r.isPresent() && r.get().getUserId() == userId);
     }
 
     public Optional<UsersSessionsRecord> auth(String token) {
@@ -77,6 +94,7 @@ public class SessionManager {
 
         listCache.invalidate(userId);
         tokenCache.put(token, record);
+        invalidationBus.publish(TOPIC, userId);
 
         return record;
     }
@@ -96,6 +114,7 @@ public class SessionManager {
 
         listCache.invalidate(record.getUserId());
         tokenCache.invalidate(record.getToken());
+        invalidationBus.publish(TOPIC, record.getUserId());
     }
 
     public void deleteSession(long sessionId) {
@@ -103,6 +122,7 @@ public class SessionManager {
 
         listCache.invalidate(removed.getUserId());
         tokenCache.invalidate(removed.getToken());
+        invalidationBus.publish(TOPIC, removed.getUserId());
     }
 
     public void deleteAllUserSessions(int userId) {
@@ -114,6 +134,7 @@ public class SessionManager {
         );
 
         listCache.invalidate(userId);
+        invalidationBus.publish(TOPIC, userId);
     }
 
     public void deleteOverdueSessions() {
@@ -124,10 +145,12 @@ public class SessionManager {
                 .collect(Collectors.toList())
         );
 
-        listCache.invalidateAll(removed.stream()
+        Set<Integer> users = removed.stream()
                 .map(UsersSessionsRecord::getUserId)
-                .collect(Collectors.toSet())
-        );
+                .collect(Collectors.toSet());
+
+        listCache.invalidateAll(users);
+        invalidationBus.publish(TOPIC, users);
     }
 
     public void updateSessionLifetime(long sessionId, int userId) {
@@ -135,6 +158,7 @@ public class SessionManager {
 
         listCache.invalidate(userId);
         tokenCache.put(record.getToken(), Optional.of(record));
+        invalidationBus.publish(TOPIC, userId);
     }
 
     public void updateSessionLifetime(UsersSessionsRecord record) {
@@ -1,17 +1,17 @@
 package app.finwave.backend.api.transaction;
 
-import app.finwave.backend.api.category.CategoryDatabase;
-import app.finwave.backend.api.event.WebSocketWorker;
-import app.finwave.backend.api.event.messages.response.NotifyUpdate;
-import app.finwave.backend.jooq.tables.records.CategoriesRecord;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import spark.Request;
 import spark.Response;
 import app.finwave.backend.api.ApiResponse;
-import app.finwave.backend.api.account.AccountDatabase;
+import app.finwave.backend.api.ownership.OwnershipManager;
+import app.finwave.backend.api.ownership.UserOwnership;
+import app.finwave.backend.api.transaction.filter.DescriptionSearchMode;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
+import app.finwave.backend.api.transaction.manager.data.TransactionsPage;
 import app.finwave.backend.api.transaction.manager.TransactionsManager;
 import app.finwave.backend.api.transaction.manager.records.BulkTransactionsRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
@@ -19,7 +19,6 @@ import app.finwave.backend.api.transaction.manager.records.TransactionNewInterna
 import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.app.TransactionConfig;
-import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.http.ApiMessage;
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
 import app.finwave.backend.utils.params.InvalidParameterException;
@@ -30,25 +29,17 @@ import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
-import static spark.Spark.halt;
-
 @Singleton
 public class TransactionApi {
     protected TransactionsManager manager;
-    protected CategoryDatabase categoryDatabase;
-    protected AccountDatabase accountDatabase;
+    protected OwnershipManager ownership;
     protected TransactionConfig config;
 
-    protected WebSocketWorker socketWorker;
-
     @Inject
-    public TransactionApi(TransactionsManager manager, DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker) {
+    public TransactionApi(TransactionsManager manager, OwnershipManager ownership, Configs configs) {
         this.config = configs.getState(new TransactionConfig());
         this.manager = manager;
-        this.categoryDatabase = databaseWorker.get(CategoryDatabase.class);
-        this.accountDatabase = databaseWorker.get(AccountDatabase.class);
-
-        this.socketWorker = socketWorker;
+        this.ownership = ownership;
     }
 
     public Object newBulkTransactions(Request request, Response response) {
@@ -58,11 +49,14 @@ public class TransactionApi {
                 .matches((r) -> !r.entries().isEmpty())
                 .require();
 
+        // one snapshot validates the whole request without a query per entry
+        UserOwnership owned = ownership.get(sessionsRecord.getUserId());
+
         args.entries().forEach((entry) -> {
             var validator = ParamsValidator.bodyObject(entry)
                     .matches((e) -> e.type == 0 || e.type == 1, "type")
-                    .matches((e) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), e.categoryId), "categoryId")
-                    .matches((e) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), e.accountId), "accountId")
+                    .matches((e) -> owned.ownCategory(e.categoryId), "categoryId")
+                    .matches((e) -> owned.ownAccount(e.accountId), "accountId")
                     .matches((e) -> e.created != null, "created")
                     .matches((e) -> e.delta != null, "delta")
                     .matches((e) -> e.description == null || !e.description.isBlank() && e.description.length() <= config.maxDescriptionLength, "description");
@@ -70,19 +64,16 @@ public class TransactionApi {
             validator.require();
 
             if (entry.type == 0) {
-                Optional<CategoriesRecord> category = categoryDatabase.getCategory(entry.categoryId);
-
-                if (category.isEmpty())
-                    halt(500);
+                short categoryType = owned.getCategoryType(entry.categoryId).orElseThrow();
 
-                if (category.get().getType() != 0 && entry.delta.signum() != category.get().getType())
+                if (categoryType != 0 && entry.delta.signum() != categoryType)
                     entry.delta = entry.delta.negate();
 
                 return;
             }
 
             validator
-                    .matches((e) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), e.toAccountId), "toAccountId")
+                    .matches((e) -> owned.ownAccount(e.toAccountId), "toAccountId")
                     .matches((e) -> e.toDelta != null, "toDelta")
                     .require();
 
@@ -95,8 +86,6 @@ public class TransactionApi {
 
         manager.applyBulkTransactions(args, sessionsRecord.getUserId());
 
-        socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("transactions"));
-
         response.status(201);
 
         return ApiMessage.of("Successful");
@@ -107,17 +96,17 @@ public class TransactionApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         long fromAccountId = ParamsValidator
                 .longV(request, "fromAccountId")
-                .matches((id) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         long toAccountId = ParamsValidator
                 .longV(request, "toAccountId")
-                .matches((id) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .matches((id) -> id != fromAccountId)
                 .require();
 
@@ -157,8 +146,6 @@ public class TransactionApi {
                 description.orElse(null))
         );
 
-        socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("transactions"));
-
         response.status(201);
 
         return new NewTransactionResponse(transactionId);
@@ -169,12 +156,12 @@ public class TransactionApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         OffsetDateTime time = ParamsValidator
@@ -192,12 +179,9 @@ public class TransactionApi {
                 .length(1, config.maxDescriptionLength)
                 .optional();
 
-        Optional<CategoriesRecord> category = categoryDatabase.getCategory(categoryId);
-
-        if (category.isEmpty())
-            halt(500);
+        short categoryType = ownership.getCategoryType(sessionsRecord.getUserId(), categoryId).orElseThrow();
 
-        if (category.get().getType() != 0 && delta.signum() != category.get().getType())
+        if (categoryType != 0 && delta.signum() != categoryType)
             delta = delta.negate();
 
 
@@ -210,8 +194,6 @@ public class TransactionApi {
                 description.orElse(null)
         ));
 
-        socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("transactions"));
-
         response.status(201);
 
         return new NewTransactionResponse(transactionId);
@@ -227,8 +209,6 @@ public class TransactionApi {
 
         manager.cancelTransaction(transactionId);
 
-        socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("transactions"));
-
         response.status(200);
 
         return ApiMessage.of("Transaction deleted");
@@ -244,12 +224,12 @@ public class TransactionApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnCategory(sessionsRecord.getUserId(), id))
                 .require();
 
         long accountId = ParamsValidator
                 .longV(request, "accountId")
-                .matches((id) -> accountDatabase.userOwnAccount(sessionsRecord.getUserId(), id))
+                .matches((id) -> ownership.userOwnAccount(sessionsRecord.getUserId(), id))
                 .require();
 
         OffsetDateTime time = ParamsValidator
@@ -267,18 +247,13 @@ public class TransactionApi {
                 .length(1, config.maxDescriptionLength)
                 .optional();
 
-        Optional<CategoriesRecord> category = categoryDatabase.getCategory(categoryId);
-
-        if (category.isEmpty())
-            halt(500);
+        short categoryType = ownership.getCategoryType(sessionsRecord.getUserId(), categoryId).orElseThrow();
 
-        if (category.get().getType() != 0 && delta.signum() != category.get().getType())
+        if (categoryType != 0 && delta.signum() != categoryType)
             delta = delta.negate();
 
         manager.editTransaction(transactionId, new TransactionEditRecord(categoryId, accountId, time, delta, description.orElse(null)));
 
-        socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("transactions"));
-
         response.status(200);
 
         return ApiMessage.of("Transaction edited");
@@ -312,18 +287,37 @@ public class TransactionApi {
                 .orElse(10);
         TransactionsFilter filter = new TransactionsFilter(request);
 
-        List<TransactionEntry<?>> transactions = manager.getTransactions(sessionsRecord.getUserId(), offset, count, filter);
+        Optional<TransactionsCursor> cursor = ParamsValidator
+                .string(request, "cursor")
+                .optional()
+                .map(TransactionsCursor::parse);
 
         response.status(200);
 
-        return new GetTransactionsListResponse(transactions);
+        // a cursor follows time order, ranked search pages by offset
+        boolean ranked = filter.getDescription() != null && filter.getDescriptionMode() == DescriptionSearchMode.RANKED;
+
+        if (ranked && cursor.isPresent())
+            throw new InvalidParameterException("cursor");
+
+        if (cursor.isPresent() || offset == 0 && !ranked) {
+            TransactionsPage page = manager.getTransactions(sessionsRecord.getUserId(), cursor.orElse(null), count, filter);
+
+            return new GetTransactionsListResponse(page.transactions(), page.next());
+        }
+
+        List<TransactionEntry<?>> transactions = manager.getTransactions(sessionsRecord.getUserId(), offset, count, filter);
+
+        return new GetTransactionsListResponse(transactions, null);
     }
 
     public static class GetTransactionsListResponse extends ApiResponse {
         public final List<TransactionEntry<?>> transactions;
+        public final String nextCursor;
 
-        public GetTransactionsListResponse(List<TransactionEntry<?>> transactions) {
+        public GetTransactionsListResponse(List<TransactionEntry<?>> transactions, TransactionsCursor nextCursor) {
             this.transactions = transactions;
+            this.nextCursor = nextCursor != null ? nextCursor.toString() : null;
         }
     }
 
@@ -2,17 +2,27 @@ package app.finwave.backend.api.transaction;
 
 import org.jooq.*;
 import org.jooq.Record;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import app.finwave.backend.api.transaction.filter.DescriptionSearchMode;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.database.AbstractDatabase;
+import app.finwave.backend.jooq.tables.records.TransactionsRecord;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static app.finwave.backend.jooq.Tables.*;
 
 public class TransactionDatabase extends AbstractDatabase {
+    protected static final Sequence<Long> TRANSACTIONS_ID_SEQ = DSL.sequence(DSL.name("transactions_id_seq"), SQLDataType.BIGINT);
+    protected static final int INSERT_CHUNK_SIZE = 1000;
 
     public TransactionDatabase(DSLContext context) {
         super(context);
@@ -32,6 +42,43 @@ public class TransactionDatabase extends AbstractDatabase {
                 .map(Record1::component1);
     }
 
+    public List<Long> applyTransactions(List<TransactionNewRecord> records, Map<Long, Long> accountsCurrencies) {
+        List<Long> ids = context.nextvals(TRANSACTIONS_ID_SEQ, records.size());
+
+        for (int from = 0; from < records.size(); from += INSERT_CHUNK_SIZE) {
+            int to = Math.min(from + INSERT_CHUNK_SIZE, records.size());
+
+            var insert = context.insertInto(TRANSACTIONS,
+                    TRANSACTIONS.ID,
+                    TRANSACTIONS.OWNER_ID,
+                    TRANSACTIONS.CATEGORY_ID,
+                    TRANSACTIONS.ACCOUNT_ID,
+                    TRANSACTIONS.CURRENCY_ID,
+                    TRANSACTIONS.CREATED_AT,
+                    TRANSACTIONS.DELTA,
+                    TRANSACTIONS.DESCRIPTION);
+
+            for (int i = from; i < to; i++) {
+                TransactionNewRecord record = records.get(i);
+
+                insert = insert.values(
+                        ids.get(i),
+                        record.userId(),
+                        record.categoryId(),
+                        record.accountId(),
+                        accountsCurrencies.get(record.accountId()),
+                        record.created(),
+                        record.delta(),
+                        record.description()
+                );
+            }
+
+            insert.execute();
+        }
+
+        return new ArrayList<>(ids);
+    }
+
     public int getTransactionsCount(int userId, TransactionsFilter filter) {
         Condition condition = generateFilterCondition(userId, filter);
 
@@ -58,11 +105,37 @@ public class TransactionDatabase extends AbstractDatabase {
                         .leftJoin(TRANSACTIONS_METADATA)
                         .on(TRANSACTIONS.METADATA_ID.eq(TRANSACTIONS_METADATA.ID)))
                 .where(condition)
-                .orderBy(TRANSACTIONS.CREATED_AT.desc(), TRANSACTIONS.ID.desc())
+                .orderBy(generateOrder(filter))
                 .limit(offset, count)
                 .fetch();
     }
 
+    public List<Record> getTransactions(int userId, TransactionsCursor after, int count, TransactionsFilter filter) {
+        Condition condition = generateFilterCondition(userId, filter);
+
+        // the plain created_at bound lets postgres skip partitions newer than the cursor, the row comparison alone does not
+        if (after != null)
+            condition = condition.and(TRANSACTIONS.CREATED_AT.lessOrEqual(after.created()))
+                    .and(DSL.row(TRANSACTIONS.CREATED_AT, TRANSACTIONS.ID).lessThan(after.created(), after.id()));
+
+        return context.selectFrom(TRANSACTIONS
+                        .leftJoin(TRANSACTIONS_METADATA)
+                        .on(TRANSACTIONS.METADATA_ID.eq(TRANSACTIONS_METADATA.ID)))
+                .where(condition)
+                .orderBy(TRANSACTIONS.CREATED_AT.desc(), TRANSACTIONS.ID.desc())
+                .limit(count)
+                .fetch();
+    }
+
+    // postgres keeps the cursor server-side only inside a transaction
+    public Cursor<TransactionsRecord> streamTransactions(int userId, TransactionsFilter filter, int fetchSize) {
+        return context.selectFrom(TRANSACTIONS)
+                .where(generateFilterCondition(userId, filter))
+                .orderBy(TRANSACTIONS.CREATED_AT.desc(), TRANSACTIONS.ID.desc())
+                .fetchSize(fetchSize)
+                .fetchLazy();
+    }
+
     public static Condition generateFilterCondition(int userId, TransactionsFilter filter) {
         Condition condition = TRANSACTIONS.OWNER_ID.eq(userId);
 
@@ -82,11 +155,29 @@ public class TransactionDatabase extends AbstractDatabase {
             condition = condition.and(TRANSACTIONS.CREATED_AT.lessOrEqual(filter.getToTime()));
 
         if (filter.getDescription() != null)
-            condition = condition.and(TRANSACTIONS.DESCRIPTION.containsIgnoreCase(filter.getDescription()));
+            condition = condition.and(generateDescriptionCondition(filter.getDescription(), filter.getDescriptionMode()));
 
         return condition;
     }
 
+    // all modes are served by the trigram index on description
+    protected static Condition generateDescriptionCondition(String description, DescriptionSearchMode mode) {
+        return switch (mode) {
+            case CONTAINS -> TRANSACTIONS.DESCRIPTION.containsIgnoreCase(description);
+            case PREFIX -> TRANSACTIONS.DESCRIPTION.startsWithIgnoreCase(description);
+            case FUZZY, RANKED -> DSL.condition("{0} %> {1}", TRANSACTIONS.DESCRIPTION, DSL.val(description));
+        };
+    }
+
+    protected static SortField<?>[] generateOrder(TransactionsFilter filter) {
+        if (filter.getDescription() == null || filter.getDescriptionMode() != DescriptionSearchMode.RANKED)
+            return new SortField[] {TRANSACTIONS.CREATED_AT.desc(), TRANSACTIONS.ID.desc()};
+
+        Field<Float> similarity = DSL.field("word_similarity({0}, {1})", Float.class, DSL.val(filter.getDescription()), TRANSACTIONS.DESCRIPTION);
+
+        return new SortField[] {similarity.desc(), TRANSACTIONS.CREATED_AT.desc(), TRANSACTIONS.ID.desc()};
+    }
+
     protected static <T> Condition generateFilterAnyCondition(TableField<?, T> field, List<T> values) {
         Condition condition = null;
 
@@ -124,6 +215,14 @@ public class TransactionDatabase extends AbstractDatabase {
                 .execute();
     }
 
+    public Optional<Integer> getTransactionOwner(long transactionId) {
+        return context.select(TRANSACTIONS.OWNER_ID)
+                .from(TRANSACTIONS)
+                .where(TRANSACTIONS.ID.eq(transactionId))
+                .fetchOptional()
+                .map(Record1::component1);
+    }
+
     public boolean userOwnTransaction(int userId, long transactionId) {
         return context.select(TRANSACTIONS.ID)
                 .from(TRANSACTIONS)
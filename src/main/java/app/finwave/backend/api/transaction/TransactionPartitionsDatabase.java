@@ -0,0 +1,85 @@
+package app.finwave.backend.api.transaction;
+
+import app.finwave.backend.database.AbstractDatabase;
+import org.jooq.DSLContext;
+import org.jooq.Name;
+import org.jooq.Param;
+import org.jooq.impl.DSL;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+
+// transactions are range partitioned by created_at, one partition per utc month plus transactions_default
+public class TransactionPartitionsDatabase extends AbstractDatabase {
+    protected static final Pattern PARTITION_NAME = Pattern.compile("transactions_y(\\d{4})m(\\d{2})");
+    protected static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd' 00:00:00+00'");
+    protected static final Name DEFAULT_PARTITION = DSL.name("transactions_default");
+
+    public TransactionPartitionsDatabase(DSLContext context) {
+        super(context);
+    }
+
+    public List<YearMonth> getMonths() {
+        return context.resultQuery("select c.relname from pg_inherits i " +
+                        "join pg_class c on c.oid = i.inhrelid " +
+                        "where i.inhparent = {0}::regclass", DSL.inline(TRANSACTIONS.getName()))
+                .fetch(0, String.class)
+                .stream()
+                .map(TransactionPartitionsDatabase::parseMonth)
+                .flatMap(Optional::stream)
+                .sorted()
+                .toList();
+    }
+
+    // rows of this month that already landed in the default partition are moved into the new one
+    public void createMonth(YearMonth month) {
+        Name partition = partitionName(month);
+
+        context.transaction((configuration) -> {
+            DSLContext dsl = configuration.dsl();
+
+            // inserts into the default partition wait until the month is attached, otherwise their rows would fail the attach check.
+            // the attach needs access exclusive anyway, a weaker lock upgraded later deadlocks with writers that have read the table
+            dsl.query("lock table {0} in access exclusive mode", DEFAULT_PARTITION).execute();
+            dsl.query("create table {0} (like {1} including defaults including constraints)", partition, TRANSACTIONS).execute();
+            dsl.query("with moved as (delete from {0} where {1} >= {2}::timestamptz and {1} < {3}::timestamptz returning *) " +
+                            "insert into {4} select * from moved",
+                    DEFAULT_PARTITION, DSL.name(TRANSACTIONS.CREATED_AT.getName()), lowerBound(month), upperBound(month), partition).execute();
+            dsl.query("alter table {0} attach partition {1} for values from ({2}) to ({3})",
+                    TRANSACTIONS, partition, lowerBound(month), upperBound(month)).execute();
+        });
+    }
+
+    // the table stays in place with its rows, it can be archived, dropped or attached back later
+    public void detachMonth(YearMonth month) {
+        context.query("alter table {0} detach partition {1}", TRANSACTIONS, partitionName(month)).execute();
+    }
+
+    public static Name partitionName(YearMonth month) {
+        return DSL.name(String.format("transactions_y%04dm%02d", month.getYear(), month.getMonthValue()));
+    }
+
+    public static Optional<YearMonth> parseMonth(String partition) {
+        Matcher matcher = PARTITION_NAME.matcher(Objects.requireNonNullElse(partition, ""));
+
+        if (!matcher.matches())
+            return Optional.empty();
+
+        return Optional.of(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+    }
+
+    protected static Param<String> lowerBound(YearMonth month) {
+        return DSL.inline(BOUND_FORMAT.format(month.atDay(1)));
+    }
+
+    protected static Param<String> upperBound(YearMonth month) {
+        return lowerBound(month.plusMonths(1));
+    }
+}
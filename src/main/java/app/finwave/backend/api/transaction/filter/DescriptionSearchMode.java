@@ -0,0 +1,22 @@
+package app.finwave.backend.api.transaction.filter;
+
+import app.finwave.backend.utils.params.InvalidParameterException;
+
+public enum DescriptionSearchMode {
+    CONTAINS,
+    PREFIX,
+    FUZZY,
+    // fuzzy, ordered by similarity instead of time
+    RANKED;
+
+    public static DescriptionSearchMode parse(String raw) {
+        if (raw == null)
+            return null;
+
+        try {
+            return valueOf(raw.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidParameterException("descriptionMode");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package app.finwave.backend.api.transaction.filter;
+
+import app.finwave.backend.utils.params.InvalidParameterException;
+import org.jooq.Record;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+
+// position of the last returned transaction in (created_at desc, id desc) order
+public record TransactionsCursor(OffsetDateTime created, long id) {
+    public static TransactionsCursor of(Record record) {
+        return new TransactionsCursor(record.get(TRANSACTIONS.CREATED_AT), record.get(TRANSACTIONS.ID));
+    }
+
+    public static TransactionsCursor parse(String raw) {
+        int separator = raw.indexOf(':');
+
+        if (separator <= 0)
+            throw new InvalidParameterException("cursor");
+
+        try {
+            return new TransactionsCursor(
+                    OffsetDateTime.parse(raw.substring(separator + 1)),
+                    Long.parseLong(raw.substring(0, separator))
+            );
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new InvalidParameterException("cursor");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return id + ":" + created;
+    }
+}
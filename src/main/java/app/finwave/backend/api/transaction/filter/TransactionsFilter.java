@@ -17,27 +17,35 @@ public class TransactionsFilter {
     protected final OffsetDateTime fromTime;
     protected final OffsetDateTime toTime;
     protected final String description;
+    protected final DescriptionSearchMode descriptionMode;
 
     protected TransactionsFilter() {
         this((List<Long>) null, null, null, null, null, null);
     }
 
-    public TransactionsFilter(List<Long> categoriesIds, List<Long> accountIds, List<Long> currenciesIds, OffsetDateTime fromTime, OffsetDateTime toTime, String description) {
+    public TransactionsFilter(List<Long> categoriesIds, List<Long> accountIds, List<Long> currenciesIds, OffsetDateTime fromTime, OffsetDateTime toTime, String description, DescriptionSearchMode descriptionMode) {
         this.categoriesIds = categoriesIds;
         this.accountIds = accountIds;
         this.currenciesIds = currenciesIds;
         this.fromTime = fromTime;
         this.toTime = toTime;
         this.description = description;
+        // contains is the default, so both spellings of it share one cache key
+        this.descriptionMode = descriptionMode != null ? descriptionMode : DescriptionSearchMode.CONTAINS;
+    }
+
+    public TransactionsFilter(List<Long> categoriesIds, List<Long> accountIds, List<Long> currenciesIds, OffsetDateTime fromTime, OffsetDateTime toTime, String description) {
+        this(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, null);
     }
 
-    public TransactionsFilter(String categoriesIdsRaw, String accountIdsRaw, String currenciesIdsRaw, String fromTimeRaw, String toTimeRaw, String description) {
+    public TransactionsFilter(String categoriesIdsRaw, String accountIdsRaw, String currenciesIdsRaw, String fromTimeRaw, String toTimeRaw, String description, String descriptionModeRaw) {
         this(parseIds(categoriesIdsRaw),
                 parseIds(accountIdsRaw),
                 parseIds(currenciesIdsRaw),
                 fromTimeRaw != null ? OffsetDateTime.parse(fromTimeRaw) : null,
                 toTimeRaw != null ? OffsetDateTime.parse(toTimeRaw) : null,
-                description
+                description,
+                DescriptionSearchMode.parse(descriptionModeRaw)
         );
     }
 
@@ -47,7 +55,8 @@ public class TransactionsFilter {
                 request.queryParams("currenciesIds"),
                 request.queryParams("fromTime"),
                 request.queryParams("toTime"),
-                request.queryParams("description"));
+                request.queryParams("description"),
+                request.queryParams("descriptionMode"));
     }
 
     public boolean validateTime(double maxDaysRange) {
@@ -93,28 +102,36 @@ public class TransactionsFilter {
         return description;
     }
 
+    public DescriptionSearchMode getDescriptionMode() {
+        return descriptionMode;
+    }
+
     public TransactionsFilter setCategoriesIds(List<Long> categoriesIds) {
-        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description);
+        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, descriptionMode);
     }
 
     public TransactionsFilter setAccountIds(List<Long> accountIds) {
-        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description);
+        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, descriptionMode);
     }
 
     public TransactionsFilter setCurrenciesIds(List<Long> currenciesIds) {
-        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description);
+        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, descriptionMode);
     }
 
     public TransactionsFilter setFromTime(OffsetDateTime fromTime) {
-        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description);
+        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, descriptionMode);
     }
 
     public TransactionsFilter setToTime(OffsetDateTime toTime) {
-        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description);
+        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, descriptionMode);
     }
 
     public TransactionsFilter setDescription(String description) {
-        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description);
+        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, descriptionMode);
+    }
+
+    public TransactionsFilter setDescriptionMode(DescriptionSearchMode descriptionMode) {
+        return new TransactionsFilter(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, descriptionMode);
     }
 
     @Override
@@ -122,11 +139,11 @@ public class TransactionsFilter {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         TransactionsFilter that = (TransactionsFilter) o;
-        return Objects.equals(categoriesIds, that.categoriesIds) && Objects.equals(accountIds, that.accountIds) && Objects.equals(currenciesIds, that.currenciesIds) && Objects.equals(fromTime, that.fromTime) && Objects.equals(toTime, that.toTime) && Objects.equals(description, that.description);
+        return Objects.equals(categoriesIds, that.categoriesIds) && Objects.equals(accountIds, that.accountIds) && Objects.equals(currenciesIds, that.currenciesIds) && Objects.equals(fromTime, that.fromTime) && Objects.equals(toTime, that.toTime) && Objects.equals(description, that.description) && descriptionMode == that.descriptionMode;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description);
+        return Objects.hash(categoriesIds, accountIds, currenciesIds, fromTime, toTime, description, descriptionMode);
     }
 }
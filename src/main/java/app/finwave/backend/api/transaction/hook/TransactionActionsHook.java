@@ -4,6 +4,8 @@ import org.jooq.DSLContext;
 import org.jooq.Record;
 import app.finwave.backend.api.transaction.manager.data.AbstractMetadata;
 
+import java.util.List;
+
 public interface TransactionActionsHook<T, Y> {
     void apply(DSLContext context, T newRecord);
     void edit(DSLContext context, Record record, Y editRecord, long transactionId);
@@ -12,4 +14,13 @@ public interface TransactionActionsHook<T, Y> {
     void applied(DSLContext context, T newRecord, long transactionId);
     void edited(DSLContext context, Record record, Y editRecord, long transactionId);
     void canceled(DSLContext context, Record record, long transactionId);
+
+    default void applyBatch(DSLContext context, List<T> newRecords) {
+        newRecords.forEach((r) -> apply(context, r));
+    }
+
+    default void appliedBatch(DSLContext context, List<T> newRecords, List<Long> transactionsIds) {
+        for (int i = 0; i < newRecords.size(); i++)
+            applied(context, newRecords.get(i), transactionsIds.get(i));
+    }
 }
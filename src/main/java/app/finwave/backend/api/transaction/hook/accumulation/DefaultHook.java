@@ -14,6 +14,8 @@ import app.finwave.backend.api.transaction.metadata.MetadataType;
 import app.finwave.backend.database.DatabaseWorker;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
@@ -53,7 +55,38 @@ public class DefaultHook implements TransactionActionsHook<TransactionNewRecord,
         if (optionalSettings.isEmpty())
             return;
 
-        AccumulationData data = optionalSettings.get();
+        applyAccumulation(context, optionalSettings.get(), newRecord, transactionId);
+    }
+
+    @Override
+    public void appliedBatch(DSLContext context, List<TransactionNewRecord> newRecords, List<Long> transactionsIds) {
+        List<Long> accountsIds = newRecords.stream()
+                .filter((r) -> r.delta().signum() < 0)
+                .map(TransactionNewRecord::accountId)
+                .distinct()
+                .toList();
+
+        if (accountsIds.isEmpty())
+            return;
+
+        AccumulationDatabase accumulationDatabase = databaseWorker.get(AccumulationDatabase.class, context);
+        Map<Long, AccumulationData> settings = accumulationDatabase.getAccumulationSettings(accountsIds);
+
+        if (settings.isEmpty())
+            return;
+
+        for (int i = 0; i < newRecords.size(); i++) {
+            TransactionNewRecord newRecord = newRecords.get(i);
+            AccumulationData data = settings.get(newRecord.accountId());
+
+            if (data == null || newRecord.delta().signum() >= 0)
+                continue;
+
+            applyAccumulation(context, data, newRecord, transactionsIds.get(i));
+        }
+    }
+
+    protected void applyAccumulation(DSLContext context, AccumulationData data, TransactionNewRecord newRecord, long transactionId) {
         BigDecimal accumulationDelta = data.calculateRound(newRecord.delta().negate());
 
         if (accumulationDelta.equals(BigDecimal.ZERO))
@@ -1,10 +1,16 @@
 package app.finwave.backend.api.transaction.manager;
 
+import app.finwave.backend.api.outbox.OutboxEventType;
+import app.finwave.backend.api.outbox.OutboxManager;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.app.TransactionConfig;
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import app.finwave.backend.api.transaction.TransactionDatabase;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.api.transaction.hook.TransactionActionsHook;
 import app.finwave.backend.api.transaction.hook.accumulation.AccumulationHook;
@@ -12,6 +18,7 @@ import app.finwave.backend.api.transaction.hook.accumulation.DefaultHook;
 import app.finwave.backend.api.transaction.hook.accumulation.InternalHook;
 import app.finwave.backend.api.transaction.manager.actions.*;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
+import app.finwave.backend.api.transaction.manager.data.TransactionsPage;
 import app.finwave.backend.api.transaction.manager.records.BulkTransactionsRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
@@ -19,11 +26,9 @@ import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.api.transaction.metadata.MetadataType;
 import app.finwave.backend.database.DatabaseWorker;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS_METADATA;
 
@@ -32,6 +37,7 @@ public class TransactionsManager {
     protected DSLContext context;
     protected DatabaseWorker databaseWorker;
     protected TransactionDatabase transactionDatabase;
+    protected OutboxManager outbox;
 
     protected DefaultActionsWorker defaultActionsWorker;
     protected InternalActionsWorker internalActionsWorker;
@@ -40,13 +46,16 @@ public class TransactionsManager {
 
     protected HashMap<MetadataType, TransactionActionsWorker<?,?,?>> actionsWorkers = new HashMap<>();
 
-    protected ReentrantLock transactionLock = new ReentrantLock();
+    protected Striped<Lock> transactionLocks;
+    protected ThreadLocal<DSLContext> currentContext = new ThreadLocal<>();
 
     @Inject
-    public TransactionsManager(DatabaseWorker databaseWorker) {
+    public TransactionsManager(DatabaseWorker databaseWorker, Configs configs, OutboxManager outbox) {
+        this.transactionLocks = Striped.lock(configs.getState(new TransactionConfig()).lockStripes);
         this.context = databaseWorker.getDefaultContext();
         this.databaseWorker = databaseWorker;
         this.transactionDatabase = databaseWorker.get(TransactionDatabase.class);
+        this.outbox = outbox;
 
         this.defaultActionsWorker = new DefaultActionsWorker(databaseWorker);
         this.internalActionsWorker = new InternalActionsWorker(defaultActionsWorker, databaseWorker);
@@ -66,88 +75,94 @@ public class TransactionsManager {
     public void applyBulkTransactions(BulkTransactionsRecord record, int userId) {
         List<?> records = record.toRecords(userId);
 
-        transactionLock.lock();
+        List<TransactionNewRecord> defaultRecords = new ArrayList<>();
+        List<TransactionNewInternalRecord> internalRecords = new ArrayList<>();
 
-        try {
-            context.transaction((configuration) -> {
-                DSLContext dsl = configuration.dsl();
-                var hooksInternal = internalActionsWorker.getHooks();
-                var hooksDefault = defaultActionsWorker.getHooks();
-
-                for (Object rawRecord : records) {
-                    if (rawRecord instanceof TransactionNewRecord newRecord) {
-                        hooksDefault.forEach((h) -> h.apply(dsl, newRecord));
-                        long id = defaultActionsWorker.apply(dsl, newRecord);
-                        hooksDefault.forEach((h) -> h.applied(dsl, newRecord, id));
-                    }
-
-                    if (rawRecord instanceof TransactionNewInternalRecord newRecord) {
-                        hooksInternal.forEach((h) -> h.apply(dsl, newRecord));
-                        long id = internalActionsWorker.apply(dsl, newRecord);
-                        hooksInternal.forEach((h) -> h.applied(dsl, newRecord, id));
-                    }
-                }
-            });
-        }finally {
-            transactionLock.unlock();
+        for (Object rawRecord : records) {
+            if (rawRecord instanceof TransactionNewRecord newRecord)
+                defaultRecords.add(newRecord);
+
+            if (rawRecord instanceof TransactionNewInternalRecord newRecord)
+                internalRecords.add(newRecord);
         }
+
+        HashSet<Object> keys = new HashSet<>();
+        keys.add(userLockKey(userId));
+
+        for (BulkTransactionsRecord.Entry entry : record.entries()) {
+            if (entry.type == 1) {
+                keys.add(accountLockKey(entry.accountId));
+                keys.add(accountLockKey(entry.toAccountId));
+            }
+        }
+
+        runLocked(userId, keys, (dsl) -> {
+            var hooksInternal = internalActionsWorker.getHooks();
+            var hooksDefault = defaultActionsWorker.getHooks();
+
+            if (!defaultRecords.isEmpty()) {
+                hooksDefault.forEach((h) -> h.applyBatch(dsl, defaultRecords));
+                List<Long> ids = defaultActionsWorker.applyBatch(dsl, defaultRecords);
+                hooksDefault.forEach((h) -> h.appliedBatch(dsl, defaultRecords, ids));
+            }
+
+            for (TransactionNewInternalRecord newRecord : internalRecords) {
+                hooksInternal.forEach((h) -> h.apply(dsl, newRecord));
+                long id = internalActionsWorker.apply(dsl, newRecord);
+                hooksInternal.forEach((h) -> h.applied(dsl, newRecord, id));
+            }
+
+            return null;
+        });
     }
 
     public long applyInternalTransfer(TransactionNewInternalRecord newRecord) {
-        transactionLock.lock();
+        List<Object> keys = List.of(
+                userLockKey(newRecord.userId()),
+                accountLockKey(newRecord.fromAccountId()),
+                accountLockKey(newRecord.toAccountId())
+        );
 
-        try {
-            return context.transactionResult((configuration) -> {
-                DSLContext dsl = configuration.dsl();
-                var hooks = internalActionsWorker.getHooks();
+        return runLocked(newRecord.userId(), keys, (dsl) -> {
+            var hooks = internalActionsWorker.getHooks();
 
-                hooks.forEach((h) -> h.apply(dsl, newRecord));
-                long id = internalActionsWorker.apply(dsl, newRecord);
-                hooks.forEach((h) -> h.applied(dsl, newRecord, id));
+            hooks.forEach((h) -> h.apply(dsl, newRecord));
+            long id = internalActionsWorker.apply(dsl, newRecord);
+            hooks.forEach((h) -> h.applied(dsl, newRecord, id));
 
-                return id;
-            });
-        }finally {
-            transactionLock.unlock();
-        }
+            return id;
+        });
     }
 
     public long applyTransaction(TransactionNewRecord newRecord) {
-        transactionLock.lock();
-
-        try {
-            return context.transactionResult((configuration) -> {
-                DSLContext dsl = configuration.dsl();
-                var hooks = defaultActionsWorker.getHooks();
+        return runLocked(newRecord.userId(), List.of(userLockKey(newRecord.userId())), (dsl) -> {
+            var hooks = defaultActionsWorker.getHooks();
 
-                hooks.forEach((h) -> h.apply(dsl, newRecord));
-                long id = defaultActionsWorker.apply(dsl, newRecord);
-                hooks.forEach((h) -> h.applied(dsl, newRecord, id));
+            hooks.forEach((h) -> h.apply(dsl, newRecord));
+            long id = defaultActionsWorker.apply(dsl, newRecord);
+            hooks.forEach((h) -> h.applied(dsl, newRecord, id));
 
-                return id;
-            });
-        }finally {
-            transactionLock.unlock();
-        }
+            return id;
+        });
     }
 
     public long applyRecurringTransaction(TransactionNewRecord newRecord) {
-        transactionLock.lock();
+        return applyRecurringTransaction(newRecord, (dsl) -> {});
+    }
 
-        try {
-            return context.transactionResult((configuration) -> {
-                DSLContext dsl = configuration.dsl();
-                var hooks = recurringActionsWorker.getHooks();
+    // sameTransaction commits or rolls back together with the new transaction
+    public long applyRecurringTransaction(TransactionNewRecord newRecord, Consumer<DSLContext> sameTransaction) {
+        return runLocked(newRecord.userId(), List.of(userLockKey(newRecord.userId())), (dsl) -> {
+            var hooks = recurringActionsWorker.getHooks();
 
-                hooks.forEach((h) -> h.apply(dsl, newRecord));
-                long id = recurringActionsWorker.apply(configuration.dsl(), newRecord);
-                hooks.forEach((h) -> h.applied(dsl, newRecord, id));
+            hooks.forEach((h) -> h.apply(dsl, newRecord));
+            long id = recurringActionsWorker.apply(dsl, newRecord);
+            hooks.forEach((h) -> h.applied(dsl, newRecord, id));
 
-                return id;
-            });
-        }finally {
-            transactionLock.unlock();
-        }
+            sameTransaction.accept(dsl);
+
+            return id;
+        });
     }
 
     public void editTransaction(long transactionId, TransactionEditRecord editRecord) {
@@ -237,29 +252,53 @@ public class TransactionsManager {
     }
 
     public List<TransactionEntry<?>> getTransactions(int userId, int offset, int count, TransactionsFilter filter) {
-        List<Record> records = transactionDatabase.getTransactions(userId, offset, count, filter);
+        DSLContext readContext = databaseWorker.getReadContext(userId);
 
-        ArrayList<TransactionEntry<?>> result = new ArrayList<>();
-        HashMap<Long, TransactionEntry<?>> addedTransactions = new HashMap<>();
+        return prepareEntries(readContext, databaseWorker.get(TransactionDatabase.class, readContext).getTransactions(userId, offset, count, filter));
+    }
 
-        for (Record record : records) {
-            MetadataType metadataType = Optional.ofNullable(record.get(TRANSACTIONS_METADATA.TYPE))
+    public TransactionsPage getTransactions(int userId, TransactionsCursor after, int count, TransactionsFilter filter) {
+        DSLContext readContext = databaseWorker.getReadContext(userId);
+        List<Record> records = databaseWorker.get(TransactionDatabase.class, readContext).getTransactions(userId, after, count, filter);
+
+        TransactionsCursor next = records.size() < count ? null : TransactionsCursor.of(records.get(records.size() - 1));
+
+        return new TransactionsPage(prepareEntries(readContext, records), next);
+    }
+
+    // each worker prepares its rows of the page in one call, then entries are put back in page order
+    protected List<TransactionEntry<?>> prepareEntries(DSLContext context, List<Record> records) {
+        HashMap<MetadataType, List<Record>> byType = new HashMap<>();
+        MetadataType[] types = new MetadataType[records.size()];
+
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+
+            types[i] = Optional.ofNullable(record.get(TRANSACTIONS_METADATA.TYPE))
                     .map(MetadataType::get)
                     .orElse(MetadataType.WITHOUT_METADATA);
 
-            TransactionEntry<?> entry = actionsWorkers.get(metadataType).prepareEntry(context, record, addedTransactions);
+            byType.computeIfAbsent(types[i], k -> new ArrayList<>()).add(record);
+        }
+
+        HashMap<MetadataType, Iterator<? extends TransactionEntry<?>>> prepared = new HashMap<>();
+        byType.forEach((type, typeRecords) ->
+                prepared.put(type, actionsWorkers.get(type).prepareEntries(context, typeRecords).iterator()));
+
+        ArrayList<TransactionEntry<?>> result = new ArrayList<>();
 
-            if (entry != null) {
+        for (MetadataType type : types) {
+            TransactionEntry<?> entry = prepared.get(type).next();
+
+            if (entry != null)
                 result.add(entry);
-                addedTransactions.put(entry.transactionId, entry);
-            }
         }
 
         return result;
     }
 
     public int getTransactionsCount(int userId, TransactionsFilter filter) {
-        return transactionDatabase.getTransactionsCount(userId, filter);
+        return databaseWorker.getReader(TransactionDatabase.class, userId).getTransactionsCount(userId, filter);
     }
 
     public boolean userOwnTransaction(int userId, long transactionId) {
@@ -267,29 +306,106 @@ public class TransactionsManager {
     }
 
     protected void runTransactionOverRecord(long transactionId, Transaction transaction) {
-        transactionLock.lock();
+        int ownerId = transactionDatabase.getTransactionOwner(transactionId)
+                .orElseThrow(() -> new RuntimeException("Transaction not exists"));
+
+        runLocked(ownerId, List.of(userLockKey(ownerId)), (dsl) -> {
+            TransactionDatabase database = databaseWorker.get(TransactionDatabase.class, dsl);
+
+            Record record = database
+                    .getTransaction(transactionId)
+                    .orElseThrow(() -> new RuntimeException("Transaction not exists"));
+
+            MetadataType metadataType = Optional.ofNullable(record.get(TRANSACTIONS_METADATA.TYPE))
+                    .map(MetadataType::get)
+                    .orElse(MetadataType.WITHOUT_METADATA);
+
+            transaction.run(dsl, record, metadataType);
+
+            return null;
+        });
+    }
+
+    // nested calls from hooks already hold the caller's locks, taking more here would break the acquisition order
+    protected <T> T runLocked(int userId, Collection<Object> keys, TransactionBody<T> body) {
+        if (currentContext.get() != null)
+            return runInTransaction(body);
+
+        ArrayList<Lock> locks = new ArrayList<>();
+        transactionLocks.bulkGet(keys).forEach(locks::add);
+
+        locks.forEach(Lock::lock);
+
+        // fenced from the start, so reads racing the commit don't go to a replica either
+        databaseWorker.markWrite(userId);
 
         try {
-            context.transaction((configuration) -> {
-                DSLContext dsl = configuration.dsl();
-                TransactionDatabase database = databaseWorker.get(TransactionDatabase.class, dsl);
+            return runInTransaction((dsl) -> {
+                T result = body.run(dsl);
+
+                outbox.record(dsl, OutboxEventType.NOTIFY_UPDATE, userId, "transactions");
 
-                Record record = database
-                        .getTransaction(transactionId)
-                        .orElseThrow(() -> new RuntimeException("Transaction not exists"));
+                return result;
+            });
+        }finally {
+            databaseWorker.markWrite(userId);
 
-                MetadataType metadataType = Optional.ofNullable(record.get(TRANSACTIONS_METADATA.TYPE))
-                        .map(MetadataType::get)
-                        .orElse(MetadataType.WITHOUT_METADATA);
+            for (int i = locks.size() - 1; i >= 0; i--)
+                locks.get(i).unlock();
 
-                transaction.run(dsl, record, metadataType);
+            outbox.dispatchPending();
+        }
+    }
+
+    // no change of the user's transactions can commit while the body runs
+    public void runUserExclusive(int userId, Consumer<DSLContext> body) {
+        Lock lock = transactionLocks.get(userLockKey(userId));
+        lock.lock();
+
+        try {
+            runInTransaction((dsl) -> {
+                body.accept(dsl);
+
+                return null;
             });
         }finally {
-            transactionLock.unlock();
+            lock.unlock();
         }
     }
 
+    protected static Object userLockKey(int userId) {
+        return "user:" + userId;
+    }
+
+    protected static Object accountLockKey(long accountId) {
+        return "account:" + accountId;
+    }
+
+    // hooks call back into the manager, so nested calls must join the outer transaction instead of taking another connection
+    protected <T> T runInTransaction(TransactionBody<T> body) {
+        DSLContext outer = currentContext.get();
+
+        return (outer != null ? outer : context).transactionResult((configuration) -> {
+            DSLContext dsl = configuration.dsl();
+            currentContext.set(dsl);
+
+            try {
+                return body.run(dsl);
+            }finally {
+                if (outer != null) {
+                    currentContext.set(outer);
+                }else {
+                    currentContext.remove();
+                }
+            }
+        });
+    }
+
     interface Transaction {
         void run(DSLContext context, Record record, MetadataType type);
     }
+
+    interface TransactionBody<T> {
+        T run(DSLContext context);
+    }
 }
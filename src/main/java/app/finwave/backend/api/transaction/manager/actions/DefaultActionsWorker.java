@@ -10,8 +10,12 @@ import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord
 import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.database.DatabaseWorker;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import static app.finwave.backend.jooq.Tables.ACCOUNTS;
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
@@ -53,6 +57,33 @@ public class DefaultActionsWorker extends TransactionActionsWorker<TransactionNe
         return transactionId.get();
     }
 
+    public List<Long> applyBatch(DSLContext context, List<TransactionNewRecord> newRecords) {
+        TransactionDatabase database = databaseWorker.get(TransactionDatabase.class, context);
+
+        Map<Long, Long> currencies = context.select(ACCOUNTS.ID, ACCOUNTS.CURRENCY_ID)
+                .from(ACCOUNTS)
+                .where(ACCOUNTS.ID.in(newRecords.stream().map(TransactionNewRecord::accountId).distinct().toList()))
+                .fetchMap(ACCOUNTS.ID, ACCOUNTS.CURRENCY_ID);
+
+        TreeMap<Long, BigDecimal> accountsDeltas = new TreeMap<>();
+
+        for (TransactionNewRecord newRecord : newRecords) {
+            if (!currencies.containsKey(newRecord.accountId()))
+                throw new RuntimeException("Fail to create new transaction");
+
+            accountsDeltas.merge(newRecord.accountId(), newRecord.delta(), BigDecimal::add);
+        }
+
+        List<Long> transactionsIds = database.applyTransactions(newRecords, currencies);
+
+        accountsDeltas.forEach((accountId, delta) -> context.update(ACCOUNTS)
+                .set(ACCOUNTS.AMOUNT, ACCOUNTS.AMOUNT.plus(delta))
+                .where(ACCOUNTS.ID.eq(accountId))
+                .execute());
+
+        return transactionsIds;
+    }
+
     @Override
     public void edit(DSLContext context, Record record, TransactionEditRecord editRecord) {
         TransactionDatabase database = databaseWorker.get(TransactionDatabase.class, context);
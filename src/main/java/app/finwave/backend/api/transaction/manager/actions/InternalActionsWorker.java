@@ -12,8 +12,8 @@ import app.finwave.backend.jooq.tables.records.InternalTransactionsMetadataRecor
 import app.finwave.backend.jooq.tables.records.TransactionsRecord;
 import app.finwave.backend.utils.params.InvalidParameterException;
 
-import java.util.HashMap;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static app.finwave.backend.jooq.Tables.*;
 
@@ -108,6 +108,56 @@ public class InternalActionsWorker extends TransactionActionsWorker<TransactionN
         return new TransactionEntry<>(record, new InternalTransferMetadata(metadataId, secondTransaction));
     }
 
+    @Override
+    public List<TransactionEntry<InternalTransferMetadata>> prepareEntries(DSLContext context, List<Record> records) {
+        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+
+        Map<Long, InternalTransactionsMetadataRecord> metadataRecords = metadataDatabase.getInternalMetadata(records.stream()
+                .map((r) -> r.get(TRANSACTIONS_METADATA.ARG))
+                .collect(Collectors.toSet()));
+
+        HashMap<Long, Record> secondTransactions = new HashMap<>();
+        records.forEach((r) -> secondTransactions.put(r.get(TRANSACTIONS.ID), r));
+
+        Set<Long> missing = records.stream()
+                .filter((r) -> metadataRecords.containsKey(r.get(TRANSACTIONS_METADATA.ARG)))
+                .map((r) -> getSecondTransactionId(r, metadataRecords.get(r.get(TRANSACTIONS_METADATA.ARG))))
+                .filter((id) -> !secondTransactions.containsKey(id))
+                .collect(Collectors.toSet());
+
+        if (!missing.isEmpty())
+            secondTransactions.putAll(context.selectFrom(TRANSACTIONS)
+                    .where(TRANSACTIONS.ID.in(missing))
+                    .fetchMap(TRANSACTIONS.ID));
+
+        ArrayList<TransactionEntry<InternalTransferMetadata>> result = new ArrayList<>(records.size());
+        HashSet<Long> addedMetadata = new HashSet<>();
+
+        for (Record record : records) {
+            long metadataId = record.get(TRANSACTIONS.METADATA_ID);
+            InternalTransactionsMetadataRecord metadataRecord = metadataRecords.get(record.get(TRANSACTIONS_METADATA.ARG));
+
+            // a transfer without its metadata or second transaction is left out of the page
+            if (metadataRecord == null || !addedMetadata.add(metadataId)) {
+                result.add(null);
+
+                continue;
+            }
+
+            Record second = secondTransactions.get(getSecondTransactionId(record, metadataRecord));
+
+            if (second == null) {
+                result.add(null);
+
+                continue;
+            }
+
+            result.add(new TransactionEntry<>(record, new InternalTransferMetadata(metadataId, new TransactionEntry<>(second))));
+        }
+
+        return result;
+    }
+
     protected long getSecondTransactionId(Record record, InternalTransactionsMetadataRecord metadataRecord) {
         return record.get(TRANSACTIONS.ID).equals(metadataRecord.getFromTransactionId()) ?
                 metadataRecord.getToTransactionId() :
@@ -25,6 +25,23 @@ public abstract class TransactionActionsWorker<T, Y, Z extends AbstractMetadata>
     public abstract void cancel(DSLContext context, Record record);
     public abstract TransactionEntry<Z> prepareEntry(DSLContext context, Record record, HashMap<Long, TransactionEntry<?>> added);
 
+    // prepares a whole page at once, null for rows represented by another entry
+    public List<TransactionEntry<Z>> prepareEntries(DSLContext context, List<Record> records) {
+        ArrayList<TransactionEntry<Z>> result = new ArrayList<>(records.size());
+        HashMap<Long, TransactionEntry<?>> added = new HashMap<>();
+
+        for (Record record : records) {
+            TransactionEntry<Z> entry = prepareEntry(context, record, added);
+
+            if (entry != null)
+                added.put(entry.transactionId, entry);
+
+            result.add(entry);
+        }
+
+        return result;
+    }
+
     public void addHook(TransactionActionsHook<T, Y> hook) {
         hooks.add(hook);
     }
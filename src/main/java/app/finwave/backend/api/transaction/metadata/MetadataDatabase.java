@@ -5,9 +5,13 @@ import org.jooq.Record1;
 import app.finwave.backend.database.AbstractDatabase;
 import app.finwave.backend.jooq.tables.records.InternalTransactionsMetadataRecord;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static app.finwave.backend.jooq.Tables.*;
+import static org.jooq.impl.DSL.selectOne;
 
 public class MetadataDatabase extends AbstractDatabase {
     public MetadataDatabase(DSLContext context) {
@@ -47,4 +51,23 @@ public class MetadataDatabase extends AbstractDatabase {
                 .where(INTERNAL_TRANSACTIONS_METADATA.ID.eq(id))
                 .fetchOptional();
     }
+
+    public Map<Long, InternalTransactionsMetadataRecord> getInternalMetadata(Collection<Long> ids) {
+        return context.selectFrom(INTERNAL_TRANSACTIONS_METADATA)
+                .where(INTERNAL_TRANSACTIONS_METADATA.ID.in(ids))
+                .fetchMap(INTERNAL_TRANSACTIONS_METADATA.ID);
+    }
+
+    // transfers referencing a transaction that doesn't exist, the database can't enforce it since transactions are partitioned
+    public List<Long> getOrphanedInternalMetadata() {
+        return context.select(INTERNAL_TRANSACTIONS_METADATA.ID)
+                .from(INTERNAL_TRANSACTIONS_METADATA)
+                .whereNotExists(selectOne()
+                        .from(TRANSACTIONS)
+                        .where(TRANSACTIONS.ID.eq(INTERNAL_TRANSACTIONS_METADATA.FROM_TRANSACTION_ID)))
+                .orNotExists(selectOne()
+                        .from(TRANSACTIONS)
+                        .where(TRANSACTIONS.ID.eq(INTERNAL_TRANSACTIONS_METADATA.TO_TRANSACTION_ID)))
+                .fetch(INTERNAL_TRANSACTIONS_METADATA.ID);
+    }
 }
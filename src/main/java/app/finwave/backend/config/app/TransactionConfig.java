@@ -7,6 +7,8 @@ public class TransactionConfig implements GroupedConfig {
     public int maxTransactionsInListPerRequest = 128;
     public int maxDescriptionLength = 256;
 
+    public int lockStripes = 256;
+
     public CategoryConfig categories = new CategoryConfig();
 
     @Override
@@ -43,8 +43,49 @@ public class AiConfig implements GroupedConfig {
 
     public int maxFilesSizeSumPerAttachmentKiB = 16384;
 
+    public PdfConversion pdf = new PdfConversion();
+    public Streaming streaming = new Streaming();
+    public Context context = new Context();
+
     @Override
     public ConfigGroup group() {
         return ConfigGroup.GENERAL;
     }
+
+    public static class PdfConversion {
+        public int dpi = 150;
+        public int maxPages = 20;
+        public int threads = 2;
+        // render tasks queued or running, a PDF takes one for its text and one per page chunk (at most threads).
+        // PDFs that don't fit are refused
+        public int maxQueuedTasks = 64;
+    }
+
+    public static class Streaming {
+        public int threads = 4;
+        public int toolsThreads = 4;
+        // asks waiting for a thread, counting the ones still waiting for their attachments. New asks beyond it are refused
+        public int maxQueuedAsks = 32;
+        // deltas are coalesced until either limit is reached, so slow clients are not flooded with tiny messages
+        public int deltaFlushChars = 32;
+        public int deltaFlushMillis = 100;
+    }
+
+    public static class Context {
+        // estimated prompt tokens for the history, older turns beyond it are summarized or dropped
+        public int maxPromptTokens = 8000;
+        public int charsPerToken = 4;
+        public int tokensPerMessage = 4;
+        public int tokensPerImage = 765;
+
+        public boolean summarize = false;
+        public int maxSummaryTokens = 256;
+        public String summaryPrompt = """
+            Summarize the conversation between the user and the financial assistant below.
+            Keep facts, numbers, dates and decisions the assistant may need later, drop greetings and repetitions.
+            If a previous summary is given, merge it into the new one.
+            Reply with the summary only.
+            """;
+        public String summaryTip = "Summary of the earlier conversation: {_SUMMARY_}";
+    }
 }
@@ -9,6 +9,8 @@ public class CachingConfig implements GroupedConfig {
     public Analytics analytics = new Analytics();
     public Ai ai = new Ai();
     public Files files = new Files();
+    public Ownership ownership = new Ownership();
+    public Invalidation invalidation = new Invalidation();
 
     @Override
     public ConfigGroup group() {
@@ -38,5 +40,20 @@ public class CachingConfig implements GroupedConfig {
 
     public static class Ai {
         public int maxContexts = 200;
+        public int maxPdfRenders = 100;
+    }
+
+    public static class Ownership {
+        public int maxUsers = 1000;
+        public int lockStripes = 64;
+    }
+
+    public static class Invalidation {
+        // broadcast cache invalidations to other backend nodes through postgres notifications, needed when several nodes share the database
+        public boolean enabled = false;
+        public String channel = "finwave_cache_invalidation";
+
+        public long pollMillis = 10000;
+        public long reconnectMillis = 5000;
     }
 }
@@ -12,8 +12,46 @@ public class DatabaseConfig implements GroupedConfig {
             .ofNullable(System.getenv("DATABASE_PASSWORD"))
             .orElse("change_me");
 
+    public Pool pool = new Pool();
+    public Replicas replicas = new Replicas();
+    public Partitions partitions = new Partitions();
+
     @Override
     public ConfigGroup group() {
         return ConfigGroup.GENERAL;
     }
+
+    public static class Pool {
+        public int minSize = 2;
+        public int maxSize = 10;
+
+        public long acquisitionTimeoutMillis = 30000;
+        public long idleTimeoutMillis = 600000;
+        public long maxLifetimeMillis = 1800000;
+
+        // 0 - disabled
+        public long leakDetectionThresholdMillis = 60000;
+    }
+
+    public static class Replicas {
+        // read-only streaming replicas, empty - every query goes to the primary
+        public String[] urls = new String[0];
+
+        public int maxSize = 10;
+        public long acquisitionTimeoutMillis = 1000;
+
+        // how long a replica that failed to give a connection is skipped
+        public long retryMillis = 10000;
+
+        // reads of a user who wrote within this time stay on the primary
+        public long readYourWritesMillis = 5000;
+    }
+
+    public static class Partitions {
+        // monthly transactions partitions created in advance
+        public int monthsAhead = 3;
+
+        // months older than this are detached and kept as standalone tables, their transactions leave lists and analytics; 0 - never
+        public int detachAfterMonths = 0;
+    }
 }
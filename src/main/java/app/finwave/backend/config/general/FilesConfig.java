@@ -11,9 +11,30 @@ public class FilesConfig implements GroupedConfig {
     public int maxUploadedFilesName = 128;
 
     public int filesToDeletePerHour = 50;
+    public int filesToScrubPerHour = 100;
+
+    public StorageConfig storage = new StorageConfig();
 
     @Override
     public ConfigGroup group() {
         return ConfigGroup.GENERAL;
     }
+
+    public static class StorageConfig {
+        // local or s3
+        public String type = "local";
+        public String localPath = "./files/";
+
+        public S3Config s3 = new S3Config();
+    }
+
+    public static class S3Config {
+        public String endpoint = "http://minio:9000";
+        public String region = "us-east-1";
+        public String bucket = "finwave";
+        public String accessKey = "";
+        public String secretKey = "";
+        // S3 requires at least 5 MiB for every part except the last one
+        public int partSizeMiB = 8;
+    }
 }
@@ -6,6 +6,7 @@ import app.finwave.backend.config.GroupedConfig;
 public class HttpConfig implements GroupedConfig {
     public int port = 8080;
     public CorsConfig cors = new CorsConfig();
+    public WebSocketConfig webSocket = new WebSocketConfig();
 
     @Override
     public ConfigGroup group() {
@@ -17,4 +18,9 @@ public class HttpConfig implements GroupedConfig {
         public String allowedMethods = "*";
         public String allowedHeaders = "*";
     }
+
+    public static class WebSocketConfig {
+        // messages waiting for a slow client, new ones are dropped above this
+        public int maxPendingMessages = 64;
+    }
 }
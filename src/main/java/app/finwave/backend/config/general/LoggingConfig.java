@@ -12,8 +12,27 @@ public class LoggingConfig implements GroupedConfig {
 
     public boolean logFullClassName = false;
 
+    public Output output = new Output();
+
     @Override
     public ConfigGroup group() {
         return ConfigGroup.GENERAL;
     }
+
+    public static class Output {
+        public boolean console = true;
+        public boolean json = false;
+
+        public int bufferSize = 8192;
+        public int batchSize = 512;
+        public int flushMillis = 200;
+
+        // block, drop or drop_below_warn
+        public String overflowPolicy = "drop_below_warn";
+
+        // 0 disables the limit
+        public int maxFileSizeMiB = 64;
+        public int rotateHours = 24;
+        public int maxHistoryFiles = 30;
+    }
 }
@@ -7,6 +7,11 @@ public class ReportBuilderConfig implements GroupedConfig {
     public int maxTransactionsPerCycle = 100;
     public int threads = 4;
 
+    // by days/months tables are kept as long cells until written, a report over this limit fails
+    public long maxCellsInMemory = 4_000_000;
+    // digits kept beyond the currency decimals while summing
+    public int extraCellsScale = 4;
+
     @Override
     public ConfigGroup group() {
         return ConfigGroup.GENERAL;
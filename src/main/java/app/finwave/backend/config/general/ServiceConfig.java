@@ -6,6 +6,7 @@ import app.finwave.backend.config.GroupedConfig;
 public class ServiceConfig implements GroupedConfig {
     public int threadPoolThreads = 2;
     public NotificationServiceConfig notifications = new NotificationServiceConfig();
+    public OutboxServiceConfig outbox = new OutboxServiceConfig();
 
     @Override
     public ConfigGroup group() {
@@ -15,4 +16,10 @@ public class ServiceConfig implements GroupedConfig {
     public static class NotificationServiceConfig {
         public int notificationsPerSecond = 100;
     }
+
+    public static class OutboxServiceConfig {
+        // events are dispatched by their writer right after commit, the relay picks up whatever was left behind
+        public int relayIntervalSeconds = 5;
+        public int batchSize = 500;
+    }
 }
@@ -3,7 +3,8 @@ package app.finwave.backend.database;
 import org.jooq.DSLContext;
 
 public abstract class AbstractDatabase {
-    protected DSLContext context;
+    // daos on the default context are shared, so they hold nothing besides it
+    protected final DSLContext context;
 
     public AbstractDatabase(DSLContext context) {
         this.context = context;
@@ -0,0 +1,43 @@
+package app.finwave.backend.database;
+
+import org.jooq.DSLContext;
+
+import java.lang.invoke.*;
+import java.util.function.Function;
+
+// one compiled constructor reference per dao class, built on first use instead of a reflective lookup per call
+public class DatabaseFactories {
+    protected static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    protected static final ClassValue<Function<DSLContext, AbstractDatabase>> FACTORIES = new ClassValue<>() {
+        @Override
+        protected Function<DSLContext, AbstractDatabase> computeValue(Class<?> type) {
+            return compile(type);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public static <T extends AbstractDatabase> T create(Class<T> tClass, DSLContext context) {
+        return (T) FACTORIES.get(tClass).apply(context);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static Function<DSLContext, AbstractDatabase> compile(Class<?> type) {
+        try {
+            MethodHandle constructor = LOOKUP.findConstructor(type, MethodType.methodType(void.class, DSLContext.class));
+
+            CallSite site = LambdaMetafactory.metafactory(
+                    LOOKUP,
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    constructor,
+                    MethodType.methodType(type, DSLContext.class)
+            );
+
+            return (Function<DSLContext, AbstractDatabase>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("No (DSLContext) constructor in " + type.getName(), e);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package app.finwave.backend.database;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.flywaydb.core.Flyway;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
@@ -12,18 +16,29 @@ import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.DatabaseConfig;
 import app.finwave.backend.migration.Migrator;
 
-import java.lang.reflect.InvocationTargetException;
-import java.sql.Connection;
-import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class DatabaseWorker {
     protected static final Logger log = LoggerFactory.getLogger(DatabaseWorker.class);
     protected DatabaseConfig config;
 
-    protected Connection connection;
+    protected HikariDataSource dataSource;
+    protected PoolMetrics poolMetrics;
     protected DSLContext context;
 
+    protected ArrayList<HikariDataSource> replicaSources = new ArrayList<>();
+    protected DSLContext replicaContext;
+
+    // user id -> time of the last write, while it's fresh the user's reads go to the primary
+    protected Cache<Integer, Long> writeFences;
+
+    // daos only wrap a context, so the ones bound to the default context are shared
+    protected ConcurrentHashMap<Class<?>, AbstractDatabase> defaultViews = new ConcurrentHashMap<>();
+    protected ConcurrentHashMap<Class<?>, AbstractDatabase> replicaViews = new ConcurrentHashMap<>();
+
     @Inject
     public DatabaseWorker(Configs configs, Migrator migrator) {
         config = configs.getState(new DatabaseConfig());
@@ -43,29 +58,121 @@ public class DatabaseWorker {
         log.info("Connect to database...");
 
         try {
-            connection = DriverManager.getConnection(config.url, config.user, config.password);
+            dataSource = new HikariDataSource(poolConfig());
 
-            context = DSL.using(connection, SQLDialect.POSTGRES);
+            context = DSL.using(dataSource, SQLDialect.POSTGRES);
         } catch (Exception e) {
             log.error("Error to connect", e);
 
             System.exit(1);
         }
+
+        this.writeFences = CacheBuilder.newBuilder()
+                .expireAfterWrite(Math.max(1, config.replicas.readYourWritesMillis), TimeUnit.MILLISECONDS)
+                .build();
+
+        initReplicas();
+    }
+
+    protected void initReplicas() {
+        if (config.replicas.urls.length == 0) {
+            replicaContext = context;
+
+            return;
+        }
+
+        for (int i = 0; i < config.replicas.urls.length; i++) {
+            HikariConfig hikariConfig = new HikariConfig();
+
+            hikariConfig.setPoolName("finwave-replica-" + i);
+            hikariConfig.setJdbcUrl(config.replicas.urls[i]);
+            hikariConfig.setUsername(config.user);
+            hikariConfig.setPassword(config.password);
+            hikariConfig.setReadOnly(true);
+
+            hikariConfig.setMinimumIdle(0);
+            hikariConfig.setMaximumPoolSize(config.replicas.maxSize);
+            hikariConfig.setConnectionTimeout(config.replicas.acquisitionTimeoutMillis);
+            hikariConfig.setIdleTimeout(config.pool.idleTimeoutMillis);
+            hikariConfig.setMaxLifetime(config.pool.maxLifetimeMillis);
+
+            // a replica that is down at startup is skipped on reads until it comes back
+            hikariConfig.setInitializationFailTimeout(-1);
+
+            replicaSources.add(new HikariDataSource(hikariConfig));
+        }
+
+        replicaContext = DSL.using(new ReplicaConnectionProvider(replicaSources, dataSource, config.replicas.retryMillis), SQLDialect.POSTGRES);
+
+        log.info("Routing reads to {} replica(s)", replicaSources.size());
+    }
+
+    protected HikariConfig poolConfig() {
+        HikariConfig hikariConfig = new HikariConfig();
+
+        hikariConfig.setPoolName("finwave");
+        hikariConfig.setJdbcUrl(config.url);
+        hikariConfig.setUsername(config.user);
+        hikariConfig.setPassword(config.password);
+
+        hikariConfig.setMinimumIdle(config.pool.minSize);
+        hikariConfig.setMaximumPoolSize(config.pool.maxSize);
+        hikariConfig.setConnectionTimeout(config.pool.acquisitionTimeoutMillis);
+        hikariConfig.setIdleTimeout(config.pool.idleTimeoutMillis);
+        hikariConfig.setMaxLifetime(config.pool.maxLifetimeMillis);
+        hikariConfig.setLeakDetectionThreshold(config.pool.leakDetectionThresholdMillis);
+
+        hikariConfig.setMetricsTrackerFactory((poolName, poolStats) -> {
+            poolMetrics = new PoolMetrics(poolStats);
+
+            return poolMetrics;
+        });
+
+        return hikariConfig;
+    }
+
+    public PoolMetrics.Snapshot getPoolMetrics() {
+        return poolMetrics.snapshot();
     }
 
     public DSLContext getDefaultContext() {
         return context;
     }
 
+    // context for reads that may lag behind the primary by a moment, the user's own recent writes pin them to the primary
+    public DSLContext getReadContext(int userId) {
+        if (replicaContext == context || isFenced(userId))
+            return context;
+
+        return replicaContext;
+    }
+
+    public void markWrite(int userId) {
+        writeFences.put(userId, System.currentTimeMillis());
+    }
+
+    protected boolean isFenced(int userId) {
+        Long lastWrite = writeFences.getIfPresent(userId);
+
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < config.replicas.readYourWritesMillis;
+    }
+
     public <T extends AbstractDatabase> T get(Class<T> tClass, DSLContext context) {
-        try {
-            return tClass.getConstructor(DSLContext.class).newInstance(context);
-        } catch (NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
+        return DatabaseFactories.create(tClass, context);
     }
 
+    @SuppressWarnings("unchecked")
     public <T extends AbstractDatabase> T get(Class<T> tClass) {
-        return get(tClass, context);
+        return (T) defaultViews.computeIfAbsent(tClass, (c) -> DatabaseFactories.create(tClass, context));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends AbstractDatabase> T getReader(Class<T> tClass, int userId) {
+        DSLContext readContext = getReadContext(userId);
+
+        if (readContext == context)
+            return get(tClass);
+
+        return (T) replicaViews.computeIfAbsent(tClass, (c) -> DatabaseFactories.create(tClass, replicaContext));
     }
 }
@@ -0,0 +1,171 @@
+package app.finwave.backend.database;
+
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.CachingConfig;
+import app.finwave.backend.config.general.DatabaseConfig;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// keeps per-node caches coherent: invalidations go out with pg_notify and are applied by a listener thread on every other node.
+// notifications sent inside a transaction are delivered only after its commit and dropped on rollback
+@Singleton
+public class InvalidationBus {
+    protected static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+    // postgres limits a payload to 8000 bytes, keys are ascii
+    protected static final int MAX_PAYLOAD_LENGTH = 7900;
+    protected static final String ALL = "*";
+
+    protected CachingConfig.Invalidation config;
+    protected DatabaseConfig databaseConfig;
+    protected DSLContext context;
+
+    // messages of this node are already applied locally when published
+    protected String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    protected ConcurrentHashMap<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    protected Thread thread;
+
+    @Inject
+    public InvalidationBus(DatabaseWorker databaseWorker, Configs configs) {
+        this.config = configs.getState(new CachingConfig()).invalidation;
+        this.databaseConfig = configs.getState(new DatabaseConfig());
+        this.context = databaseWorker.getDefaultContext();
+
+        if (!config.enabled)
+            return;
+
+        this.thread = new Thread(this::listen, "Cache Invalidation Listener");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // onReset drops everything of the topic, it's called when other nodes invalidated all keys or messages could have been missed
+    public void subscribe(String topic, Consumer<String> onKey, Runnable onReset) {
+        subscriptions.computeIfAbsent(topic, (t) -> new CopyOnWriteArrayList<>()).add(new Subscription(onKey, onReset));
+    }
+
+    public void publish(String topic, Object key) {
+        publish(context, topic, List.of(key));
+    }
+
+    public void publish(String topic, Collection<?> keys) {
+        publish(context, topic, keys);
+    }
+
+    public void publishAll(String topic) {
+        publish(context, topic, List.of(ALL));
+    }
+
+    public void publish(DSLContext context, String topic, Collection<?> keys) {
+        if (!config.enabled || keys.isEmpty())
+            return;
+
+        String prefix = nodeId + " " + topic + " ";
+        StringBuilder payload = new StringBuilder(prefix);
+
+        for (Object key : keys) {
+            String value = String.valueOf(key);
+
+            if (payload.length() > prefix.length() && payload.length() + value.length() + 1 > MAX_PAYLOAD_LENGTH) {
+                notify(context, payload.toString());
+                payload.setLength(prefix.length());
+            }
+
+            if (payload.length() > prefix.length())
+                payload.append(',');
+
+            payload.append(value);
+        }
+
+        notify(context, payload.toString());
+    }
+
+    protected void notify(DSLContext context, String payload) {
+        try {
+            context.resultQuery("select pg_notify({0}, {1})", DSL.val(config.channel), DSL.val(payload)).fetch();
+        } catch (Exception e) {
+            log.error("Failed to publish cache invalidation", e);
+        }
+    }
+
+    protected void listen() {
+        while (true) {
+            try (Connection connection = DriverManager.getConnection(databaseConfig.url, databaseConfig.user, databaseConfig.password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("listen \"" + config.channel.replace("\"", "\"\"") + "\"");
+                }
+
+                // invalidations published while this node wasn't listening are lost
+                subscriptions.values().forEach((list) -> list.forEach((s) -> s.onReset().run()));
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                while (true) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) config.pollMillis);
+
+                    if (notifications == null || notifications.length == 0) {
+                        if (!connection.isValid(5))
+                            break;
+
+                        continue;
+                    }
+
+                    for (PGNotification notification : notifications)
+                        receive(notification.getParameter());
+                }
+            } catch (Exception e) {
+                log.warn("Cache invalidation listener disconnected: " + e.getMessage());
+            }
+
+            try {
+                Thread.sleep(config.reconnectMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    protected void receive(String payload) {
+        String[] parts = payload.split(" ", 3);
+
+        if (parts.length != 3 || parts[0].equals(nodeId))
+            return;
+
+        List<Subscription> topicSubscriptions = subscriptions.get(parts[1]);
+
+        if (topicSubscriptions == null)
+            return;
+
+        for (String key : parts[2].split(",")) {
+            for (Subscription subscription : topicSubscriptions) {
+                try {
+                    if (key.equals(ALL)) {
+                        subscription.onReset().run();
+                    }else {
+                        subscription.onKey().accept(key);
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to apply cache invalidation '" + parts[1] + " " + key + "'", e);
+                }
+            }
+        }
+    }
+
+    protected record Subscription(Consumer<String> onKey, Runnable onReset) {}
+}
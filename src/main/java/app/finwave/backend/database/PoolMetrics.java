@@ -0,0 +1,61 @@
+package app.finwave.backend.database;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PoolMetrics implements IMetricsTracker {
+    protected final PoolStats stats;
+
+    protected final LongAdder acquisitions = new LongAdder();
+    protected final LongAdder acquisitionNanos = new LongAdder();
+    protected final LongAccumulator maxAcquisitionNanos = new LongAccumulator(Long::max, 0);
+    protected final LongAdder timeouts = new LongAdder();
+
+    public PoolMetrics(PoolStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquisitions.increment();
+        acquisitionNanos.add(elapsedAcquiredNanos);
+        maxAcquisitionNanos.accumulate(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    public Snapshot snapshot() {
+        long count = acquisitions.sum();
+        double averageWait = count == 0 ? 0 : (double) acquisitionNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+        double maxWait = (double) maxAcquisitionNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+
+        return new Snapshot(
+                stats.getActiveConnections(),
+                stats.getIdleConnections(),
+                stats.getTotalConnections(),
+                stats.getPendingThreads(),
+                stats.getMaxConnections(),
+                count,
+                averageWait,
+                maxWait,
+                timeouts.sum()
+        );
+    }
+
+    public record Snapshot(int activeConnections,
+                           int idleConnections,
+                           int totalConnections,
+                           int pendingThreads,
+                           int maxConnections,
+                           long acquisitions,
+                           double averageWaitMillis,
+                           double maxWaitMillis,
+                           long timeouts) {}
+}
@@ -0,0 +1,70 @@
+package app.finwave.backend.database;
+
+import org.jooq.ConnectionProvider;
+import org.jooq.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// replicas are taken in turn, the primary serves the read when none of them hands out a connection
+public class ReplicaConnectionProvider implements ConnectionProvider {
+    protected static final Logger log = LoggerFactory.getLogger(ReplicaConnectionProvider.class);
+
+    protected List<? extends DataSource> replicas;
+    protected DataSource primary;
+    protected AtomicInteger next = new AtomicInteger();
+
+    // a failed replica is skipped for a while instead of making every read wait for its timeout
+    protected AtomicLongArray skipUntil;
+    protected long retryMillis;
+
+    public ReplicaConnectionProvider(List<? extends DataSource> replicas, DataSource primary, long retryMillis) {
+        this.replicas = replicas;
+        this.primary = primary;
+        this.skipUntil = new AtomicLongArray(replicas.size());
+        this.retryMillis = retryMillis;
+    }
+
+    @Override
+    public Connection acquire() throws DataAccessException {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+
+            if (skipUntil.get(index) > now)
+                continue;
+
+            try {
+                return replicas.get(index).getConnection();
+            } catch (SQLException e) {
+                skipUntil.set(index, now + retryMillis);
+
+                log.warn("Replica #{} connection failed, reading from the primary: {}", index, e.getMessage());
+            }
+        }
+
+        try {
+            return primary.getConnection();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error getting connection", e);
+        }
+    }
+
+    @Override
+    public void release(Connection connection) throws DataAccessException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error closing connection", e);
+        }
+    }
+}
@@ -122,6 +122,7 @@ public class HttpWorker {
             get("/getActiveUsersCount", adminApi::getActiveUsersCount);
             get("/getUsersCount", adminApi::getUsersCount);
             get("/getTransactionsCount", adminApi::getTransactionsCount);
+            get("/getDatabaseStats", adminApi::getDatabaseStats);
 
             post("/registerUser", adminApi::registerUser);
             post("/changeUserPassword", adminApi::changeUserPassword);
@@ -249,6 +250,7 @@ public class HttpWorker {
                 post("/newContext", aiApi::newContext);
                 post("/attachFile", aiApi::attachFile);
                 post("/ask", aiApi::ask);
+                post("/askStream", aiApi::askStream);
             });
         });
 
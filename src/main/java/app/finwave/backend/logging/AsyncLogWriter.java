@@ -0,0 +1,252 @@
+package app.finwave.backend.logging;
+
+import app.finwave.backend.config.general.LoggingConfig;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import org.slf4j.event.Level;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// callers only enqueue events, one thread formats them and writes whole batches to the console and the log file
+public class AsyncLogWriter {
+    protected static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    protected static final SimpleDateFormat HISTORY_FORMAT = new SimpleDateFormat("dd-MM-yy_HH-mm-ss");
+    protected static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    protected LoggingConfig.Output config;
+    protected OverflowPolicy overflowPolicy;
+
+    protected Path file;
+    protected Path historyDirectory;
+
+    protected ArrayBlockingQueue<LogEvent> queue;
+    protected AtomicLong dropped = new AtomicLong();
+
+    protected OutputStream console;
+    protected OutputStream fileStream;
+    protected long fileSize;
+    protected long fileOpenedAt;
+
+    protected Thread thread;
+    protected volatile boolean running = true;
+
+    public AsyncLogWriter(LoggingConfig.Output config, Path file, Path historyDirectory, OutputStream console) throws IOException {
+        this.config = config;
+        this.overflowPolicy = OverflowPolicy.valueOf(config.overflowPolicy.toUpperCase());
+        this.file = file;
+        this.historyDirectory = historyDirectory;
+        this.console = config.console ? new BufferedOutputStream(console, 64 * 1024) : null;
+        this.queue = new ArrayBlockingQueue<>(config.bufferSize);
+
+        if (Files.exists(file) && Files.size(file) > 0) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            moveToHistory(attributes.creationTime().to(TimeUnit.MILLISECONDS));
+        }
+
+        openFile();
+
+        this.thread = new Thread(this::run, "Log Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "Log Writer Shutdown"));
+    }
+
+    public void append(LogEvent event) {
+        if (queue.offer(event))
+            return;
+
+        boolean important = event.level() == null || event.level().toInt() >= Level.WARN.toInt();
+
+        if (overflowPolicy == OverflowPolicy.DROP || overflowPolicy == OverflowPolicy.DROP_BELOW_WARN && !important || !running) {
+            dropped.incrementAndGet();
+
+            return;
+        }
+
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+        }
+    }
+
+    public void close() {
+        if (!running)
+            return;
+
+        running = false;
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected void run() {
+        ArrayList<LogEvent> batch = new ArrayList<>(config.batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                LogEvent first = queue.poll(config.flushMillis, TimeUnit.MILLISECONDS);
+
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, config.batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+
+            try {
+                write(batch);
+            } catch (IOException e) {
+                e.printStackTrace(SystemStreamsHandler.defaultErrStream);
+            }
+
+            batch.clear();
+        }
+
+        try {
+            if (console != null)
+                console.flush();
+
+            fileStream.close();
+        } catch (IOException e) {
+            e.printStackTrace(SystemStreamsHandler.defaultErrStream);
+        }
+    }
+
+    protected void write(List<LogEvent> batch) throws IOException {
+        long droppedCount = dropped.getAndSet(0);
+
+        if (batch.isEmpty() && droppedCount == 0)
+            return;
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(batch.size() * 128);
+
+        for (LogEvent event : batch)
+            buffer.write(format(event).getBytes(StandardCharsets.UTF_8));
+
+        if (droppedCount > 0) {
+            LogEvent notice = new LogEvent(System.currentTimeMillis(), thread.getName(), "AsyncLogWriter", Level.WARN,
+                    droppedCount + " log events dropped: buffer overflow", null);
+
+            buffer.write(format(notice).getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (console != null) {
+            buffer.writeTo(console);
+            console.flush();
+        }
+
+        buffer.writeTo(fileStream);
+        fileStream.flush();
+        fileSize += buffer.size();
+
+        if (rotationNeeded())
+            rotate();
+    }
+
+    protected String format(LogEvent event) {
+        String stackTrace = null;
+
+        if (event.throwable() != null) {
+            StringWriter writer = new StringWriter();
+            event.throwable().printStackTrace(new PrintWriter(writer));
+            stackTrace = writer.toString();
+        }
+
+        if (config.json) {
+            JsonObject object = new JsonObject();
+            object.addProperty("time", Instant.ofEpochMilli(event.time()).toString());
+            object.addProperty("level", event.level() != null ? event.level().toString() : "RAW");
+            object.addProperty("logger", event.logger());
+            object.addProperty("thread", event.thread());
+            object.addProperty("message", event.message());
+
+            if (stackTrace != null)
+                object.addProperty("stackTrace", stackTrace);
+
+            return GSON.toJson(object) + "\n";
+        }
+
+        if (event.level() == null)
+            return event.message() + "\n";
+
+        String line = String.format("[%s] [%s] [%s] %s%n",
+                LocalTime.ofInstant(Instant.ofEpochMilli(event.time()), ZoneId.systemDefault()).format(TIME_FORMATTER),
+                event.logger(),
+                event.level(),
+                event.message()
+        );
+
+        return stackTrace != null ? line + stackTrace : line;
+    }
+
+    protected boolean rotationNeeded() {
+        if (config.maxFileSizeMiB > 0 && fileSize >= config.maxFileSizeMiB * 1024 * 1024)
+            return true;
+
+        return config.rotateHours > 0 && System.currentTimeMillis() - fileOpenedAt >= TimeUnit.HOURS.toMillis(config.rotateHours);
+    }
+
+    protected void rotate() throws IOException {
+        fileStream.close();
+
+        moveToHistory(fileOpenedAt);
+        openFile();
+    }
+
+    protected void openFile() throws IOException {
+        fileStream = new BufferedOutputStream(new FileOutputStream(file.toFile(), true), 64 * 1024);
+        fileSize = Files.size(file);
+        fileOpenedAt = System.currentTimeMillis();
+    }
+
+    protected void moveToHistory(long createdAt) throws IOException {
+        String name = HISTORY_FORMAT.format(new Date(createdAt));
+
+        Path target = historyDirectory.resolve(name + ".log");
+
+        for (int i = 1; Files.exists(target); i++)
+            target = historyDirectory.resolve(name + "_" + i + ".log");
+
+        Files.move(file, target);
+
+        pruneHistory();
+    }
+
+    protected void pruneHistory() throws IOException {
+        if (config.maxHistoryFiles <= 0)
+            return;
+
+        List<Path> files;
+
+        try (Stream<Path> stream = Files.list(historyDirectory)) {
+            files = stream.filter((p) -> p.toString().endsWith(".log"))
+                    .sorted(Comparator.comparingLong((Path p) -> p.toFile().lastModified()).reversed())
+                    .toList();
+        }
+
+        for (int i = config.maxHistoryFiles; i < files.size(); i++)
+            Files.deleteIfExists(files.get(i));
+    }
+}
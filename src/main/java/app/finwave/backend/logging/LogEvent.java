@@ -0,0 +1,10 @@
+package app.finwave.backend.logging;
+
+import org.slf4j.event.Level;
+
+// level is null for lines captured from System.out and System.err
+public record LogEvent(long time, String thread, String logger, Level level, String message, Throwable throwable) {
+    public static LogEvent raw(String logger, String line) {
+        return new LogEvent(System.currentTimeMillis(), Thread.currentThread().getName(), logger, null, line, null);
+    }
+}
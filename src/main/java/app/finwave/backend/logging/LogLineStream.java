@@ -0,0 +1,60 @@
+package app.finwave.backend.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// collects bytes written to a replaced system stream into lines and hands them to the writer
+public class LogLineStream extends OutputStream {
+    protected AsyncLogWriter writer;
+    protected String name;
+    protected ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    public LogLineStream(AsyncLogWriter writer, String name) {
+        this.writer = writer;
+        this.name = name;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\n') {
+            flushLine();
+
+            return;
+        }
+
+        line.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        int end = off + len;
+
+        for (int i = off; i < end; i++) {
+            if (b[i] != '\n')
+                continue;
+
+            line.write(b, off, i - off);
+            flushLine();
+            off = i + 1;
+        }
+
+        line.write(b, off, end - off);
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (line.size() > 0)
+            flushLine();
+    }
+
+    protected void flushLine() {
+        String text = line.toString(StandardCharsets.UTF_8);
+        line.reset();
+
+        if (text.endsWith("\r"))
+            text = text.substring(0, text.length() - 1);
+
+        writer.append(LogEvent.raw(name, text));
+    }
+}
@@ -35,6 +35,13 @@ public class Logger extends AbstractLogger {
     @Override
     protected void handleNormalizedLoggingCall(Level level, Marker marker, String messagePattern, Object[] arguments, Throwable throwable) {
         String formattedMessage = MessageFormatter.arrayFormat(messagePattern, arguments, throwable).getMessage();
+        AsyncLogWriter writer = LogsInitializer.getWriter();
+
+        if (writer != null) {
+            writer.append(new LogEvent(System.currentTimeMillis(), Thread.currentThread().getName(), name, level, formattedMessage, throwable));
+
+            return;
+        }
 
         System.out.printf("[%s] [%s] [%s] %s%n",
                 LocalTime.now().format(timeFormatter),
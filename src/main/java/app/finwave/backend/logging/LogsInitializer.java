@@ -1,13 +1,13 @@
 package app.finwave.backend.logging;
 
-import java.io.FileOutputStream;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.LoggingConfig;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.concurrent.TimeUnit;
+
+import static app.finwave.backend.Main.INJ;
 
 public class LogsInitializer {
     public static final Path LOGS_DIRECTORY = Path.of("./logs/");
@@ -15,6 +15,7 @@ public class LogsInitializer {
     public static final Path HISTORY_DIRECTORY = LOGS_DIRECTORY.resolve("history/");
 
     protected static SystemStreamsHandler handler;
+    protected static volatile AsyncLogWriter writer;
 
     public static void init() throws IOException {
         if (Files.notExists(LOGS_DIRECTORY))
@@ -23,16 +24,16 @@ public class LogsInitializer {
         if (Files.notExists(HISTORY_DIRECTORY))
             Files.createDirectory(HISTORY_DIRECTORY);
 
-        if (Files.exists(LAST_LOG_FILE)) {
-            BasicFileAttributes attributes = Files.readAttributes(LAST_LOG_FILE, BasicFileAttributes.class);
-            Date creationDate = new Date(attributes.creationTime().to(TimeUnit.MILLISECONDS));
-            String historyFilename = new SimpleDateFormat("dd-MM-yy_HH-mm-ss").format(creationDate) + ".log";
+        LoggingConfig config = INJ.getInstance(Configs.class).getState(new LoggingConfig());
 
-            Files.move(LAST_LOG_FILE, HISTORY_DIRECTORY.resolve(historyFilename));
-            Files.createFile(LAST_LOG_FILE);
-        }
+        writer = new AsyncLogWriter(config.output, LAST_LOG_FILE, HISTORY_DIRECTORY, SystemStreamsHandler.defaultOutStream);
 
-        handler = new SystemStreamsHandler(new FileOutputStream(LAST_LOG_FILE.toFile()));
+        handler = new SystemStreamsHandler(writer);
         handler.replaceStreams();
     }
+
+    // null until init, loggers print directly before that
+    public static AsyncLogWriter getWriter() {
+        return writer;
+    }
 }
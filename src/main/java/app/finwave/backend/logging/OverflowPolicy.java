@@ -0,0 +1,10 @@
+package app.finwave.backend.logging;
+
+public enum OverflowPolicy {
+    // the caller waits for free space
+    BLOCK,
+    // new events are dropped and counted
+    DROP,
+    // warnings and errors wait for free space, everything else is dropped
+    DROP_BELOW_WARN
+}
@@ -1,25 +1,26 @@
 package app.finwave.backend.logging;
 
-import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 
 public class SystemStreamsHandler {
     protected static PrintStream defaultOutStream;
     protected static PrintStream defaultErrStream;
-    protected FileOutputStream fileStream;
+    protected AsyncLogWriter writer;
 
     static {
         defaultOutStream = System.out;
         defaultErrStream = System.err;
     }
 
-    public SystemStreamsHandler(FileOutputStream fileStream) {
-        this.fileStream = fileStream;
+    public SystemStreamsHandler(AsyncLogWriter writer) {
+        this.writer = writer;
     }
 
+    // anything printed directly still ends up in the log, through the same writer
     public void replaceStreams() {
-        System.setOut(new PrintStream(new StreamDuplicator(defaultOutStream, fileStream)));
-        System.setErr(new PrintStream(new StreamDuplicator(defaultErrStream, fileStream)));
+        System.setOut(new PrintStream(new LogLineStream(writer, "System.out"), false, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(new LogLineStream(writer, "System.err"), false, StandardCharsets.UTF_8));
     }
 
     public void defaultStreams() {
@@ -3,7 +3,7 @@ package app.finwave.backend.report;
 import app.finwave.backend.api.files.FilesManager;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import org.jooq.Record;
+import org.jooq.Cursor;
 import app.finwave.backend.api.report.ReportDatabase;
 import app.finwave.backend.api.report.data.ReportStatus;
 import app.finwave.backend.api.report.data.ReportType;
@@ -13,13 +13,13 @@ import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.ReportBuilderConfig;
 import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.ReportsRecord;
+import app.finwave.backend.jooq.tables.records.TransactionsRecord;
 import app.finwave.backend.report.builders.AbstractReportBuilder;
 import app.finwave.backend.report.builders.ByDaysReportBuilder;
 import app.finwave.backend.report.builders.ByMonthsReportBuilder;
 import app.finwave.backend.report.builders.ListReportBuilder;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -30,7 +30,6 @@ import static app.finwave.backend.api.ApiResponse.GSON;
 
 @Singleton
 public class ReportBuilder {
-    protected TransactionDatabase transactionDatabase;
     protected ReportDatabase reportDatabase;
     protected ReportBuilderConfig config;
     protected DatabaseWorker worker;
@@ -43,7 +42,6 @@ public class ReportBuilder {
         this.worker = worker;
         this.filesManager = filesManager;
 
-        this.transactionDatabase = worker.get(TransactionDatabase.class);
         this.reportDatabase = worker.get(ReportDatabase.class);
 
         this.config = configs.getState(new ReportBuilderConfig());
@@ -86,21 +84,18 @@ public class ReportBuilder {
         if (filter == null)
             filter = TransactionsFilter.EMPTY;
 
-        int offset = 0;
-        int count = config.maxTransactionsPerCycle;
-
+        TransactionsFilter finalFilter = filter;
         AbstractReportBuilder builder = get(record);
 
-        while (true) {
-            List<Record> transactions = transactionDatabase.getTransactions(userId, offset, count, filter);
-
-            if (transactions.isEmpty())
-                break;
-
-            offset += transactions.size();
+        // a report is a long sequential read, replicas take it off the primary
+        worker.getReadContext(userId).transaction((configuration) -> {
+            TransactionDatabase database = worker.get(TransactionDatabase.class, configuration.dsl());
 
-            builder.consider(transactions);
-        }
+            try (Cursor<TransactionsRecord> cursor = database.streamTransactions(userId, finalFilter, config.maxTransactionsPerCycle)) {
+                while (cursor.hasNext())
+                    builder.consider(cursor.fetchNext(config.maxTransactionsPerCycle));
+            }
+        });
 
         builder.done();
 
@@ -112,10 +107,10 @@ public class ReportBuilder {
 
         switch (type) {
             case BY_DAYS -> {
-                return new ByDaysReportBuilder(reportsRecord, worker, filesManager);
+                return new ByDaysReportBuilder(reportsRecord, worker, filesManager, config);
             }
             case BY_MONTHS -> {
-                return new ByMonthsReportBuilder(reportsRecord, worker, filesManager);
+                return new ByMonthsReportBuilder(reportsRecord, worker, filesManager, config);
             }
             default -> {
                 return new ListReportBuilder(reportsRecord, worker, filesManager);
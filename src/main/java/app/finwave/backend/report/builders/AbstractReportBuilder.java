@@ -94,6 +94,6 @@ public abstract class AbstractReportBuilder {
                 .replace(' ', '_') + ".csv";
     }
 
-    abstract public void consider(List<Record> records);
+    abstract public void consider(List<? extends Record> records);
     abstract public void done();
 }
@@ -1,9 +1,8 @@
 package app.finwave.backend.report.builders;
 
 import app.finwave.backend.api.files.FilesManager;
-import app.finwave.backend.jooq.tables.records.FilesRecord;
-import io.netty.handler.codec.DateFormatter;
-import org.apache.commons.lang3.tuple.Pair;
+import app.finwave.backend.config.general.ReportBuilderConfig;
+import app.finwave.backend.jooq.tables.records.CategoriesRecord;
 import org.jooq.Record;
 import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.CurrenciesRecord;
@@ -12,33 +11,39 @@ import app.finwave.backend.jooq.tables.records.ReportsRecord;
 import java.io.*;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.security.DigestOutputStream;
-import java.security.NoSuchAlgorithmException;
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
 
 public class ByDaysReportBuilder extends AbstractReportBuilder {
     protected HashMap<Long, TableContent> content = new HashMap<>();
     protected DateTimeFormatter formatter;
+    protected ReportBuilderConfig config;
 
-    public ByDaysReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager) {
+    protected HashMap<Long, Integer> categoriesOrdinals = new HashMap<>();
+    protected HashMap<LocalDate, Integer> datesOrdinals = new HashMap<>();
+    protected ArrayList<LocalDate> dates = new ArrayList<>();
+    protected long cellsCount;
+
+    public ByDaysReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager, ReportBuilderConfig config) {
         super(reportsRecord, databaseWorker, filesManager);
 
+        this.config = config;
         this.formatter = DateTimeFormatter
                 .ofLocalizedDate(FormatStyle.SHORT)
                 .withLocale(
                         Locale.forLanguageTag(userLang.getOrDefault("dateLocale", "en-US"))
                 );
+
+        for (CategoriesRecord category : categoriesRecords)
+            categoriesOrdinals.put(category.getId(), categoriesOrdinals.size());
     }
 
     @Override
-    public void consider(List<Record> records) {
+    public void consider(List<? extends Record> records) {
         for (Record record : records) {
             long categoryId = record.get(TRANSACTIONS.CATEGORY_ID);
             long currencyId = record.get(TRANSACTIONS.CURRENCY_ID);
@@ -51,135 +56,154 @@ public class ByDaysReportBuilder extends AbstractReportBuilder {
 
     @Override
     public void done() {
-        BufferedWriter writer;
         try {
             OutputStream stream = filesManager.getAndOpenStream(reportsRecord.getFileId(), "text/csv", getFileName(), reportsRecord.getDescription()).orElseThrow();
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stream));
 
-            writer = new BufferedWriter(new OutputStreamWriter(stream));
-
-            for (Map.Entry<Long, TableContent> entry : content.entrySet()) {
-                CurrenciesRecord currenciesRecord = currenciesMap.get(entry.getKey());
-                String code = currenciesRecord.getCode();
-                int decimals = currenciesRecord.getDecimals();
-
-                TableContent table = entry.getValue();
+            for (CurrenciesRecord currency : currenciesRecords) {
+                TableContent table = content.get(currency.getId());
 
-                String[][] tableContent = buildTable(table, code, decimals);
+                if (table == null)
+                    continue;
 
-                for (String[] row : tableContent) {
-                    for (String cell : row) {
-                        writer.write((cell == null ? "" : cell) + ',');
-                    }
-                    writer.newLine();
-                }
+                writeTable(writer, table, currency.getCode(), currency.getDecimals());
 
                 writer.newLine();
                 writer.flush();
             }
 
-            writer.flush();
             writer.close();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    protected String[][] buildTable(TableContent table, String currencyCode, int decimals) {
-        List<Long> categories = table.cells.keySet()
-                .stream()
-                .map(Pair::getKey)
-                .collect(Collectors.toSet())
-                .stream().toList();
-
-        List<LocalDate> dates = table.cells.keySet()
-                .stream()
-                .map(Pair::getValue)
-                .collect(Collectors.toSet())
-                .stream()
-                .sorted()
-                .toList();
+    protected void writeTable(BufferedWriter writer, TableContent table, String currencyCode, int decimals) throws IOException {
+        int[] columns = table.usedDates();
+        String total = userLang.getOrDefault("total", "Total");
 
-        String[][] tableContent = new String[categories.size() + 2][dates.size() + 2]; // bottom and right total + heads
+        writer.write(currencyCode + ',');
+        for (int date : columns)
+            writer.write(dates.get(date).format(formatter) + ',');
+        writer.write(total + ',');
+        writer.newLine();
 
-        tableContent[0][0] = currencyCode;
-        putHeadsAndCategories(tableContent, categories, dates, formatter);
+        long[] totalByDate = new long[columns.length];
+        long totalSum = 0;
 
-        HashMap<LocalDate, BigDecimal> sumByDate = new HashMap<>();
-        for (int row = 1; row < tableContent.length - 1; row++) {
-            long category = categories.get(row - 1);
+        for (CategoriesRecord category : categoriesRecords) {
+            int ordinal = categoriesOrdinals.get(category.getId());
 
-            BigDecimal columnTotal = BigDecimal.ZERO;
+            if (!table.usedCategories[ordinal])
+                continue;
 
-            for (int column = 1; column < tableContent[row].length - 1; column++) {
-                LocalDate date = dates.get(column - 1);
-                BigDecimal sum = table.cells.get(Pair.of(category, date));
+            writer.write(getCategoryFullPath(category.getId()) + ',');
 
-                if (sum == null)
-                    sum = BigDecimal.ZERO;
+            long rowTotal = 0;
 
-                columnTotal = columnTotal.add(sum);
+            for (int i = 0; i < columns.length; i++) {
+                long sum = table.columns.get(columns[i])[ordinal];
 
-                sumByDate.put(date, sumByDate.getOrDefault(date, BigDecimal.ZERO).add(sum));
+                rowTotal = Math.addExact(rowTotal, sum);
+                totalByDate[i] = Math.addExact(totalByDate[i], sum);
 
-                tableContent[row][column] = sum.setScale(decimals, RoundingMode.HALF_DOWN).toString();
+                writer.write(format(sum, table.scale, decimals) + ',');
             }
 
-            tableContent[row][tableContent[row].length - 1] = columnTotal.setScale(decimals, RoundingMode.HALF_DOWN).toString();
+            totalSum = Math.addExact(totalSum, rowTotal);
+
+            writer.write(format(rowTotal, table.scale, decimals) + ',');
+            writer.newLine();
         }
 
-        int dateIndex = 0;
-        BigDecimal total = BigDecimal.ZERO;
+        writer.write(total + ',');
+        for (long sum : totalByDate)
+            writer.write(format(sum, table.scale, decimals) + ',');
+        writer.write(format(totalSum, table.scale, decimals) + ',');
+        writer.newLine();
+    }
+
+    protected String format(long unscaled, int scale, int decimals) {
+        return BigDecimal.valueOf(unscaled, scale).setScale(decimals, RoundingMode.HALF_DOWN).toString();
+    }
 
-        for (LocalDate date : dates) {
-            BigDecimal decimal = sumByDate.getOrDefault(date, BigDecimal.ZERO);
-            tableContent[categories.size() + 1][dateIndex + 1] = decimal.setScale(decimals, RoundingMode.HALF_DOWN).toString();
+    protected void addToCell(long currency, long category, LocalDate date, BigDecimal delta) {
+        TableContent table = content.get(currency);
+
+        if (table == null) {
+            table = new TableContent(currenciesMap.get(currency).getDecimals() + config.extraCellsScale, categoriesOrdinals.size());
 
-            total = total.add(decimal);
-            dateIndex++;
+            content.put(currency, table);
         }
 
-        tableContent[categories.size() + 1][dates.size() + 1] = total.setScale(decimals, RoundingMode.HALF_DOWN).toString();
+        Integer categoryOrdinal = categoriesOrdinals.get(category);
 
-        return tableContent;
-    }
+        if (categoryOrdinal == null)
+            throw new IllegalArgumentException();
 
-    protected void putHeadsAndCategories(String[][] table, List<Long> categories, List<LocalDate> dates, DateTimeFormatter formatter) {
-        int i = 1;
-        String total = userLang.getOrDefault("total", "Total");
+        Integer dateOrdinal = datesOrdinals.get(date);
 
-        for (LocalDate date : dates) {
-            table[0][i] = date.format(formatter);
+        if (dateOrdinal == null) {
+            dateOrdinal = dates.size();
 
-            i++;
+            dates.add(date);
+            datesOrdinals.put(date, dateOrdinal);
         }
-        table[0][i] = total;
 
-        i = 1;
+        long[] column = table.column(dateOrdinal);
+
+        if (column == null) {
+            cellsCount += categoriesOrdinals.size();
 
-        for (Long category : categories) {
-            table[i][0] = getCategoryFullPath(category);
+            if (cellsCount > config.maxCellsInMemory)
+                throw new IllegalStateException("Report exceeds " + config.maxCellsInMemory + " cells");
 
-            i++;
+            column = table.createColumn(dateOrdinal);
         }
-        table[i][0] = total;
+
+        long unscaled = delta.setScale(table.scale, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+
+        column[categoryOrdinal] = Math.addExact(column[categoryOrdinal], unscaled);
+        table.usedCategories[categoryOrdinal] = true;
     }
 
-    protected void addToCell(long currency, long category, LocalDate date, BigDecimal delta) {
-        TableContent tableContent = content.get(currency);
+    protected class TableContent {
+        public final int scale;
+        public final boolean[] usedCategories;
+        // indexed by date ordinal, then by category ordinal; null for dates without transactions in this currency
+        public final ArrayList<long[]> columns = new ArrayList<>();
 
-        if (tableContent == null) {
-            tableContent = new TableContent();
+        public TableContent(int scale, int categoriesCount) {
+            this.scale = scale;
+            this.usedCategories = new boolean[categoriesCount];
+        }
 
-            content.put(currency, tableContent);
+        public long[] column(int dateOrdinal) {
+            return dateOrdinal < columns.size() ? columns.get(dateOrdinal) : null;
         }
 
-        var pair = Pair.of(category, date);
-        BigDecimal oldValue = tableContent.cells.getOrDefault(pair, BigDecimal.ZERO);
+        public long[] createColumn(int dateOrdinal) {
+            while (columns.size() <= dateOrdinal)
+                columns.add(null);
 
-        tableContent.cells.put(pair, oldValue.add(delta));
-    }
+            long[] column = new long[usedCategories.length];
+            columns.set(dateOrdinal, column);
 
-    static class TableContent {
-        public final HashMap<Pair<Long, LocalDate>, BigDecimal> cells = new HashMap<>();
+            return column;
+        }
+
+        public int[] usedDates() {
+            ArrayList<Integer> used = new ArrayList<>();
+
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i) != null)
+                    used.add(i);
+            }
+
+            return used.stream()
+                    .sorted(Comparator.comparing(dates::get))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
     }
 }
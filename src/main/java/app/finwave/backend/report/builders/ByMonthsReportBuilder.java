@@ -1,6 +1,7 @@
 package app.finwave.backend.report.builders;
 
 import app.finwave.backend.api.files.FilesManager;
+import app.finwave.backend.config.general.ReportBuilderConfig;
 import org.jooq.Record;
 import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.ReportsRecord;
@@ -18,8 +19,8 @@ import java.util.Set;
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
 
 public class ByMonthsReportBuilder extends ByDaysReportBuilder {
-    public ByMonthsReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager) {
-        super(reportsRecord, databaseWorker, filesManager);
+    public ByMonthsReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager, ReportBuilderConfig config) {
+        super(reportsRecord, databaseWorker, filesManager, config);
 
         this.formatter = DateTimeFormatter.ofPattern("MM/yyyy",
                 Locale.forLanguageTag(userLang.getOrDefault("dateLocale", "en-US"))
@@ -27,7 +28,7 @@ public class ByMonthsReportBuilder extends ByDaysReportBuilder {
     }
 
     @Override
-    public void consider(List<Record> records) {
+    public void consider(List<? extends Record> records) {
         for (Record record : records) {
             long categoryId = record.get(TRANSACTIONS.CATEGORY_ID);
             long currencyId = record.get(TRANSACTIONS.CURRENCY_ID);
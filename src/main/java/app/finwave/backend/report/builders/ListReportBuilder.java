@@ -47,7 +47,7 @@ public class ListReportBuilder extends AbstractReportBuilder {
     }
 
     @Override
-    public void consider(List<Record> records) {
+    public void consider(List<? extends Record> records) {
         try {
             for (Record record : records) {
                 writer.write(buildLine(record));
@@ -7,11 +7,15 @@ import org.slf4j.LoggerFactory;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.ServiceConfig;
 import app.finwave.backend.config.general.UserConfig;
+import app.finwave.backend.service.analytics.AnalyticsRollupService;
 import app.finwave.backend.service.demo.DemoService;
 import app.finwave.backend.service.notes.NotesService;
 import app.finwave.backend.service.notifications.NotificationsService;
 import app.finwave.backend.service.recurring.RecurringService;
+import app.finwave.backend.service.files.FilesScrubService;
 import app.finwave.backend.service.files.FilesService;
+import app.finwave.backend.service.outbox.OutboxRelayService;
+import app.finwave.backend.service.transactions.TransactionPartitionsService;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -29,6 +33,10 @@ public class ServicesManager {
                            NotificationsService notificationsService,
                            NotesService notesService,
                            FilesService filesService,
+                           FilesScrubService filesScrubService,
+                           AnalyticsRollupService analyticsRollupService,
+                           TransactionPartitionsService transactionPartitionsService,
+                           OutboxRelayService outboxRelayService,
                            DemoService demoService) {
         this.config = configs.getState(new ServiceConfig());
 
@@ -40,6 +48,10 @@ public class ServicesManager {
         initService(notificationsService);
         initService(notesService);
         initService(filesService);
+        initService(filesScrubService);
+        initService(analyticsRollupService);
+        initService(transactionPartitionsService);
+        initService(outboxRelayService);
 
         if (userConfig.demoMode) {
             initService(demoService);
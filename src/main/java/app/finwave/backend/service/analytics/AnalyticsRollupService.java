@@ -0,0 +1,51 @@
+package app.finwave.backend.service.analytics;
+
+import app.finwave.backend.api.analytics.AnalyticsManager;
+import app.finwave.backend.service.AbstractService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class AnalyticsRollupService extends AbstractService {
+    protected static final Logger log = LoggerFactory.getLogger(AnalyticsRollupService.class);
+
+    protected AnalyticsManager manager;
+
+    @Inject
+    public AnalyticsRollupService(AnalyticsManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public void run() {
+        List<Integer> rebuilt = manager.rebuildInconsistentRollups();
+
+        if (!rebuilt.isEmpty())
+            log.warn("Analytics rollup was inconsistent and has been rebuilt for users: " + rebuilt);
+    }
+
+    @Override
+    public long getRepeatTime() {
+        return 24;
+    }
+
+    @Override
+    public long getInitDelay() {
+        return 1;
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.HOURS;
+    }
+
+    @Override
+    public String name() {
+        return "Analytics Rollup";
+    }
+}
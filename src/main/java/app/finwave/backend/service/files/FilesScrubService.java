@@ -0,0 +1,56 @@
+package app.finwave.backend.service.files;
+
+import app.finwave.backend.api.files.FilesManager;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.FilesConfig;
+import app.finwave.backend.jooq.tables.records.FilesRecord;
+import app.finwave.backend.service.AbstractService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class FilesScrubService extends AbstractService {
+    protected static final Logger log = LoggerFactory.getLogger(FilesScrubService.class);
+
+    protected FilesConfig config;
+    protected FilesManager filesManager;
+
+    @Inject
+    public FilesScrubService(FilesManager filesManager, Configs configs) {
+        this.filesManager = filesManager;
+        this.config = configs.getState(new FilesConfig());
+    }
+
+    @Override
+    public void run() {
+        List<FilesRecord> corrupted = filesManager.scrub(config.filesToScrubPerHour);
+
+        if (!corrupted.isEmpty())
+            log.error("Files checksum verification failed: " + corrupted.stream().map(FilesRecord::getId).toList());
+    }
+
+    @Override
+    public long getRepeatTime() {
+        return 1;
+    }
+
+    @Override
+    public long getInitDelay() {
+        return 1;
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.HOURS;
+    }
+
+    @Override
+    public String name() {
+        return "Files Scrub";
+    }
+}
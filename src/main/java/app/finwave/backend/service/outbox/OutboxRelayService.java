@@ -0,0 +1,54 @@
+package app.finwave.backend.service.outbox;
+
+import app.finwave.backend.api.outbox.OutboxManager;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.ServiceConfig;
+import app.finwave.backend.service.AbstractService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class OutboxRelayService extends AbstractService {
+    protected static final Logger log = LoggerFactory.getLogger(OutboxRelayService.class);
+
+    protected OutboxManager manager;
+    protected ServiceConfig.OutboxServiceConfig config;
+
+    @Inject
+    public OutboxRelayService(OutboxManager manager, Configs configs) {
+        this.manager = manager;
+        this.config = configs.getState(new ServiceConfig()).outbox;
+    }
+
+    @Override
+    public void run() {
+        int relayed = manager.relay();
+
+        if (relayed > 0)
+            log.info("Relayed " + relayed + " outbox events");
+    }
+
+    @Override
+    public long getRepeatTime() {
+        return config.relayIntervalSeconds;
+    }
+
+    @Override
+    public long getInitDelay() {
+        return config.relayIntervalSeconds;
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.SECONDS;
+    }
+
+    @Override
+    public String name() {
+        return "Outbox Relay";
+    }
+}
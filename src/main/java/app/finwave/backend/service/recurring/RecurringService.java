@@ -22,12 +22,14 @@ public class RecurringService extends AbstractService {
     protected RecurringTransactionDatabase database;
     protected NotificationManager notificationManager;
     protected TransactionsManager transactionsManager;
+    protected DatabaseWorker databaseWorker;
 
     @Inject
     public RecurringService(DatabaseWorker databaseWorker, TransactionsManager transactionsManager, NotificationManager notificationManager) {
         this.database = databaseWorker.get(RecurringTransactionDatabase.class);
         this.notificationManager = notificationManager;
         this.transactionsManager = transactionsManager;
+        this.databaseWorker = databaseWorker;
     }
 
     @Override
@@ -35,6 +37,11 @@ public class RecurringService extends AbstractService {
         List<RecurringTransactionsRecord> records = database.getRecurringForProcessing();
 
         for (RecurringTransactionsRecord record : records) {
+            NotificationMode mode = NotificationMode.values()[(int)record.getNotificationMode()];
+            String message = record.getDescription() == null || record.getDescription().isBlank() ?
+                    "Some recurring is completed" : record.getDescription();
+
+            // the next repeat and the notification are committed together with the transaction, so a failure can't repeat or lose them
             transactionsManager.applyRecurringTransaction(new TransactionNewRecord(
                     record.getOwnerId(),
                     record.getCategoryId(),
@@ -42,26 +49,20 @@ public class RecurringService extends AbstractService {
                     record.getNextRepeat(),
                     record.getDelta(),
                     record.getDescription()
-            ));
-
-            database.updateRecurring(
-                    record.getId(),
-                    record.getNextRepeat(),
-                    NextRepeatTools.calculate(record.getNextRepeat(), record.getRepeatFunc(), record.getRepeatFuncArg())
-            );
-
-            NotificationMode mode = NotificationMode.values()[(int)record.getNotificationMode()];
-            String message = record.getDescription();
-
-            if (message == null || message.isBlank())
-                message = "Some recurring is completed";
+            ), (context) -> {
+                databaseWorker.get(RecurringTransactionDatabase.class, context).updateRecurring(
+                        record.getId(),
+                        record.getNextRepeat(),
+                        NextRepeatTools.calculate(record.getNextRepeat(), record.getRepeatFunc(), record.getRepeatFuncArg())
+                );
 
-            if (mode != NotificationMode.WITHOUT)
-                notificationManager.push(Notification.create(
-                        message,
-                        new NotificationOptions(mode == NotificationMode.SILENT, -1, null),
-                        record.getOwnerId()
-                ));
+                if (mode != NotificationMode.WITHOUT)
+                    notificationManager.pushAfterCommit(context, Notification.create(
+                            message,
+                            new NotificationOptions(mode == NotificationMode.SILENT, -1, null),
+                            record.getOwnerId()
+                    ));
+            });
         }
     }
 
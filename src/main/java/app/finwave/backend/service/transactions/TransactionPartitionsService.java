@@ -0,0 +1,87 @@
+package app.finwave.backend.service.transactions;
+
+import app.finwave.backend.api.transaction.TransactionPartitionsDatabase;
+import app.finwave.backend.api.transaction.metadata.MetadataDatabase;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.DatabaseConfig;
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.service.AbstractService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class TransactionPartitionsService extends AbstractService {
+    protected static final Logger log = LoggerFactory.getLogger(TransactionPartitionsService.class);
+
+    protected DatabaseConfig.Partitions config;
+    protected TransactionPartitionsDatabase database;
+    protected MetadataDatabase metadataDatabase;
+
+    @Inject
+    public TransactionPartitionsService(DatabaseWorker databaseWorker, Configs configs) {
+        this.database = databaseWorker.get(TransactionPartitionsDatabase.class);
+        this.metadataDatabase = databaseWorker.get(MetadataDatabase.class);
+        this.config = configs.getState(new DatabaseConfig()).partitions;
+    }
+
+    @Override
+    public void run() {
+        List<YearMonth> existing = database.getMonths();
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+
+        for (int i = 0; i <= Math.max(config.monthsAhead, 1); i++) {
+            YearMonth month = current.plusMonths(i);
+
+            if (existing.contains(month))
+                continue;
+
+            database.createMonth(month);
+            log.info("Transactions partition for " + month + " has been created");
+        }
+
+        if (config.detachAfterMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(config.detachAfterMonths);
+
+            for (YearMonth month : existing) {
+                if (!month.isBefore(oldestKept))
+                    break;
+
+                database.detachMonth(month);
+                log.warn("Transactions partition for " + month + " has been detached");
+            }
+        }
+
+        // replaces the foreign keys dropped by partitioning, detached months also leave their transfers here
+        List<Long> orphaned = metadataDatabase.getOrphanedInternalMetadata();
+
+        if (!orphaned.isEmpty())
+            log.error("Internal transfers referencing missing transactions: " + orphaned);
+    }
+
+    @Override
+    public long getRepeatTime() {
+        return 24;
+    }
+
+    @Override
+    public long getInitDelay() {
+        return 0;
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.HOURS;
+    }
+
+    @Override
+    public String name() {
+        return "Transactions Partitions";
+    }
+}
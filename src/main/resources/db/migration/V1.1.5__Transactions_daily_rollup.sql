@@ -0,0 +1,16 @@
+create table if not exists transactions_daily
+(
+    owner_id              integer not null references users(id),
+    day                   date not null,
+    currency_id           bigint not null references currencies(id),
+    category_id           bigint not null references categories(id),
+    delta                 numeric not null,
+    transactions_count    integer not null,
+
+    primary key (owner_id, day, currency_id, category_id)
+);
+
+insert into transactions_daily (owner_id, day, currency_id, category_id, delta, transactions_count)
+select owner_id, cast(created_at as date), currency_id, category_id, sum(delta), count(*)
+from transactions
+group by owner_id, cast(created_at as date), currency_id, category_id;
@@ -0,0 +1,17 @@
+drop index idx_transactions;
+drop index idx_transactions_metadata;
+drop index idx_internal_transactions_metadata;
+
+-- lists, counts and keyset pages: owner_id = ? order by created_at desc, id desc
+create index idx_transactions_owner_created on transactions(owner_id, created_at desc, id desc);
+
+-- analytics sums read only these columns, so they are answered by index-only scans
+create index idx_transactions_owner_created_sums on transactions(owner_id, created_at) include (currency_id, category_id, delta);
+create index idx_transactions_owner_account_sums on transactions(owner_id, account_id, created_at) include (currency_id, category_id, delta);
+
+-- most transactions have no metadata, only linked rows are indexed
+create index idx_transactions_metadata_id on transactions(metadata_id) where metadata_id is not null;
+create index idx_transactions_metadata_arg on transactions_metadata(type, arg) where arg is not null;
+
+create index idx_internal_transactions_metadata_from on internal_transactions_metadata(from_transaction_id);
+create index idx_internal_transactions_metadata_to on internal_transactions_metadata(to_transaction_id);
@@ -0,0 +1,12 @@
+create table files_blobs
+(
+    checksum              text primary key,
+    size                  bigint not null,
+    references_count      integer not null
+);
+
+insert into files_blobs (checksum, size, references_count)
+select checksum, max(size), count(*)
+from files
+where checksum is not null
+group by checksum;
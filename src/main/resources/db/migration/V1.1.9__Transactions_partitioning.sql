@@ -0,0 +1,66 @@
+-- a partitioned table can only be referenced through its whole primary key (id, created_at),
+-- internal transfers are created and deleted together with their transactions by the application
+alter table internal_transactions_metadata drop constraint if exists internal_transfers_from_transaction_id_fkey;
+alter table internal_transactions_metadata drop constraint if exists internal_transfers_to_transaction_id_fkey;
+
+alter table transactions rename to transactions_unpartitioned;
+alter table transactions_unpartitioned rename constraint transactions_pkey to transactions_unpartitioned_pkey;
+alter sequence transactions_id_seq owned by none;
+
+create table transactions
+(
+    id                    bigint not null default nextval('transactions_id_seq'),
+    owner_id              integer not null references users(id),
+    category_id           bigint not null references categories(id),
+    account_id            bigint not null references accounts(id),
+    currency_id           bigint not null references currencies(id),
+    created_at            timestamp with time zone not null,
+    delta                 numeric not null,
+    description           text,
+    metadata_id           bigint references transactions_metadata(id),
+
+    constraint transactions_pkey primary key (id, created_at)
+) partition by range (created_at);
+
+alter sequence transactions_id_seq owned by transactions.id;
+
+-- one partition per utc month that has transactions and for three months ahead, later months are created by the service
+do $$
+declare
+    partition_month timestamp;
+    this_month timestamp := date_trunc('month', now() at time zone 'utc');
+begin
+    -- older rows land in the default partition instead of creating lots of tiny partitions
+    for partition_month in
+        select distinct date_trunc('month', created_at at time zone 'utc')
+        from transactions_unpartitioned
+        where created_at >= this_month - interval '10 years'
+        union
+        select generate_series(this_month, this_month + interval '3 months', interval '1 month')
+    loop
+        execute format('create table %I partition of transactions for values from (%L) to (%L)',
+                       'transactions_y' || to_char(partition_month, 'YYYY') || 'm' || to_char(partition_month, 'MM'),
+                       partition_month::text || '+00', (partition_month + interval '1 month')::text || '+00');
+    end loop;
+end $$;
+
+-- rows outside of the created months are kept here until their month is created
+create table transactions_default partition of transactions default;
+
+insert into transactions (id, owner_id, category_id, account_id, currency_id, created_at, delta, description, metadata_id)
+select id, owner_id, category_id, account_id, currency_id, created_at, delta, description, metadata_id
+from transactions_unpartitioned;
+
+drop table transactions_unpartitioned;
+
+-- foreign keys got suffixed names while the old table still held the original ones
+alter table transactions rename constraint transactions_owner_id_fkey1 to transactions_owner_id_fkey;
+alter table transactions rename constraint transactions_account_id_fkey1 to transactions_account_id_fkey;
+alter table transactions rename constraint transactions_currency_id_fkey1 to transactions_currency_id_fkey;
+alter table transactions rename constraint transactions_metadata_id_fkey1 to transactions_metadata_id_fkey;
+
+create index idx_transactions_owner_created on transactions(owner_id, created_at desc, id desc);
+create index idx_transactions_owner_created_sums on transactions(owner_id, created_at) include (currency_id, category_id, delta);
+create index idx_transactions_owner_account_sums on transactions(owner_id, account_id, created_at) include (currency_id, category_id, delta);
+create index idx_transactions_metadata_id on transactions(metadata_id) where metadata_id is not null;
+create index idx_transactions_description_trgm on transactions using gin (description gin_trgm_ops);
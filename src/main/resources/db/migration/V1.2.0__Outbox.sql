@@ -0,0 +1,9 @@
+-- side effects recorded together with the changes that cause them, rows are deleted when dispatched
+create table outbox
+(
+    id                    bigserial primary key,
+    created_at            timestamp with time zone not null default now(),
+    type                  smallint not null,
+    user_id               integer not null,
+    payload               text
+);
@@ -0,0 +1,5 @@
+alter table files
+    add column verified_at timestamp with time zone,
+    add column corrupted boolean not null default false;
+
+create index files_scrub_idx on files (verified_at nulls first) where checksum is not null;
@@ -0,0 +1,5 @@
+-- blob content is committed and deleted outside the reference lock, the state tells the other nodes what is in flight.
+-- existing blobs may still sit under their legacy keys, so none of them is known to be stored
+alter table files_blobs
+    add column stored boolean not null default false,
+    add column deleting_at timestamp with time zone;
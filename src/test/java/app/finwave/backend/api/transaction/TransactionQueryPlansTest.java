@@ -0,0 +1,178 @@
+package app.finwave.backend.api.transaction;
+
+import app.finwave.backend.api.analytics.AnalyticsDatabase;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import app.finwave.backend.api.transaction.metadata.MetadataType;
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.TestDatabase;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.conf.StatementType;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static app.finwave.backend.jooq.Tables.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// the hot queries of V1.1.7 must keep using their indexes: the sql the daos render is explained with sequential scans
+// made prohibitively expensive, so a query that can no longer use the expected index shows up as a plan without it
+public class TransactionQueryPlansTest {
+    protected static final int USER_ID = 1;
+
+    protected static final OffsetDateTime FROM = OffsetDateTime.of(2024, 3, 10, 15, 30, 0, 0, ZoneOffset.UTC);
+    protected static final OffsetDateTime TO = OffsetDateTime.of(2024, 5, 20, 9, 15, 0, 0, ZoneOffset.UTC);
+
+    protected static DSLContext context;
+
+    @BeforeAll
+    public static void connect() {
+        DatabaseWorker databaseWorker = TestDatabase.connect(TestDatabase.configs((state) -> {}));
+
+        context = databaseWorker.getDefaultContext();
+    }
+
+    // pages are read in index order, a plan that sorts the owner's rows doesn't count
+    @Test
+    public void listingUsesOwnerCreatedIndex() {
+        assertUsesIndex(true, (dsl) ->
+                new TransactionDatabase(dsl).getTransactions(USER_ID, 0, 50, TransactionsFilter.EMPTY),
+                "idx_transactions_owner_created");
+    }
+
+    @Test
+    public void keysetPageUsesOwnerCreatedIndex() {
+        TransactionsCursor cursor = new TransactionsCursor(TO, 1000);
+
+        assertUsesIndex(true, (dsl) ->
+                new TransactionDatabase(dsl).getTransactions(USER_ID, cursor, 50, TransactionsFilter.EMPTY),
+                "idx_transactions_owner_created");
+    }
+
+    // any index led by owner_id answers the count, the covering ones even without the heap
+    @Test
+    public void countUsesOwnerIndex() {
+        assertUsesIndex(false, (dsl) ->
+                new TransactionDatabase(dsl).getTransactionsCount(USER_ID, TransactionsFilter.EMPTY),
+                "idx_transactions_owner_created", "idx_transactions_owner_created_sums", "idx_transactions_owner_account_sums");
+    }
+
+    @Test
+    public void analyticsSumsUseCoveringIndex() {
+        // the partial days at the edges of the range are summed from transactions
+        TransactionsFilter filter = new TransactionsFilter(null, null, null, FROM, TO, null);
+
+        assertUsesIndex(false, (dsl) ->
+                new AnalyticsDatabase(dsl).getAnalyticsByDays(USER_ID, filter),
+                "idx_transactions_owner_created_sums");
+    }
+
+    @Test
+    public void accountAnalyticsSumsUseAccountCoveringIndex() {
+        // an account filter can't be answered by the rollup, the whole range is summed from transactions
+        TransactionsFilter filter = new TransactionsFilter(null, List.of(1L), null, FROM, TO, null);
+
+        assertUsesIndex(false, (dsl) ->
+                new AnalyticsDatabase(dsl).getAnalyticsByMonths(USER_ID, filter),
+                "idx_transactions_owner_account_sums");
+    }
+
+    @Test
+    public void rollupOfTransferUsesMetadataIndex() {
+        assertUsesIndex(false, (dsl) ->
+                new AnalyticsDatabase(dsl).addToRollup(TRANSACTIONS.METADATA_ID.eq(1L)),
+                "idx_transactions_metadata_id");
+    }
+
+    @Test
+    public void accumulationLookupUsesMetadataArgIndex() {
+        // the lookup of InternalHook.fetchAccumulationTransaction
+        assertUsesIndex(false, (dsl) ->
+                dsl.selectFrom(TRANSACTIONS
+                                .leftJoin(TRANSACTIONS_METADATA)
+                                .on(TRANSACTIONS.METADATA_ID.eq(TRANSACTIONS_METADATA.ID)))
+                        .where(TRANSACTIONS_METADATA.TYPE.eq(MetadataType.HAS_ACCUMULATION.type)
+                                .and(TRANSACTIONS_METADATA.ARG.eq(1L)))
+                        .fetchOptional(),
+                "idx_transactions_metadata_arg");
+    }
+
+    @Test
+    public void transferLookupUsesFromToIndexes() {
+        assertUsesIndex(false, (dsl) ->
+                dsl.selectFrom(INTERNAL_TRANSACTIONS_METADATA)
+                        .where(INTERNAL_TRANSACTIONS_METADATA.FROM_TRANSACTION_ID.eq(1L))
+                        .fetch(),
+                "idx_internal_transactions_metadata_from");
+
+        assertUsesIndex(false, (dsl) ->
+                dsl.selectFrom(INTERNAL_TRANSACTIONS_METADATA)
+                        .where(INTERNAL_TRANSACTIONS_METADATA.TO_TRANSACTION_ID.eq(1L))
+                        .fetch(),
+                "idx_internal_transactions_metadata_to");
+    }
+
+    protected static void assertUsesIndex(boolean ordered, Consumer<DSLContext> query, String... indexes) {
+        List<String> plans = render(query).stream().map((sql) -> explain(sql, ordered)).toList();
+        List<String> names = Arrays.stream(indexes).flatMap((index) -> indexNames(index).stream()).toList();
+
+        assertTrue(plans.stream().anyMatch((plan) -> names.stream().anyMatch((n) -> plan.contains("\"Index Name\": \"" + n + "\""))),
+                "no plan uses " + String.join(" or ", indexes) + ":\n" + String.join("\n", plans));
+    }
+
+    // the sql the dao would send, with values inlined; the mock answers nothing, so the dao may fail after rendering
+    protected static List<String> render(Consumer<DSLContext> query) {
+        ArrayList<String> statements = new ArrayList<>();
+
+        MockConnection connection = new MockConnection((executeContext) -> {
+            statements.add(executeContext.sql());
+
+            return new MockResult[] { new MockResult(0, null) };
+        });
+
+        try {
+            query.accept(DSL.using(connection, SQLDialect.POSTGRES, new Settings().withStatementType(StatementType.STATIC_STATEMENT)));
+        } catch (RuntimeException ignored) {
+        }
+
+        assertFalse(statements.isEmpty(), "the query wasn't rendered");
+
+        return statements;
+    }
+
+    protected static String explain(String sql, boolean ordered) {
+        return context.transactionResult((configuration) -> {
+            DSLContext dsl = configuration.dsl();
+
+            dsl.execute("set local enable_seqscan = off");
+
+            if (ordered)
+                dsl.execute("set local enable_sort = off");
+
+            return dsl.resultQuery("explain (format json) " + sql).fetchOne(0, String.class);
+        });
+    }
+
+    // partitions of transactions scan their own copies of the index, attached to the parent one
+    protected static List<String> indexNames(String index) {
+        ArrayList<String> names = new ArrayList<>(List.of(index));
+
+        names.addAll(context.resultQuery("select c.relname from pg_inherits i " +
+                        "join pg_class c on c.oid = i.inhrelid " +
+                        "where i.inhparent = to_regclass({0})", DSL.inline(index))
+                .fetch(0, String.class));
+
+        return names;
+    }
+}
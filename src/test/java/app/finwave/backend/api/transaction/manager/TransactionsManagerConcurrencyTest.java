@@ -0,0 +1,200 @@
+package app.finwave.backend.api.transaction.manager;
+
+import app.finwave.backend.api.event.WebSocketWorker;
+import app.finwave.backend.api.outbox.OutboxManager;
+import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.app.TransactionConfig;
+import app.finwave.backend.config.general.DatabaseConfig;
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.TestDatabase;
+import org.jooq.DSLContext;
+import org.jooq.postgres.extensions.types.Ltree;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static app.finwave.backend.jooq.Tables.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionsManagerConcurrencyTest {
+    protected static final int THREADS = 16;
+    protected static final int OPERATIONS_PER_THREAD = 200;
+
+    protected static DatabaseWorker databaseWorker;
+    protected static DSLContext context;
+    protected static TransactionsManager manager;
+
+    @BeforeAll
+    public static void connect() {
+        Configs configs = TestDatabase.configs((state) -> {
+            if (state instanceof DatabaseConfig config)
+                config.pool.maxSize = THREADS;
+
+            // few stripes, so unrelated owners and accounts share locks and the acquisition order matters
+            if (state instanceof TransactionConfig config)
+                config.lockStripes = 4;
+        });
+
+        databaseWorker = TestDatabase.connect(configs);
+        context = databaseWorker.getDefaultContext();
+        manager = new TransactionsManager(databaseWorker, configs, new OutboxManager(databaseWorker, configs, new WebSocketWorker(null)));
+    }
+
+    @Test
+    public void accountAmountsMatchTransactionsUnderConcurrentChanges() throws Exception {
+        List<Owner> owners = List.of(createOwner(), createOwner());
+
+        ConcurrentLinkedQueue<Long> defaultIds = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Long> transferIds = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        ArrayList<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Owner owner = owners.get(random.nextInt(owners.size()));
+                    long account = owner.accounts[random.nextInt(owner.accounts.length)];
+                    BigDecimal delta = BigDecimal.valueOf(random.nextInt(-10000, 10000), 2);
+
+                    switch (random.nextInt(5)) {
+                        case 0, 1 -> defaultIds.add(manager.applyTransaction(new TransactionNewRecord(
+                                owner.userId, owner.categoryId, account, OffsetDateTime.now(), delta, "concurrency test")));
+                        case 2 -> transferIds.add(manager.applyInternalTransfer(new TransactionNewInternalRecord(
+                                owner.userId, owner.categoryId, owner.accounts[0], owner.accounts[1],
+                                OffsetDateTime.now(), delta.abs().negate(), delta.abs(), "concurrency test")));
+                        case 3 -> {
+                            Long id = defaultIds.peek();
+
+                            if (id == null)
+                                continue;
+
+                            Owner idOwner = ownerOf(owners, id);
+                            long newAccount = idOwner.accounts[random.nextInt(idOwner.accounts.length)];
+
+                            ignoreCanceled(() -> manager.editTransaction(id, new TransactionEditRecord(
+                                    idOwner.categoryId, newAccount, OffsetDateTime.now(), delta, "edited")));
+                        }
+                        case 4 -> {
+                            Long id = random.nextBoolean() ? defaultIds.poll() : transferIds.poll();
+
+                            if (id != null)
+                                ignoreCanceled(() -> manager.cancelTransaction(id));
+                        }
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "operations didn't finish, likely a deadlock");
+
+        for (Future<?> future : futures)
+            future.get();
+
+        for (Owner owner : owners) {
+            for (long account : owner.accounts) {
+                BigDecimal amount = context.select(ACCOUNTS.AMOUNT)
+                        .from(ACCOUNTS)
+                        .where(ACCOUNTS.ID.eq(account))
+                        .fetchOne()
+                        .value1();
+
+                BigDecimal sum = Optional.ofNullable(context.select(org.jooq.impl.DSL.sum(TRANSACTIONS.DELTA))
+                                .from(TRANSACTIONS)
+                                .where(TRANSACTIONS.ACCOUNT_ID.eq(account))
+                                .fetchOne()
+                                .value1())
+                        .orElse(BigDecimal.ZERO);
+
+                assertEquals(0, amount.compareTo(sum), "account " + account + " amount " + amount + " != transactions sum " + sum);
+            }
+        }
+    }
+
+    // an edit or a second cancel may lose the race against a cancel of the same transaction
+    protected static void ignoreCanceled(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            if (!"Transaction not exists".equals(e.getMessage()))
+                throw e;
+        }
+    }
+
+    protected static Owner ownerOf(List<Owner> owners, long transactionId) {
+        int userId = context.select(TRANSACTIONS.OWNER_ID)
+                .from(TRANSACTIONS)
+                .where(TRANSACTIONS.ID.eq(transactionId))
+                .fetchOptional()
+                .map((r) -> r.value1())
+                .orElse(owners.get(0).userId);
+
+        return owners.stream().filter((o) -> o.userId == userId).findFirst().orElseThrow();
+    }
+
+    protected static Owner createOwner() {
+        int userId = context.insertInto(USERS)
+                .set(USERS.USERNAME, "concurrency_" + UUID.randomUUID().toString().substring(0, 8))
+                .set(USERS.PASSWORD, "-")
+                .returningResult(USERS.ID)
+                .fetchOne()
+                .value1();
+
+        long currencyId = context.insertInto(CURRENCIES)
+                .set(CURRENCIES.OWNER_ID, userId)
+                .set(CURRENCIES.CODE, "TST")
+                .set(CURRENCIES.SYMBOL, "T")
+                .set(CURRENCIES.DECIMALS, (short) 2)
+                .set(CURRENCIES.DESCRIPTION, "concurrency test")
+                .returningResult(CURRENCIES.ID)
+                .fetchOne()
+                .value1();
+
+        long folderId = context.insertInto(ACCOUNTS_FOLDERS)
+                .set(ACCOUNTS_FOLDERS.OWNER_ID, userId)
+                .set(ACCOUNTS_FOLDERS.NAME, "concurrency test")
+                .returningResult(ACCOUNTS_FOLDERS.ID)
+                .fetchOne()
+                .value1();
+
+        long categoryId = context.insertInto(CATEGORIES)
+                .set(CATEGORIES.OWNER_ID, userId)
+                .set(CATEGORIES.TYPE, (short) 0)
+                .set(CATEGORIES.PARENTS_TREE, Ltree.valueOf(""))
+                .set(CATEGORIES.NAME, "concurrency test")
+                .returningResult(CATEGORIES.ID)
+                .fetchOne()
+                .value1();
+
+        long[] accounts = new long[3];
+
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = context.insertInto(ACCOUNTS)
+                    .set(ACCOUNTS.OWNER_ID, userId)
+                    .set(ACCOUNTS.FOLDER_ID, folderId)
+                    .set(ACCOUNTS.CURRENCY_ID, currencyId)
+                    .set(ACCOUNTS.AMOUNT, BigDecimal.ZERO)
+                    .set(ACCOUNTS.HIDDEN, false)
+                    .set(ACCOUNTS.NAME, "concurrency test " + i)
+                    .returningResult(ACCOUNTS.ID)
+                    .fetchOne()
+                    .value1();
+        }
+
+        return new Owner(userId, categoryId, accounts);
+    }
+
+    protected record Owner(int userId, long categoryId, long[] accounts) {}
+}
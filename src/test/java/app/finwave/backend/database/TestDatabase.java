@@ -0,0 +1,38 @@
+package app.finwave.backend.database;
+
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.GroupedConfig;
+import app.finwave.backend.config.general.DatabaseConfig;
+import app.finwave.backend.migration.Migrator;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// tests run against a disposable database given by FINWAVE_TEST_DATABASE_URL and are skipped without it
+public class TestDatabase {
+    public static Configs configs(Consumer<GroupedConfig> overrides) {
+        String url = System.getenv("FINWAVE_TEST_DATABASE_URL");
+
+        assumeTrue(url != null && !url.isBlank(), "FINWAVE_TEST_DATABASE_URL is not set");
+
+        return new Configs() {
+            @Override
+            public <T extends GroupedConfig> T getState(T defaultState) {
+                if (defaultState instanceof DatabaseConfig config) {
+                    config.url = url;
+                    config.user = Optional.ofNullable(System.getenv("FINWAVE_TEST_DATABASE_USER")).orElse(config.user);
+                }
+
+                overrides.accept(defaultState);
+
+                return defaultState;
+            }
+        };
+    }
+
+    public static DatabaseWorker connect(Configs configs) {
+        return new DatabaseWorker(configs, new Migrator(configs));
+    }
+}